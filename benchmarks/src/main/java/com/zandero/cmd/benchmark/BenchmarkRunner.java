@@ -0,0 +1,36 @@
+package com.zandero.cmd.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks once for each given thread count with allocation rate reported by the GC profiler
+ *
+ * java -Dthreads=1,4,16 -jar target/benchmarks.jar [JMH options, for instance: ParserBenchmark -p options=1000]
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		// hide constructor
+	}
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+
+		CommandLineOptions given = new CommandLineOptions(args);
+
+		for (String threads : System.getProperty("threads", "1").split(",")) {
+
+			ChainedOptionsBuilder options = new OptionsBuilder()
+				                                .parent(given)
+				                                .threads(Integer.parseInt(threads.trim()))
+				                                .addProfiler(GCProfiler.class);
+
+			new Runner(options.build()).run();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.zandero.cmd.benchmark;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.cmd.CommandSpec;
+import com.zandero.cmd.ConfigFileReader;
+import com.zandero.settings.Settings;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ConfigFileReader.load by config file size and number of options
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigFileBenchmark {
+
+	@Param({"10", "1000", "10000"})
+	public int options;
+
+	@Param({"100", "10000", "1000000"})
+	public int lines;
+
+	private CommandSpec spec;
+
+	private ConfigFileReader reader;
+
+	private String file;
+
+	@Setup
+	public void setup() throws IOException {
+
+		spec = Specs.builder(options).build();
+		reader = new ConfigFileReader();
+		file = Specs.configFile(lines, options).toString();
+	}
+
+	@Benchmark
+	public Settings load() throws CommandLineException {
+
+		return reader.load(file, spec);
+	}
+}
@@ -0,0 +1,59 @@
+package com.zandero.cmd.benchmark;
+
+import com.zandero.cmd.CommandBuilder;
+import com.zandero.cmd.HelpRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures help screen rendering by number of options
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelpBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	public int options;
+
+	private CommandBuilder builder;
+
+	private HelpRenderer renderer;
+
+	@Setup
+	public void setup() {
+
+		builder = Specs.builder(options);
+		renderer = new HelpRenderer(builder.build(), HelpRenderer.DEFAULT_WIDTH);
+	}
+
+	@Benchmark
+	public List<String> getHelp() {
+
+		return builder.getHelp();
+	}
+
+	@Benchmark
+	public int render(Output output) throws IOException {
+
+		StringBuilder out = output.buffer;
+		out.setLength(0);
+		renderer.render(out);
+		return out.length();
+	}
+
+	/**
+	 * Output buffer reused by each thread
+	 */
+	@State(Scope.Thread)
+	public static class Output {
+
+		final StringBuilder buffer = new StringBuilder();
+	}
+}
@@ -0,0 +1,60 @@
+package com.zandero.cmd.benchmark;
+
+import com.zandero.cmd.CommandBuilder;
+import com.zandero.cmd.option.CommandOption;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures option lookup by short, long and setting name by number of options
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	public int options;
+
+	private CommandBuilder builder;
+
+	private String shortName;
+
+	private String longName;
+
+	private String setting;
+
+	@Setup
+	public void setup() {
+
+		builder = Specs.builder(options);
+
+		// last option is the worst case for a linear scan
+		int last = options - 1;
+		shortName = "-o" + last;
+		longName = "--option" + last;
+		setting = "setting" + last;
+	}
+
+	@Benchmark
+	public CommandOption<?> findShort() {
+
+		return builder.findShort(shortName);
+	}
+
+	@Benchmark
+	public CommandOption<?> findLong() {
+
+		return builder.findLong(longName);
+	}
+
+	@Benchmark
+	public CommandOption<?> findOption() {
+
+		return builder.findOption(setting);
+	}
+}
@@ -0,0 +1,43 @@
+package com.zandero.cmd.benchmark;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.cmd.CommandLineParser;
+import com.zandero.settings.Settings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CommandLineParser.parse by number of options and number of given arguments
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	public int options;
+
+	@Param({"2", "20", "200"})
+	public int arguments;
+
+	private CommandLineParser parser;
+
+	private String[] args;
+
+	@Setup
+	public void setup() {
+
+		parser = new CommandLineParser(Specs.builder(options));
+		args = Specs.arguments(arguments, options);
+	}
+
+	@Benchmark
+	public Settings parse() throws CommandLineException {
+
+		return parser.parse(args);
+	}
+}
@@ -0,0 +1,132 @@
+package com.zandero.cmd.benchmark;
+
+import com.zandero.cmd.CommandBuilder;
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.StringOption;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates option sets, arguments and config files of given size
+ * Options cycle through int, string and boolean: -o0 [ --option0 ], -o1 [ --option1 ] ...
+ */
+final class Specs {
+
+	private Specs() {
+		// hide constructor
+	}
+
+	/**
+	 * @param options number of options
+	 * @return builder holding given number of options
+	 */
+	static CommandBuilder builder(int options) {
+
+		CommandBuilder builder = new CommandBuilder();
+		for (int index = 0; index < options; index++) {
+
+			builder.add(option(index)
+				            .longCommand("option" + index)
+				            .setting("setting" + index)
+				            .description("Description of option number " + index));
+		}
+
+		builder.setHelp("Benchmark 1.0", "benchmark.jar -o0 10");
+		return builder;
+	}
+
+	/**
+	 * @param length  number of arguments
+	 * @param options number of options to spread arguments across
+	 * @return arguments given as short and long names with values
+	 */
+	static String[] arguments(int length, int options) {
+
+		String[] arguments = new String[length];
+
+		int index = 0;
+		int option = 0;
+		while (index < length) {
+
+			boolean shortName = option % 2 == 0;
+			arguments[index++] = shortName ? "-o" + option : "--option" + option;
+
+			if (index < length && type(option) != 2) {
+				arguments[index++] = value(option);
+			}
+
+			option = (option + 7) % options;
+		}
+
+		return arguments;
+	}
+
+	/**
+	 * Writes config file with given number of lines, every tenth line is a comment
+	 *
+	 * @param lines   number of lines
+	 * @param options number of options to spread lines across
+	 * @return temporary file, deleted on exit
+	 * @throws IOException in case file could not be written
+	 */
+	static Path configFile(int lines, int options) throws IOException {
+
+		Path file = Files.createTempFile("benchmark", ".cfg");
+		file.toFile().deleteOnExit();
+
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+
+			for (int line = 0; line < lines; line++) {
+
+				if (line % 10 == 0) {
+					writer.write("# comment line " + line + "\n");
+					continue;
+				}
+
+				int option = line % options;
+				writer.write("option" + option + " = " + value(option) + "\n");
+			}
+		}
+
+		return file;
+	}
+
+	private static CommandOption<?> option(int index) {
+
+		switch (type(index)) {
+			case 0:
+				return new IntOption("o" + index);
+
+			case 1:
+				return new StringOption("o" + index);
+
+			default:
+				return new BoolOption("o" + index);
+		}
+	}
+
+	private static int type(int index) {
+
+		return index % 3;
+	}
+
+	private static String value(int index) {
+
+		switch (type(index)) {
+			case 0:
+				return Integer.toString(index);
+
+			case 1:
+				return "value" + index;
+
+			default:
+				return "true";
+		}
+	}
+}
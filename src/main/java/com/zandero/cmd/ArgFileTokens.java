@@ -0,0 +1,320 @@
+package com.zandero.cmd;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+/**
+ * Expands @file arguments into arguments read from given file
+ * File is memory mapped and tokens are handed out one by one, arguments of file are never held in memory all at once.
+ *
+ * Arguments in file are separated by whitespace:
+ * <ul>
+ * <li>chars in single quotes are taken literally</li>
+ * <li>in double quotes a backslash escapes next char</li>
+ * <li># starts a comment up to end of line</li>
+ * </ul>
+ * If file contains a NUL char in first {@link #DETECT} bytes, arguments are separated by NUL chars only (as produced by find -print0) and taken as given.
+ *
+ * Argument files are not expanded recursively, "@-" is left to options reading values from standard input (see StreamOption).
+ */
+final class ArgFileTokens implements Tokens, AutoCloseable {
+
+	/**
+	 * Number of bytes checked for NUL char
+	 */
+	static final int DETECT = 4096;
+
+	private final Tokens arguments;
+
+	private final ByteChars token = new ByteChars();
+
+	/**
+	 * Currently expanded file, null if none
+	 */
+	private MappedInput input;
+
+	private String file;
+
+	/**
+	 * First bytes of file, read to detect NUL separated file
+	 */
+	private final byte[] prefix = new byte[DETECT];
+
+	private int prefixLength;
+
+	private int prefixIndex;
+
+	private boolean nulSeparated;
+
+	/**
+	 * Current token is from file
+	 */
+	private boolean fromFile;
+
+	private CharSequence chars;
+
+	private int start;
+
+	private int end;
+
+	/**
+	 * Decoded token in case token holds non ASCII chars
+	 */
+	private String decoded;
+
+	ArgFileTokens(Tokens arguments) {
+
+		this.arguments = arguments;
+	}
+
+	@Override
+	public boolean next() throws CommandLineException {
+
+		while (true) {
+
+			if (input != null) {
+
+				if (nextFromFile()) {
+					return true;
+				}
+
+				close();
+				continue;
+			}
+
+			if (!arguments.next()) {
+				chars = null;
+				return false;
+			}
+
+			if (isArgFile()) {
+				open(arguments.chars().subSequence(arguments.start() + 1, arguments.end()).toString());
+				continue;
+			}
+
+			fromFile = false;
+			chars = arguments.chars();
+			start = arguments.start();
+			end = arguments.end();
+			return true;
+		}
+	}
+
+	private boolean isArgFile() {
+
+		CharSequence value = arguments.chars();
+		int from = arguments.start();
+		int length = arguments.end() - from;
+
+		return length > 1 && value.charAt(from) == '@' && !(length == 2 && value.charAt(from + 1) == '-');
+	}
+
+	private void open(String name) throws CommandLineException {
+
+		file = name;
+
+		try {
+			input = new MappedInput(Paths.get(name));
+
+			prefixIndex = 0;
+			prefixLength = 0;
+
+			int value;
+			while (prefixLength < prefix.length && (value = input.read()) >= 0) {
+				prefix[prefixLength++] = (byte) value;
+			}
+
+			// skip UTF-8 BOM
+			if (prefixLength >= 3 && (prefix[0] & 0xff) == 0xEF && (prefix[1] & 0xff) == 0xBB && (prefix[2] & 0xff) == 0xBF) {
+				prefixIndex = 3;
+			}
+
+			nulSeparated = false;
+			for (int index = prefixIndex; index < prefixLength && !nulSeparated; index++) {
+				nulSeparated = prefix[index] == 0;
+			}
+		}
+		catch (NoSuchFileException e) {
+			close();
+			throw new CommandLineException("Argument file '" + name + "' does not exist");
+		}
+		catch (IOException e) {
+			close();
+			throw new CommandLineException("Failed to read argument file '" + name + "': " + e.getMessage());
+		}
+	}
+
+	private int read() throws CommandLineException {
+
+		if (prefixIndex < prefixLength) {
+			return prefix[prefixIndex++] & 0xff;
+		}
+
+		try {
+			return input.read();
+		}
+		catch (IOException e) {
+			throw new CommandLineException("Failed to read argument file '" + file + "': " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return true if token was read, false if end of file was reached
+	 */
+	private boolean nextFromFile() throws CommandLineException {
+
+		token.clear();
+		boolean found = nulSeparated ? nulSeparated() : whitespaceSeparated();
+		if (!found) {
+			return false;
+		}
+
+		fromFile = true;
+		start = 0;
+		end = token.length();
+
+		// option names are matched on bytes, non ASCII tokens are decoded
+		if (token.isAscii(0, end)) {
+			decoded = null;
+			chars = token;
+		}
+		else {
+			decoded = token.toString();
+			chars = decoded;
+			end = decoded.length();
+		}
+
+		return true;
+	}
+
+	private boolean nulSeparated() throws CommandLineException {
+
+		int value;
+		while ((value = read()) >= 0) {
+
+			if (value != 0) {
+				token.append(value);
+			}
+			else if (token.length() > 0) {
+				return true;
+			}
+		}
+
+		return token.length() > 0;
+	}
+
+	private boolean whitespaceSeparated() throws CommandLineException {
+
+		int value = skipWhitespace();
+		while (value == '#') { // comment
+			while (value >= 0 && value != '\n') {
+				value = read();
+			}
+
+			value = skipWhitespace();
+		}
+
+		if (value < 0) {
+			return false;
+		}
+
+		while (value >= 0 && !isWhitespace(value)) {
+
+			if (value == '\'') {
+				quoted('\'', false);
+			}
+			else if (value == '"') {
+				quoted('"', true);
+			}
+			else {
+				token.append(value);
+			}
+
+			value = read();
+		}
+
+		return true; // token can be empty: ''
+	}
+
+	private void quoted(int quote, boolean escapes) throws CommandLineException {
+
+		int value;
+		while ((value = read()) != quote) {
+
+			if (value < 0) {
+				throw new CommandLineException("Missing closing quote (" + (char) quote + ") in argument file: " + file);
+			}
+
+			if (escapes && value == '\\') {
+				value = read();
+				if (value < 0) {
+					throw new CommandLineException("Missing closing quote (" + (char) quote + ") in argument file: " + file);
+				}
+			}
+
+			token.append(value);
+		}
+	}
+
+	private int skipWhitespace() throws CommandLineException {
+
+		int value = read();
+		while (value >= 0 && isWhitespace(value)) {
+			value = read();
+		}
+
+		return value;
+	}
+
+	private static boolean isWhitespace(int value) {
+
+		return value == ' ' || value == '\t' || value == '\n' || value == '\r' || value == '\f';
+	}
+
+	@Override
+	public CharSequence chars() {
+
+		return chars;
+	}
+
+	@Override
+	public int start() {
+
+		return start;
+	}
+
+	@Override
+	public int end() {
+
+		return end;
+	}
+
+	@Override
+	public String string() {
+
+		if (!fromFile) {
+			return arguments.string();
+		}
+
+		return decoded != null ? decoded : token.toString(0, end);
+	}
+
+	/**
+	 * Closes currently expanded file if any
+	 */
+	@Override
+	public void close() {
+
+		if (input != null) {
+			try {
+				input.close();
+			}
+			catch (IOException e) {
+				// nothing to do, file was only read
+			}
+
+			input = null;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.zandero.cmd;
+
+/**
+ * Tokens given as array of Strings, null items are skipped
+ */
+final class ArrayTokens implements Tokens {
+
+	private final String[] arguments;
+
+	private final int to;
+
+	private int index;
+
+	private String current;
+
+	ArrayTokens(String[] arguments) {
+
+		this(arguments, 0, arguments == null ? 0 : arguments.length);
+	}
+
+	/**
+	 * @param arguments holding tokens
+	 * @param from      first token (inclusive)
+	 * @param to        last token (exclusive)
+	 */
+	ArrayTokens(String[] arguments, int from, int to) {
+
+		this.arguments = arguments == null ? new String[0] : arguments;
+		this.to = to;
+		index = from - 1;
+	}
+
+	@Override
+	public boolean next() {
+
+		while (++index < to) {
+
+			current = arguments[index];
+			if (current != null) {
+				return true;
+			}
+		}
+
+		current = null;
+		return false;
+	}
+
+	@Override
+	public CharSequence chars() {
+
+		return current;
+	}
+
+	@Override
+	public int start() {
+
+		return 0;
+	}
+
+	@Override
+	public int end() {
+
+		return current.length();
+	}
+
+	@Override
+	public String string() {
+
+		return current;
+	}
+}
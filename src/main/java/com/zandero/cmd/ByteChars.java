@@ -0,0 +1,117 @@
+package com.zandero.cmd;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable byte buffer that can be viewed as a char sequence
+ * Used to match names against options without decoding them into Strings (valid for ASCII content only)
+ */
+final class ByteChars implements CharSequence {
+
+	private byte[] bytes;
+
+	private int length;
+
+	ByteChars() {
+
+		this(128);
+	}
+
+	ByteChars(int capacity) {
+
+		bytes = new byte[capacity];
+	}
+
+	void append(int value) {
+
+		if (length == bytes.length) {
+			byte[] grown = new byte[bytes.length * 2];
+			System.arraycopy(bytes, 0, grown, 0, length);
+			bytes = grown;
+		}
+
+		bytes[length++] = (byte) value;
+	}
+
+	void clear() {
+
+		length = 0;
+	}
+
+	/**
+	 * @param newLength to cut content to (not greater than length)
+	 */
+	void truncate(int newLength) {
+
+		length = newLength;
+	}
+
+	/**
+	 * @param chars to append bytes of
+	 */
+	void append(ByteChars chars, int start, int end) {
+
+		for (int index = start; index < end; index++) {
+			append(chars.bytes[index]);
+		}
+	}
+
+	/**
+	 * @param index of byte
+	 * @return byte at given index (0 - 255)
+	 */
+	int byteAt(int index) {
+
+		return bytes[index] & 0xff;
+	}
+
+	/**
+	 * @param start of range (inclusive)
+	 * @param end   of range (exclusive)
+	 * @return true if all bytes in range are ASCII
+	 */
+	boolean isAscii(int start, int end) {
+
+		for (int i = start; i < end; i++) {
+			if (bytes[i] < 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param start of range (inclusive)
+	 * @param end   of range (exclusive)
+	 * @return range decoded as UTF-8
+	 */
+	String toString(int start, int end) {
+
+		return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public int length() {
+
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+
+		return (char) (bytes[index] & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+
+		return toString(start, end);
+	}
+
+	@Override
+	public String toString() {
+
+		return toString(0, length);
+	}
+}
@@ -1,8 +1,6 @@
 package com.zandero.cmd;
 
 import com.zandero.cmd.option.CommandOption;
-import com.zandero.cmd.option.ConfigFileOption;
-import com.zandero.settings.Settings;
 import com.zandero.utils.Assert;
 import com.zandero.utils.StringUtils;
 
@@ -21,6 +19,8 @@ public class CommandBuilder {
 
 	private String helpAppExample;
 
+	private volatile CommandSpec spec;
+
 	/**
 	 * Creates empty builder
 	 */
@@ -53,6 +53,7 @@ public class CommandBuilder {
 		Assert.isNull(found, "Given option: " + option + " overlaps with: " + found);
 
 		options.add(option);
+		spec = null;
 	}
 
 	/**
@@ -77,10 +78,7 @@ public class CommandBuilder {
 	 */
 	public CommandOption<?> findShort(String argument) {
 
-		Assert.notNullOrEmptyTrimmed(argument, "Missing short name!");
-
-		Optional<CommandOption<?>> found = options.stream().filter(o -> o.isShort(argument)).findFirst();
-		return found.orElse(null);
+		return build().findShort(argument);
 	}
 
 	/**
@@ -91,24 +89,7 @@ public class CommandBuilder {
 	 */
 	public CommandOption<?> findLong(String argument) {
 
-		Assert.notNullOrEmptyTrimmed(argument, "Missing long name!");
-
-		Optional<CommandOption<?>> found = options.stream().filter(o -> o.isLong(argument)).findFirst();
-		return found.orElse(null);
-	}
-
-	/**
-	 * Finds option by setting
-	 *
-	 * @param key setting name
-	 * @return found option or null if none found
-	 */
-	private CommandOption<?> findBySetting(String key) {
-
-		Assert.notNullOrEmptyTrimmed(key, "Missing setting key!");
-
-		Optional<CommandOption<?>> found = options.stream().filter(o -> o.getSetting().equals(key)).findFirst();
-		return found.orElse(null);
+		return build().findLong(argument);
 	}
 
 	/**
@@ -119,62 +100,33 @@ public class CommandBuilder {
 	 */
 	public CommandOption<?> findOption(String name) {
 
-		Assert.notNullOrEmptyTrimmed(name, "Missing name!");
-
-		Optional<CommandOption<?>> found = options.stream().filter(o ->
-			o.getSetting().equals(name) ||
-				o.isShort(name) ||
-				o.isLong(name)).findFirst();
-
-		return found.orElse(null);
+		return build().findOption(name);
 	}
 
 	/**
-	 * @return list of stored options
-	 */
-	List<CommandOption<?>> get() {
-
-		return options;
-	}
-
-	/**
-	 * Sets default settings if listed in options
+	 * Compiles options into an immutable spec with indexed lookups
+	 * Spec is cached until next option is added
 	 *
-	 * @param defaultSettings to be set
+	 * @return compiled spec
+	 * @throws IllegalArgumentException in case options overlap by name, long name or setting
 	 */
-	void setDefaults(Settings defaultSettings) {
-
-		Assert.notNull(defaultSettings, "Missing default settings!");
-
-		for (String key : defaultSettings.keySet()) {
+	public CommandSpec build() {
 
-			CommandOption<?> option = findBySetting(key);
-
-			if (option == null) {
-				// option not present ... check next
-				continue;
-			}
-
-			Object value = defaultSettings.get(key);
-			option.defaultsTo(value);
+		CommandSpec compiled = spec;
+		if (compiled == null) {
+			compiled = new CommandSpec(this);
+			spec = compiled;
 		}
 
+		return compiled;
 	}
 
 	/**
-	 * Gets config file option if present in list
-	 *
-	 * @return config file option or null if not configured
+	 * @return list of stored options
 	 */
-	CommandOption<?> getConfigFileOption() {
-
-		for (CommandOption<?> option : options) {
-			if (option instanceof ConfigFileOption) {
-				return option;
-			}
-		}
+	List<CommandOption<?>> get() {
 
-		return null;
+		return options;
 	}
 
 	/**
@@ -186,44 +138,28 @@ public class CommandBuilder {
 
 		helpAppVersion = StringUtils.trimToNull(appVersion);
 		helpAppExample = StringUtils.trimToNull(usageExample);
+		spec = null;
+	}
+
+	String getHelpAppVersion() {
+
+		return helpAppVersion;
+	}
+
+	String getHelpAppExample() {
+
+		return helpAppExample;
 	}
 
 	/**
 	 * Outputs command line options for System.out display
+	 * (lines are not wrapped, use {@link HelpRenderer} to write help wrapped to terminal width)
 	 * @return list of options as strings
 	 */
 	public List<String> getHelp() {
 
 		List<String> out = new ArrayList<>();
-
-		if (helpAppVersion != null) {
-			out.add(helpAppVersion);
-		}
-
-		if (helpAppExample != null) {
-			out.add(helpAppExample);
-		}
-
-		if (helpAppVersion != null || helpAppExample != null) {
-	 		out.add(""); // new line
- 		}
-
-		// find longest option to format all other options by this one
-		int max = 0;
-		for (CommandOption<?> option: options) {
-			String command = option.toCommandString();
-			max = Math.max(max, command.length());
-		}
-
-		for (CommandOption<?> option: options) {
-			String info = option.toCommandString();
-			int spaces = max - info.length() + 1;
-
-			String delimiter = new String(new char[spaces]).replace("\0", " "); // returns 'spaces' long empty string
-
-			info = info + delimiter + option.getDescription();
-			out.add(info);
-		}
+		new HelpRenderer(build(), 0).lines().forEachRemaining(out::add);
 
 		return out;
 	}
@@ -234,12 +170,16 @@ public class CommandBuilder {
 	 */
 	public List<String> getHelpFor(String command) {
 		command = StringUtils.trimAll(command, "-");
-		for (CommandOption<?> option: options) {
-			if (option.isLong(command) || option.isShort(command)) {
-				return option.getHelp();
-			}
+		if (StringUtils.isNullOrEmptyTrimmed(command)) {
+			return new ArrayList<>();
+		}
+
+		CommandSpec compiled = build();
+		CommandOption<?> option = compiled.findLong(command);
+		if (option == null) {
+			option = compiled.findShort(command);
 		}
 
-		return new ArrayList<>();
+		return option != null ? option.getHelp() : new ArrayList<>();
 	}
 }
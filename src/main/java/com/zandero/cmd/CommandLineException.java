@@ -1,11 +1,33 @@
 package com.zandero.cmd;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  *
  */
 public class CommandLineException extends Exception {
 
+	private final List<String> suggestions;
+
 	public CommandLineException(String message) {
 		super(message);
+		suggestions = Collections.emptyList();
+	}
+
+	/**
+	 * @param message     error message
+	 * @param suggestions option names similar to given one, appended to message if any
+	 */
+	public CommandLineException(String message, List<String> suggestions) {
+		super(suggestions == null || suggestions.isEmpty() ? message : message + ", did you mean: " + String.join(", ", suggestions) + "?");
+		this.suggestions = suggestions == null ? Collections.emptyList() : Collections.unmodifiableList(suggestions);
+	}
+
+	/**
+	 * @return option names similar to given unknown option or empty list if none
+	 */
+	public List<String> getSuggestions() {
+		return suggestions;
 	}
 }
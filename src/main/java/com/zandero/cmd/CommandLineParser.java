@@ -2,18 +2,123 @@ package com.zandero.cmd;
 
 import com.zandero.cmd.option.CommandOption;
 import com.zandero.cmd.option.ConfigFileOption;
+import com.zandero.cmd.option.FileOption;
+import com.zandero.cmd.option.MultiValueOption;
 import com.zandero.settings.Settings;
 import com.zandero.utils.Assert;
-import com.zandero.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Parses given arguments to a map of settings if possible
  */
 public class CommandLineParser {
 
-	private final CommandBuilder builder;
+	private static final Logger log = LoggerFactory.getLogger(CommandLineParser.class);
+
+	/**
+	 * No option is expecting a value
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Option is not part of spec
+	 */
+	private static final int UNKNOWN = -2;
+
+	private final CommandSpec spec;
+
+	/**
+	 * Default values by option ordinal, replaced as a whole when defaults change (never modified once published)
+	 */
+	private volatile Object[] defaults;
+
+	private final ConfigFileReader configReader;
+
+	/**
+	 * Parsed config files, null if caching is disabled
+	 */
+	private volatile ConfigFileCache configCache = new ConfigFileCache();
+
+	/**
+	 * Directory of config file snapshots with fingerprint of options, null if snapshots are not used
+	 */
+	private volatile Snapshots snapshots;
+
+	/**
+	 * Last opened snapshot with decoded settings, reused while current, null if none
+	 */
+	private volatile OpenSnapshot openSnapshot;
+
+	/**
+	 * Receives parse metrics, null if none
+	 */
+	private volatile ParseListener listener;
+
+	/**
+	 * Unknown options are ignored unless set
+	 */
+	private volatile boolean failOnUnknownOption;
+
+	/**
+	 * Long options can be abbreviated if set
+	 */
+	private volatile boolean abbreviations;
+
+	/**
+	 * Arguments are converted on first access if set
+	 */
+	private volatile boolean lazy;
+
+	/**
+	 * Checks file options concurrently, null to check files one by one while parsing
+	 */
+	private volatile FileValidator fileValidator;
+
+	/**
+	 * Environment variable and system property names of options, replaced as a whole when prefixes change
+	 */
+	private volatile SourceNames sourceNames;
+
+	private String environmentPrefix;
+
+	private String propertyPrefix;
+
+	/**
+	 * Environment variables, taken once from system environment unless given
+	 */
+	private volatile Map<String, String> environment;
+
+	/**
+	 * Arguments starting with @ are expanded into arguments read from file if set
+	 */
+	private volatile boolean argumentFiles;
+
+	/**
+	 * Subcommand option builders by name, and parsers of subcommands invoked so far
+	 */
+	private final Map<String, Supplier<CommandBuilder>> commands = new ConcurrentHashMap<>();
+
+	private final Map<String, CommandLineParser> commandParsers = new ConcurrentHashMap<>();
 
 	/**
 	 * Sets up command line parser
@@ -32,133 +137,1133 @@ public class CommandLineParser {
 	 */
 	public CommandLineParser(CommandBuilder cmdBuilder) {
 
-		builder = cmdBuilder;
+		this(cmdBuilder == null ? null : cmdBuilder.build());
+	}
+
+	/**
+	 * Sets up command line parser
+	 * Parser can be shared among threads, parsing does not modify given options
+	 *
+	 * @param commandSpec compiled options
+	 */
+	public CommandLineParser(CommandSpec commandSpec) {
+
+		this(commandSpec, new ConfigFileReader());
+	}
+
+	private CommandLineParser(CommandSpec commandSpec, ConfigFileReader reader) {
+
+		Assert.notNull(commandSpec, "Missing command builder!");
+
+		spec = commandSpec;
+		configReader = reader;
+
+		Object[] values = new Object[spec.size()];
+		for (int ordinal = 0; ordinal < values.length; ordinal++) {
+			values[ordinal] = spec.get(ordinal).getDefault();
+		}
+
+		defaults = values;
+		sourceNames = new SourceNames(spec, null, null);
 	}
 
 	/**
 	 * Sets default settings to be returned in case given setting is not provided with arguments
+	 * Options are not modified, defaults are held by parser
 	 *
 	 * @param settings map of default settings
+	 * @throws IllegalArgumentException in case default is not of option type
 	 */
-	public void setDefaults(Settings settings) {
+	public synchronized void setDefaults(Settings settings) {
 
 		Assert.notNull(settings, "Missing default settings!");
 
-		builder.setDefaults(settings);
+		Object[] values = defaults.clone();
+
+		for (String key : settings.keySet()) {
+
+			int ordinal = spec.settingOrdinal(key);
+			if (ordinal < 0) {
+				// option not present ... check next
+				continue;
+			}
+
+			values[ordinal] = spec.get(ordinal).cast(settings.get(key));
+		}
+
+		defaults = values;
 	}
 
 	/**
-	 * Returns HashMap of read out settings
+	 * Options not given in command line are read from environment variables named by prefix and setting: APP_ + threads = APP_THREADS
+	 * Names given with {@link CommandOption#env(String)} are used regardless of prefix.
+	 * Values are taken by precedence: command line, system properties, environment, config file, defaults
 	 *
-	 * @param arguments to be parsed and checked
-	 * @return IllegalArgumentException in case parsing failed
+	 * @param prefix of environment variable names, null to read only options with explicitly given names (default)
 	 */
-	public Settings parse(String[] arguments) throws CommandLineException {
+	public synchronized void setEnvironmentPrefix(String prefix) {
 
-		Settings out = new Settings();
-
-		if (arguments != null) {
+		environmentPrefix = prefix;
+		sourceNames = new SourceNames(spec, environmentPrefix, propertyPrefix);
+	}
 
-			// each argument is either a option or a option value
-			CommandOption<?> option = null;
+	/**
+	 * Options not given in command line are read from system properties named by prefix and setting: app. + threads = app.threads
+	 * Names given with {@link CommandOption#property(String)} are used regardless of prefix.
+	 *
+	 * @param prefix of system property names, null to read only options with explicitly given names (default)
+	 */
+	public synchronized void setPropertyPrefix(String prefix) {
 
-			for (String argument : arguments) {
+		propertyPrefix = prefix;
+		sourceNames = new SourceNames(spec, environmentPrefix, propertyPrefix);
+	}
 
-				if (isOption(argument)) { // is this an option or an argument ... ?
+	/**
+	 * Sets environment variables used instead of system environment
+	 *
+	 * @param variables by name, copied
+	 */
+	public void setEnvironment(Map<String, String> variables) {
 
-					option = findOption(argument);
+		Assert.notNull(variables, "Missing environment variables!");
+		environment = Collections.unmodifiableMap(new HashMap<>(variables));
+	}
 
-					if (option != null && !option.hasArguments()) {
-						// this is a no arg option ... add it to list (we might override this in the next step)
-						out.put(option.getSetting(), option.parse(argument));
-					}
-					continue;
-				}
+	/**
+	 * @return environment as given or system environment, taken in bulk once
+	 */
+	private Map<String, String> environment() {
 
-				if (option == null) {
-					throw new CommandLineException("Unknown command line option: " + argument);
-				}
+		Map<String, String> variables = environment;
+		if (variables == null) {
 
-				Object value = option.parse(argument);
-				out.put(option.getSetting(), value);
+			try {
+				variables = System.getenv();
 			}
+			catch (SecurityException e) {
+				variables = Collections.emptyMap();
+			}
+
+			environment = variables;
 		}
 
-		// check if ConfigFileOption is provided and given
-		CommandOption<?> config = builder.getConfigFileOption();
+		return variables;
+	}
+
+	/**
+	 * @return reader of config files, to add formats to
+	 */
+	public ConfigFileReader getConfigFileReader() {
 
-		// create copy of builder to override defaults if needed
-		CommandBuilder defaults = new CommandBuilder(builder.get());
+		return configReader;
+	}
 
-		if (config != null) {
+	/**
+	 * Sets cache used for config files given with {@link ConfigFileOption}
+	 * By default up to {@link ConfigFileCache#DEFAULT_SIZE} files are cached
+	 *
+	 * @param cache to be used or null to read config file on every parse
+	 */
+	public void setConfigFileCache(ConfigFileCache cache) {
 
-			String file = (String) out.get(config.getSetting()); // is provided?
-			if (file != null) {
-				ConfigFileReader reader = new ConfigFileReader();
-				Settings configSettings = reader.load(file, builder);
+		configCache = cache;
+	}
 
-				// override default with read config
-				defaults.setDefaults(configSettings);
+	/**
+	 * Sets directory of config file snapshots, shared by processes reading same config file
+	 * Config file is parsed only if its snapshot is missing or stale, see {@link SettingsSnapshot}
+	 * Last opened snapshot is kept with its settings and reused by following parses while config files are unchanged
+	 * Config file holding settings that can't be stored in snapshot ({@link SettingsSnapshot#canStore(Settings)}) is loaded as without snapshot
+	 *
+	 * @param directory to hold snapshots (must exist) or null to not use snapshots
+	 */
+	public void setConfigSnapshotDirectory(Path directory) {
 
-				// remove config setting from output
-				out.remove(config.getSetting());
-			}
-		}
+		setConfigSnapshotDirectory(directory, 0);
+	}
 
-		// add default options if any
-		for (CommandOption<?> option : defaults.get()) {
+	/**
+	 * Same as {@link #setConfigSnapshotDirectory(Path)}
+	 *
+	 * @param directory to hold snapshots (must exist) or null to not use snapshots
+	 * @param version   of option parsing, to be changed when custom options parse values differently, see {@link SettingsSnapshot#open(Path, String, CommandSpec, ConfigFileReader, int)}
+	 */
+	public void setConfigSnapshotDirectory(Path directory, int version) {
 
-			if (!(option instanceof ConfigFileOption) &&
-				!out.containsKey(option.getSetting())) {
-				out.put(option.getSetting(), option.getDefault());
-			}
-		}
+		Assert.isTrue(directory == null || Files.isDirectory(directory), "Snapshot directory '" + directory + "' does not exist");
+		snapshots = directory == null ? null : new Snapshots(directory, version, SettingsSnapshot.fingerprint(spec, version));
+	}
 
-		// check if required options are present
-		for (CommandOption<?> option : builder.options) {
-			if (option.isRequired() &&  out.get(option.getSetting()) == null) {
-				throw new CommandLineException("Missing required: " + option.toCommandString());
-			}
-		}
+	/**
+	 * Sets listener receiving phase timings and counters of each parse
+	 *
+	 * @param parseListener to be notified or null to remove listener
+	 */
+	public void setParseListener(ParseListener parseListener) {
+
+		listener = parseListener;
+	}
+
+	/**
+	 * By default unknown options are ignored, unless followed by a value
+	 *
+	 * @param fail true to fail on any unknown option
+	 */
+	public void setFailOnUnknownOption(boolean fail) {
+
+		failOnUnknownOption = fail;
+	}
+
+	/**
+	 * Allows long options to be abbreviated, as long as abbreviation is unambiguous: --verb for --verbose
+	 *
+	 * @param allow true to allow abbreviations, false to match long options by full name only (default)
+	 */
+	public void setAllowAbbreviations(boolean allow) {
+
+		abbreviations = allow;
+	}
+
+	/**
+	 * In lazy mode arguments are kept as given and converted on first access to value (or with {@link OptionValues#validateAll()}),
+	 * options marked with {@link CommandOption#eager()}, int and boolean options are always parsed immediately,
+	 * as are values taken from environment and system properties (so errors name their source).
+	 * Applies to {@link #parseValues(String[])}, as settings returned by {@link #parse(String[])} hold all values converted
+	 *
+	 * @param lazyConversion true to convert arguments on first access, false to convert while parsing (default)
+	 */
+	public void setLazyConversion(boolean lazyConversion) {
+
+		lazy = lazyConversion;
+	}
+
+	/**
+	 * Arguments of all {@link FileOption} options given are checked concurrently once arguments are parsed,
+	 * checks not finished in given time fail the parse
+	 *
+	 * @param timeout max time to wait for all file checks, 0 to check files one by one while parsing (default)
+	 * @param unit    of timeout
+	 */
+	public void setFileValidation(long timeout, TimeUnit unit) {
+
+		setFileValidation(null, timeout, unit);
+	}
+
+	/**
+	 * Arguments of all {@link FileOption} options given are checked concurrently on given executor once arguments are parsed,
+	 * checks not finished in given time fail the parse
+	 *
+	 * @param executor to run checks on, null to use shared executor
+	 * @param timeout  max time to wait for all file checks, 0 to check files one by one while parsing (default)
+	 * @param unit     of timeout
+	 */
+	public void setFileValidation(ExecutorService executor, long timeout, TimeUnit unit) {
+
+		Assert.isTrue(timeout >= 0, "Timeout must be greater or equal to 0!");
+		Assert.notNull(unit, "Missing time unit!");
+
+		fileValidator = timeout == 0 ? null : new FileValidator(executor, timeout, unit);
+	}
+
+	/**
+	 * Expands @file arguments into arguments listed in file, as in: tool @options.txt
+	 * Arguments in file are separated by whitespace and can be quoted with ' or ", # starts a comment.
+	 * Files holding NUL chars (find -print0, xargs -0) are split on NUL chars only.
+	 * Files are read as arguments are parsed, file arguments are not expanded recursively.
+	 *
+	 * @param expand true to expand @file arguments, false to take them as given (default)
+	 */
+	public void setExpandArgumentFiles(boolean expand) {
+
+		argumentFiles = expand;
+	}
 
+	/**
+	 * @return compiled options
+	 */
+	public CommandSpec getSpec() {
+
+		return spec;
+	}
+
+	/**
+	 * Registers subcommand: tool [global options] command [command options]
+	 * Command options are built on first invocation of command only
+	 *
+	 * @param name    of command, for instance: "status"
+	 * @param options supplier of command options
+	 * @throws IllegalArgumentException in case command is already registered
+	 */
+	public void addCommand(String name, Supplier<CommandBuilder> options) {
+
+		Assert.notNullOrEmptyTrimmed(name, "Missing command name!");
+		Assert.notNull(options, "Missing command options!");
+
+		String command = name.trim();
+		Assert.isFalse(command.startsWith("-"), "Command name can't start with '-'!");
+		Assert.isNull(commands.putIfAbsent(command, options), "Command: " + command + " is already registered!");
+	}
+
+	/**
+	 * @return names of registered subcommands in alphabetical order
+	 */
+	public List<String> getCommands() {
+
+		List<String> out = new ArrayList<>(commands.keySet());
+		Collections.sort(out);
 		return out;
 	}
 
-	private boolean isOption(String argument) {
+	/**
+	 * Gets parser of subcommand, to set defaults or to render help of subcommand
+	 * Subcommand parser is configured as this parser at the time it is created (listener, unknown options, abbreviations,
+	 * lazy conversion, file validation, argument files, environment, config file reader, cache and snapshots),
+	 * later changes of this parser are not applied to it, set them on returned parser instead
+	 *
+	 * @param name of command
+	 * @return parser of command, options are built on first call
+	 * @throws IllegalArgumentException in case command is not registered
+	 */
+	public CommandLineParser getCommand(String name) {
+
+		Supplier<CommandBuilder> options = name == null ? null : commands.get(name);
+		Assert.notNull(options, "Unknown command: " + name);
+
+		return commandParsers.computeIfAbsent(name, key -> {
+
+			CommandBuilder builder = options.get();
+			Assert.notNull(builder, "Missing options of command: " + key);
+			return configure(new CommandLineParser(builder.build(), configReader));
+		});
+	}
+
+	/**
+	 * Applies configuration of this parser to subcommand parser
+	 */
+	private synchronized CommandLineParser configure(CommandLineParser command) {
+
+		command.configCache = configCache;
+		command.snapshots = snapshots == null ? null :
+		                    new Snapshots(snapshots.directory, snapshots.version, SettingsSnapshot.fingerprint(command.spec, snapshots.version));
+		command.listener = listener;
+		command.failOnUnknownOption = failOnUnknownOption;
+		command.abbreviations = abbreviations;
+		command.lazy = lazy;
+		command.fileValidator = fileValidator;
+		command.argumentFiles = argumentFiles;
+		command.environment = environment;
 
-		if (StringUtils.isNullOrEmptyTrimmed(argument)) {
-			return false;
+		if (environmentPrefix != null || propertyPrefix != null) {
+			command.environmentPrefix = environmentPrefix;
+			command.propertyPrefix = propertyPrefix;
+			command.sourceNames = new SourceNames(command.spec, environmentPrefix, propertyPrefix);
 		}
 
-		return argument.startsWith("-") || argument.startsWith("--");
+		return command;
 	}
 
 	/**
-	 * Extracts argument and returns setting
+	 * Parses global options followed by subcommand and its options
+	 * Global options are parsed by this parser, subcommand options by parser of subcommand
 	 *
-	 * @param argument to extract setting from
-	 * @return name, value pair (name = setting name)
+	 * @param arguments to be parsed, for instance: -v status --short
+	 * @return parsed global and subcommand values
+	 * @throws CommandLineException in case parsing failed or unknown command was given
 	 */
-	private CommandOption<?> findOption(String argument) {
+	public CommandResult parseCommand(String[] arguments) throws CommandLineException {
 
-		if ("--".equals(argument) || argument == null) {
-			return null;
+		String[] items = arguments == null ? new String[0] : arguments;
+
+		int index = commandIndex(items);
+		if (index < 0) {
+			return new CommandResult(parseValues(new ArrayTokens(items)), null, null);
+		}
+
+		OptionValues global = parseValues(new ArrayTokens(items, 0, index));
+
+		String name = items[index];
+		OptionValues values = getCommand(name).parseValues(new ArrayTokens(items, index + 1, items.length));
+		return new CommandResult(global, name, values);
+	}
+
+	/**
+	 * @return index of first argument not being an option or option value, -1 if none
+	 * @throws CommandLineException in case argument is not a registered command
+	 */
+	private int commandIndex(String[] arguments) throws CommandLineException {
+
+		if (commands.isEmpty()) {
+			return -1;
+		}
+
+		boolean isValue = false; // argument is value of previous option
+		String unknown = null; // previous argument is unknown option
+		for (int index = 0; index < arguments.length; index++) {
+
+			String argument = arguments[index];
+			if (argument == null) {
+				continue;
+			}
+
+			if (argument.equals("--")) { // end of options, no command given
+				return -1;
+			}
+
+			if (argument.startsWith("-")) {
+				isValue = expectsValue(argument);
+				unknown = isUnknown(argument) ? argument : null;
+				continue;
+			}
+
+			if (isValue) {
+				isValue = false;
+				continue;
+			}
+
+			if (argumentFiles && argument.startsWith("@")) { // expanded with global options
+				unknown = null;
+				continue;
+			}
+
+			if (commands.containsKey(argument)) {
+				return index;
+			}
+
+			if (unknown != null) { // value of unknown option, not a mistyped command
+				int end = unknown.indexOf('=');
+				throw unknownOption(end > 0 ? unknown.substring(0, end) : unknown);
+			}
+
+			NameTree names = new NameTree();
+			commands.keySet().forEach(names::add);
+			throw new CommandLineException("Unknown command: " + argument, names.find(argument, NameTree.maxDistance(argument)));
 		}
 
+		return -1;
+	}
+
+	/**
+	 * @param argument option: --threads, --thr (when abbreviations are allowed), --threads=64, -t, -t10, -vt
+	 * @return true if option is expecting value in next argument
+	 */
+	private boolean expectsValue(String argument) {
+
+		int length = argument.length();
 		if (argument.startsWith("--")) {
-			return builder.findLong(argument);
+
+			if (argument.indexOf('=') > 0) { // --threads=64, value is given
+				return false;
+			}
+
+			// same lookup as while parsing, ambiguous abbreviation fails once global options are parsed
+			int option = abbreviations ? spec.findLongPrefix(argument, 0, length) : spec.findLong(argument, 0, length);
+			return option >= 0 && spec.get(option).hasArguments();
+		}
+
+		int option = spec.findShort(argument, 0, length);
+		if (option >= 0) {
+			return spec.get(option).hasArguments();
 		}
 
-		if (argument.startsWith("-")) {
-			return builder.findShort(argument);
+		for (int index = 1; index < length; index++) {
+
+			option = spec.findShort(argument, index, index + 1);
+			if (option < 0) {
+				return false;
+			}
+
+			if (spec.get(option).hasArguments()) {
+				return index + 1 == length;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @param argument option: --threads, --threads=64, -t, -t10, -vt
+	 * @return true if no global option matches argument
+	 */
+	private boolean isUnknown(String argument) {
+
+		int length = argument.length();
+		if (length < 2) {
+			return false;
 		}
 
-		// ok find short or long
-		CommandOption<?> found = builder.findShort(argument);
-		if (found == null) {
-			found = builder.findLong(argument);
+		if (argument.startsWith("--")) {
+
+			int end = argument.indexOf('=');
+			end = end > 0 ? end : length;
+
+			return (abbreviations ? spec.findLongPrefix(argument, 0, end) : spec.findLong(argument, 0, end)) == NameTrie.NONE;
 		}
 
-		return found;
+		// cluster of flags or option with attached value starts with known option
+		return spec.findShort(argument, 0, length) < 0 && spec.findShort(argument, 1, 2) < 0;
+	}
+
+	/**
+	 * Returns HashMap of read out settings
+	 * Settings can't hold arguments given after end of options (--), use {@link #parseValues(String[])} to get them
+	 *
+	 * @param arguments to be parsed and checked
+	 * @return IllegalArgumentException in case parsing failed
+	 * @throws CommandLineException in case parsing failed or arguments were given after --
+	 */
+	public Settings parse(String[] arguments) throws CommandLineException {
+
+		return toSettings(parseValues(arguments));
+	}
+
+	/**
+	 * Parses arguments into values stored by option ordinal, to be read with {@link OptionKey} handles
+	 *
+	 * @param arguments to be parsed and checked
+	 * @return parsed values
+	 * @throws CommandLineException in case parsing failed
+	 */
+	public OptionValues parseValues(String[] arguments) throws CommandLineException {
+
+		return parseValues(new ArrayTokens(arguments));
+	}
+
+	/**
+	 * Parses single command line, split into arguments by POSIX shell quoting rules
+	 * Arguments are not copied into Strings unless an option needs to parse them
+	 *
+	 * Settings can't hold arguments given after end of options (--), use {@link #parseValues(CharSequence)} to get them
+	 *
+	 * @param commandLine to be parsed and checked, for instance: -f "some file" --size 10
+	 * @return IllegalArgumentException in case parsing failed
+	 * @throws CommandLineException in case parsing failed or arguments were given after --
+	 */
+	public Settings parseCommandLine(CharSequence commandLine) throws CommandLineException {
+
+		return toSettings(parseValues(commandLine));
+	}
+
+	/**
+	 * Parses single command line, split into arguments by POSIX shell quoting rules
+	 *
+	 * @param commandLine to be parsed and checked
+	 * @return parsed values
+	 * @throws CommandLineException in case parsing failed
+	 */
+	public OptionValues parseValues(CharSequence commandLine) throws CommandLineException {
+
+		return parseValues(new ShellTokens(commandLine));
+	}
+
+	private static Settings toSettings(OptionValues values) throws CommandLineException {
+
+		// arguments after -- would be silently lost
+		if (!values.getArguments().isEmpty()) {
+			throw new CommandLineException("Unexpected arguments after --: " + String.join(", ", values.getArguments()));
+		}
+
+		values.validateAll(); // in case parsed lazily
+		return values.toSettings();
+	}
+
+	private OptionValues parseValues(Tokens tokens) throws CommandLineException {
+
+		if (!argumentFiles) {
+			return parseTokens(tokens);
+		}
+
+		try (ArgFileTokens expanded = new ArgFileTokens(tokens)) {
+			return parseTokens(expanded);
+		}
+	}
+
+	private OptionValues parseTokens(Tokens tokens) throws CommandLineException {
+
+		FileValidator validator = fileValidator;
+		OptionValues out = new OptionValues(spec, lazy, validator != null);
+
+		// phases are timed only when listener is set
+		ParseListener parseListener = listener;
+		try {
+			long start = parseListener != null ? System.nanoTime() : 0;
+			int count = parseTokens(tokens, out, parseListener);
+
+			if (parseListener != null) {
+				parseListener.tokens(count);
+				start = phase(parseListener, ParseListener.Phase.ARGUMENTS, start);
+			}
+
+			if (validator != null) {
+				validator.validate(spec, out);
+				start = phase(parseListener, ParseListener.Phase.FILES, start);
+			}
+
+			Sources sources = sources();
+			Settings config = loadConfigFile(out, sources, parseListener);
+			start = phase(parseListener, ParseListener.Phase.CONFIG_FILE, start);
+
+			resolve(out, config, sources);
+			start = phase(parseListener, ParseListener.Phase.DEFAULTS, start);
+
+			checkRequired(out);
+			phase(parseListener, ParseListener.Phase.REQUIRED, start);
+
+			return out;
+		}
+		catch (CommandLineException e) {
+
+			if (parseListener != null) {
+				parseListener.failed(e);
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Reports finished phase to listener
+	 *
+	 * @return end time of phase, start time of next phase
+	 */
+	private static long phase(ParseListener parseListener, ParseListener.Phase phase, long start) {
+
+		if (parseListener == null) {
+			return 0;
+		}
+
+		long time = System.nanoTime();
+		parseListener.phase(phase, time - start);
+		return time;
+	}
+
+	/**
+	 * @return environment and system properties to read options from, null if no option is read from either
+	 */
+	private Sources sources() {
+
+		SourceNames names = sourceNames;
+		if (names.isEmpty()) {
+			return null;
+		}
+
+		return new Sources(names, environment(), System.getProperties());
+	}
+
+	/**
+	 * Loads config file given in command line (or in system properties or environment)
+	 *
+	 * @return config file settings or null if no config file was given
+	 */
+	private Settings loadConfigFile(OptionValues out, Sources sources, ParseListener parseListener) throws CommandLineException {
+
+		// check if ConfigFileOption is provided and given
+		int config = spec.getConfigFile();
+		if (config < 0) {
+			return null;
+		}
+
+		if (!out.isGiven(config) && sources != null) {
+			sources.resolve(out, config);
+		}
+
+		if (!out.hasValue(config)) {
+			return null;
+		}
+
+		String file = (String) out.get(config);
+		ConfigFileCache cache = configCache;
+		Snapshots snapshots = this.snapshots;
+
+		Settings configSettings = null;
+		long bytesRead = 0;
+
+		Path snapshot = null;
+
+		if (snapshots != null) {
+
+			// opened snapshot costs a file stat per source, no path resolution, no mapping and no decoding
+			OpenSnapshot opened = openSnapshot;
+			if (opened != null && opened.snapshots == snapshots && opened.file.equals(file) && opened.snapshot.isCurrent()) {
+				configSettings = opened.settings;
+			}
+			else {
+
+				snapshot = snapshots.directory.resolve(SettingsSnapshot.fileName(file, snapshots.fingerprint));
+
+				SettingsSnapshot current = SettingsSnapshot.current(snapshot, snapshots.fingerprint);
+				if (current != null) {
+					configSettings = current.toSettings();
+					openSnapshot = new OpenSnapshot(snapshots, file, current, configSettings);
+				}
+			}
+		}
+
+		if (configSettings == null) {
+
+			ConfigFiles loaded = cache != null ? cache.read(file, spec, configReader) : configReader.read(file, spec);
+			configSettings = loaded.getSettings();
+			bytesRead = loaded.getBytesRead();
+
+			// settings of custom options are used as loaded, without snapshot
+			if (snapshot != null && SettingsSnapshot.canStore(configSettings)) {
+				try {
+					openSnapshot = new OpenSnapshot(snapshots, file, SettingsSnapshot.create(snapshot, snapshots.fingerprint, loaded), configSettings);
+				}
+				catch (CommandLineException e) {
+					// snapshot is a cache only, settings are already loaded
+					log.warn("Config file: " + file + ", used without snapshot: " + e.getMessage());
+				}
+			}
+		}
+
+		if (parseListener != null) {
+			parseListener.configFile(file, bytesRead);
+		}
+
+		return configSettings;
+	}
+
+	/**
+	 * Single pass over options not given in command line, each takes value from first source holding it:
+	 * system property, environment variable, config file or defaults (for this invocation only)
+	 */
+	private void resolve(OptionValues out, Settings config, Sources sources) throws CommandLineException {
+
+		Object[] values = defaults;
+		for (int ordinal = 0; ordinal < values.length; ordinal++) {
+
+			if (out.isGiven(ordinal)) {
+				continue;
+			}
+
+			if (sources != null && sources.resolve(out, ordinal)) {
+				continue;
+			}
+
+			if (config != null) {
+
+				String setting = spec.get(ordinal).getSetting();
+				if (config.containsKey(setting)) {
+					out.set(ordinal, copy(ordinal, config.get(setting)));
+					continue;
+				}
+			}
+
+			out.set(ordinal, copy(ordinal, values[ordinal]));
+		}
+	}
+
+	/**
+	 * Config file settings (cached or from snapshot) and defaults are shared among parses,
+	 * mutable values (multi value holders) and single use values (value sources) are copied
+	 */
+	@SuppressWarnings("unchecked")
+	private Object copy(int ordinal, Object value) {
+
+		return value == null ? null : ((CommandOption<Object>) spec.get(ordinal)).copy(value);
+	}
+
+	private void checkRequired(OptionValues out) throws CommandLineException {
+
+		// check if required options are present
+		for (int ordinal = 0; ordinal < spec.size(); ordinal++) {
+			CommandOption<?> option = spec.get(ordinal);
+			if (option.isRequired() && !out.hasValue(ordinal)) {
+				throw new CommandLineException("Missing required: " + option.toCommandString());
+			}
+		}
+	}
+
+	/**
+	 * Parses batch of argument lists in parallel on the common fork join pool
+	 *
+	 * @param arguments list of arguments to be parsed
+	 * @return results in same order as given arguments
+	 */
+	public List<ParseResult> parseAll(Collection<String[]> arguments) {
+
+		Assert.notNull(arguments, "Missing arguments!");
+
+		String[][] items = arguments.toArray(new String[0][]);
+		ParseResult[] results = new ParseResult[items.length];
+
+		IntStream.range(0, items.length).parallel().forEach(index -> results[index] = parseResult(items[index]));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Parses batch of argument lists in parallel on given pool
+	 *
+	 * @param arguments list of arguments to be parsed
+	 * @param pool      to parse in
+	 * @return results in same order as given arguments
+	 */
+	public List<ParseResult> parseAll(Collection<String[]> arguments, ForkJoinPool pool) {
+
+		Assert.notNull(pool, "Missing fork join pool!");
+		return pool.submit(() -> parseAll(arguments)).join();
+	}
+
+	/**
+	 * Parses stream of argument lists in parallel on the common fork join pool
+	 *
+	 * @param arguments stream of arguments to be parsed
+	 * @return results in encounter order of given stream
+	 */
+	public List<ParseResult> parseAll(Stream<String[]> arguments) {
+
+		Assert.notNull(arguments, "Missing arguments!");
+		return arguments.parallel().map(this::parseResult).collect(Collectors.toList());
+	}
+
+	private ParseResult parseResult(String[] arguments) {
+
+		try {
+			return new ParseResult(arguments, parse(arguments));
+		}
+		catch (CommandLineException e) {
+			return new ParseResult(arguments, e);
+		}
+		catch (RuntimeException e) {
+			// invalid default, failing custom option ... fails this line only, not whole batch
+			return new ParseResult(arguments, new CommandLineException(e.getMessage() != null ? e.getMessage() : e.toString()));
+		}
+	}
+
+	/**
+	 * Single pass over tokens, each token is either:
+	 * <ul>
+	 * <li>long option: --threads, or long option with value: --threads=64</li>
+	 * <li>short option: -t, short option with attached value: -t10, or clustered short flags: -abc</li>
+	 * <li>end of options: --, all following tokens are taken as arguments</li>
+	 * <li>value of last given option</li>
+	 * </ul>
+	 * Option names and attached values are resolved on token ranges, only values are copied into Strings
+	 *
+	 * @return number of tokens parsed
+	 */
+	private int parseTokens(Tokens tokens, OptionValues out, ParseListener parseListener) throws CommandLineException {
+
+		// option expecting a value (or flag given last)
+		int option = NONE;
+		int count = 0;
+		String unknown = null;
+		boolean endOfOptions = false;
+
+		boolean fail = failOnUnknownOption;
+		boolean abbreviate = abbreviations;
+
+		while (tokens.next()) {
+
+			count++;
+
+			CharSequence chars = tokens.chars();
+			int start = tokens.start();
+			int end = tokens.end();
+
+			if (endOfOptions) {
+				out.addArgument(tokens.string());
+				continue;
+			}
+
+			if (end > start && chars.charAt(start) == '-' && !isDashValue(option, chars, start, end)) { // is this an option or an argument ... ?
+
+				unknown = null;
+
+				if (end - start == 2 && chars.charAt(start + 1) == '-') { // "--"
+					endOfOptions = true;
+					option = NONE;
+					continue;
+				}
+
+				boolean isLong = end - start > 1 && chars.charAt(start + 1) == '-';
+				option = isLong ? longOption(tokens, out, abbreviate, parseListener) : shortOption(tokens, out, parseListener);
+
+				if (option >= 0 && spec.get(option) instanceof MultiValueOption) { // values follow
+					out.start(option);
+				}
+
+				if (option == UNKNOWN) {
+
+					option = NONE;
+					unknown = tokens.string();
+
+					if (parseListener != null) {
+						parseListener.unknownOption(unknown);
+					}
+
+					if (fail) {
+						throw unknownOption(unknown);
+					}
+				}
+				continue;
+			}
+
+			if (option < 0) {
+
+				if (unknown != null) { // value of unknown option
+					throw unknownOption(unknown);
+				}
+
+				if (parseListener != null) {
+					parseListener.unknownOption(tokens.string());
+				}
+
+				throw new CommandLineException("Unknown command line option: " + tokens.string());
+			}
+
+			parseValue(out, option, tokens.string(), parseListener);
+		}
+
+		checkArity(out);
+		return count;
+	}
+
+	/**
+	 * @return true if token starting with dash is value of option expecting a value:
+	 * a negative number: -t -5 (unless there is an option named -5), or standard input: -i -
+	 */
+	private boolean isDashValue(int option, CharSequence chars, int start, int end) {
+
+		if (option < 0 || !spec.get(option).hasArguments()) {
+			return false;
+		}
+
+		if (end - start == 1) {
+			return true;
+		}
+
+		return Character.isDigit(chars.charAt(start + 1)) && spec.findShort(chars, start, end) < 0;
+	}
+
+	/**
+	 * Checks number of values given to multi value options
+	 */
+	@SuppressWarnings("unchecked")
+	private void checkArity(OptionValues out) throws CommandLineException {
+
+		for (int ordinal = 0; ordinal < spec.size(); ordinal++) {
+
+			CommandOption<?> option = spec.get(ordinal);
+			if (option instanceof MultiValueOption && out.isGiven(ordinal)) {
+				((MultiValueOption<Object>) option).checkArity(out.get(ordinal));
+			}
+		}
+	}
+
+	/**
+	 * Resolves long option: --threads or --threads=64
+	 *
+	 * @return ordinal of option expecting value (or of flag), {@link #NONE} if value was given, {@link #UNKNOWN} if not found
+	 * @throws CommandLineException in case value is invalid or abbreviation matches more than one option
+	 */
+	private int longOption(Tokens tokens, OptionValues out, boolean abbreviate, ParseListener parseListener) throws CommandLineException {
+
+		CharSequence chars = tokens.chars();
+		int start = tokens.start();
+		int end = tokens.end();
+
+		int equals = start + 2;
+		while (equals < end && chars.charAt(equals) != '=') {
+			equals++;
+		}
+
+		int option = abbreviate ? spec.findLongPrefix(chars, start, equals) : spec.findLong(chars, start, equals);
+		if (option == NameTrie.AMBIGUOUS) {
+			throw new CommandLineException("Ambiguous option: " + chars.subSequence(start, equals) + ", could be: " + String.join(", ", spec.longMatches(chars, start, equals)));
+		}
+
+		if (option < 0) {
+			return UNKNOWN;
+		}
+
+		if (equals < end) { // --threads=64
+			parseValue(out, option, chars.subSequence(equals + 1, end).toString(), parseListener);
+			return NONE;
+		}
+
+		if (!spec.get(option).hasArguments()) {
+			// this is a no arg option ... add it to list (we might override this in the next step)
+			setFlag(out, option, tokens);
+		}
+
+		return option;
+	}
+
+	/**
+	 * Resolves short option: -t, -t10 or -abc
+	 *
+	 * @return ordinal of option expecting value (or of last flag), {@link #NONE} if value was given, {@link #UNKNOWN} if not found
+	 * @throws CommandLineException in case value is invalid
+	 */
+	private int shortOption(Tokens tokens, OptionValues out, ParseListener parseListener) throws CommandLineException {
+
+		CharSequence chars = tokens.chars();
+		int start = tokens.start();
+		int end = tokens.end();
+
+		// short names can be longer than one char, whole name is matched first
+		int option = spec.findShort(chars, start, end);
+		if (option >= 0) {
+
+			if (!spec.get(option).hasArguments()) {
+				setFlag(out, option, tokens);
+			}
+
+			return option;
+		}
+
+		// clustered flags, last option in cluster can take the rest of token as value: -vt10
+		// all options are resolved first, so nothing is set when cluster holds an unknown option
+		for (int index = start + 1; index < end; index++) {
+
+			int found = spec.findShort(chars, index, index + 1);
+			if (found < 0) {
+				return UNKNOWN;
+			}
+
+			if (spec.get(found).hasArguments()) {
+				break;
+			}
+		}
+
+		option = UNKNOWN;
+		for (int index = start + 1; index < end; index++) {
+
+			int found = spec.findShort(chars, index, index + 1);
+			if (spec.get(found).hasArguments()) {
+
+				if (index + 1 == end) {
+					return found;
+				}
+
+				parseValue(out, found, chars.subSequence(index + 1, end).toString(), parseListener);
+				return NONE;
+			}
+
+			setFlag(out, found, tokens);
+			option = found;
+		}
+
+		return option;
+	}
+
+	private void parseValue(OptionValues out, int option, String value, ParseListener parseListener) throws CommandLineException {
+
+		if (parseListener == null) {
+			out.parse(option, value);
+			return;
+		}
+
+		long start = System.nanoTime();
+		out.parse(option, value);
+		parseListener.optionParsed(spec.get(option), System.nanoTime() - start);
+	}
+
+	private CommandLineException unknownOption(String name) {
+
+		return new CommandLineException("Unknown command line option: " + name, spec.suggest(name));
+	}
+
+	/**
+	 * Sets value of option without arguments, boolean flags are set without parsing the token
+	 */
+	private void setFlag(OptionValues out, int option, Tokens tokens) throws CommandLineException {
+
+		if (spec.kind(option) == OptionValues.BOOL) {
+			out.set(option, Boolean.TRUE);
+		}
+		else {
+			out.parse(option, tokens.string());
+		}
+	}
+
+	/**
+	 * Environment and system properties taken for single parse
+	 */
+	private static final class Sources {
+
+		private final SourceNames names;
+
+		private final Map<String, String> variables;
+
+		private final Properties properties;
+
+		private Sources(SourceNames sourceNames, Map<String, String> environmentVariables, Properties systemProperties) {
+
+			names = sourceNames;
+			variables = environmentVariables;
+			properties = systemProperties;
+		}
+
+		/**
+		 * @return true if option value was found and parsed
+		 * @throws CommandLineException in case value is invalid
+		 */
+		private boolean resolve(OptionValues out, int ordinal) throws CommandLineException {
+
+			String value = names.value(ordinal, variables, properties);
+			if (value == null) {
+				return false;
+			}
+
+			// parsed now, a deferred value would fail later without naming its source
+			try {
+				out.parse(ordinal, value, false);
+			}
+			catch (CommandLineException e) {
+				throw new CommandLineException("Invalid " + names.source(ordinal, properties) + ": " + e.getMessage());
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Snapshot directory and options fingerprint, computed once when set
+	 */
+	private static final class Snapshots {
+
+		private final Path directory;
+
+		private final int version;
+
+		private final long fingerprint;
+
+		private Snapshots(Path snapshotDirectory, int snapshotVersion, long optionsFingerprint) {
+
+			directory = snapshotDirectory;
+			version = snapshotVersion;
+			fingerprint = optionsFingerprint;
+		}
+	}
+
+	/**
+	 * Opened snapshot with its settings, decoded once
+	 */
+	private static final class OpenSnapshot {
+
+		/**
+		 * Snapshots snapshot was opened with
+		 */
+		private final Snapshots snapshots;
+
+		/**
+		 * Config file as given
+		 */
+		private final String file;
+
+		private final SettingsSnapshot snapshot;
+
+		private final Settings settings;
+
+		private OpenSnapshot(Snapshots opened, String configFile, SettingsSnapshot openedSnapshot, Settings decoded) {
+
+			snapshots = opened;
+			file = configFile;
+			snapshot = openedSnapshot;
+			settings = decoded;
+		}
 	}
 }
@@ -0,0 +1,44 @@
+package com.zandero.cmd;
+
+/**
+ * Outcome of parsing a command line holding a subcommand: tool [global options] command [command options]
+ */
+public final class CommandResult {
+
+	private final OptionValues global;
+
+	private final String command;
+
+	private final OptionValues values;
+
+	CommandResult(OptionValues global, String command, OptionValues values) {
+
+		this.global = global;
+		this.command = command;
+		this.values = values;
+	}
+
+	/**
+	 * @return values of global options (given before subcommand)
+	 */
+	public OptionValues getGlobal() {
+
+		return global;
+	}
+
+	/**
+	 * @return name of given subcommand or null if none was given
+	 */
+	public String getCommand() {
+
+		return command;
+	}
+
+	/**
+	 * @return values of subcommand options or null if no subcommand was given
+	 */
+	public OptionValues getValues() {
+
+		return values;
+	}
+}
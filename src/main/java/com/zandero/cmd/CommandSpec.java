@@ -0,0 +1,442 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.ConfigFileOption;
+import com.zandero.utils.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, immutable set of options
+ * Each option is given an ordinal and indexed by short name, long name and setting, so lookups don't scan all options
+ */
+public final class CommandSpec {
+
+	private final CommandOption<?>[] options;
+
+	private final Map<CommandOption<?>, Integer> ordinals;
+
+	private final NameIndex shortNames;
+
+	private final NameIndex longNames;
+
+	private final NameIndex settings;
+
+	private final int configFile;
+
+	/**
+	 * Value kind and slot in values array of given kind by ordinal, see {@link OptionValues}
+	 */
+	private final byte[] kinds;
+
+	private final int[] slots;
+
+	private final int[] counts = new int[3];
+
+	private final OptionKey<?>[] keys;
+
+	private final String helpAppVersion;
+
+	private final String helpAppExample;
+
+	private volatile HelpLayout helpLayout;
+
+	private volatile NameTree nameTree;
+
+	private volatile NameTrie longPrefixes;
+
+	/**
+	 * Compiles spec from builder
+	 *
+	 * @param builder holding options
+	 * @throws IllegalArgumentException in case options overlap by name, long name or setting
+	 */
+	CommandSpec(CommandBuilder builder) {
+
+		Assert.notNull(builder, "Missing command builder!");
+
+		List<CommandOption<?>> list = builder.get();
+		options = list.toArray(new CommandOption<?>[0]);
+
+		ordinals = new IdentityHashMap<>(options.length);
+		shortNames = new NameIndex(options.length);
+		longNames = new NameIndex(options.length);
+		settings = new NameIndex(options.length);
+
+		kinds = new byte[options.length];
+		slots = new int[options.length];
+		keys = new OptionKey<?>[options.length];
+
+		int config = -1;
+		for (int ordinal = 0; ordinal < options.length; ordinal++) {
+
+			CommandOption<?> option = options[ordinal];
+			ordinals.put(option, ordinal);
+
+			if (option.getCommand() != null) {
+				shortNames.put(option.getCommand(), ordinal);
+			}
+
+			if (option.getLongCommand() != null) {
+				longNames.put(option.getLongCommand(), ordinal);
+			}
+
+			settings.put(option.getSetting(), ordinal);
+
+			byte kind = OptionValues.kind(option);
+			kinds[ordinal] = kind;
+			slots[ordinal] = counts[kind]++;
+			keys[ordinal] = key(this, ordinal, option);
+
+			if (config < 0 && option instanceof ConfigFileOption) {
+				config = ordinal;
+			}
+		}
+
+		configFile = config;
+		helpAppVersion = builder.getHelpAppVersion();
+		helpAppExample = builder.getHelpAppExample();
+	}
+
+	/**
+	 * @return number of options
+	 */
+	public int size() {
+
+		return options.length;
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return option with given ordinal
+	 */
+	public CommandOption<?> get(int ordinal) {
+
+		return options[ordinal];
+	}
+
+	/**
+	 * @return list of options in order as added to builder
+	 */
+	public List<CommandOption<?>> getOptions() {
+
+		return Collections.unmodifiableList(Arrays.asList(options));
+	}
+
+	/**
+	 * @param option to search for
+	 * @return ordinal of option or -1 if option is not part of spec
+	 */
+	public int ordinal(CommandOption<?> option) {
+
+		Integer ordinal = ordinals.get(option);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * Gets typed handle to read option value from {@link OptionValues}, keys should be obtained once and reused
+	 *
+	 * @param option to get key for
+	 * @param <T>    option value type
+	 * @return option key
+	 * @throws IllegalArgumentException in case option is not part of spec
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> OptionKey<T> key(CommandOption<T> option) {
+
+		int ordinal = ordinal(option);
+		Assert.isTrue(ordinal >= 0, "Option: " + option + " is not part of spec!");
+
+		return (OptionKey<T>) keys[ordinal];
+	}
+
+	private static <T> OptionKey<T> key(CommandSpec spec, int ordinal, CommandOption<T> option) {
+
+		return new OptionKey<>(spec, ordinal, option);
+	}
+
+	/**
+	 * Find option by short name
+	 *
+	 * @param argument short name, "-a" or "a"
+	 * @return found option or null if none found
+	 */
+	public CommandOption<?> findShort(String argument) {
+
+		Assert.notNullOrEmptyTrimmed(argument, "Missing short name!");
+		return option(findShort(argument, 0, argument.length()));
+	}
+
+	/**
+	 * Finds option by long name
+	 *
+	 * @param argument long name, "--all" or "all"
+	 * @return found option or null if none found
+	 */
+	public CommandOption<?> findLong(String argument) {
+
+		Assert.notNullOrEmptyTrimmed(argument, "Missing long name!");
+		return option(findLong(argument, 0, argument.length()));
+	}
+
+	/**
+	 * Finds option by setting
+	 *
+	 * @param key setting name
+	 * @return found option or null if none found
+	 */
+	public CommandOption<?> findBySetting(String key) {
+
+		Assert.notNullOrEmptyTrimmed(key, "Missing setting key!");
+		return option(settings.get(key));
+	}
+
+	/**
+	 * Finds option by setting, short or long name
+	 *
+	 * @param name to search for
+	 * @return found option or null if none found
+	 */
+	public CommandOption<?> findOption(String name) {
+
+		Assert.notNullOrEmptyTrimmed(name, "Missing name!");
+		return option(findOption(name, 0, name.length()));
+	}
+
+	/**
+	 * Suggests option names similar to given (mistyped) name
+	 * Names are indexed into a BK-tree on first call, so lookups don't compare against all options
+	 *
+	 * @param name as given, for instance: "--thrads"
+	 * @return up to three option names closest to given name: "--threads", or empty list if none is similar
+	 */
+	public List<String> suggest(String name) {
+
+		if (name == null || NameTree.maxDistance(name) == 0) {
+			return Collections.emptyList();
+		}
+
+		return nameTree().find(name, NameTree.maxDistance(name));
+	}
+
+	private NameTree nameTree() {
+
+		NameTree tree = nameTree;
+		if (tree == null) {
+
+			tree = new NameTree();
+			for (CommandOption<?> option : options) {
+
+				if (option.getLongCommand() != null) {
+					tree.add("--" + option.getLongCommand());
+				}
+
+				if (option.getCommand() != null) {
+					tree.add("-" + option.getCommand());
+				}
+			}
+
+			nameTree = tree;
+		}
+
+		return tree;
+	}
+
+	/**
+	 * @param chars holding short name with or without leading dash
+	 * @param start of name (inclusive)
+	 * @param end   of name (exclusive)
+	 * @return ordinal of option or -1 if none found
+	 */
+	int findShort(CharSequence chars, int start, int end) {
+
+		int found = shortNames.get(chars, start, end);
+		if (found < 0 && end - start > 1 && chars.charAt(start) == '-') {
+			found = shortNames.get(chars, start + 1, end);
+		}
+
+		return found;
+	}
+
+	/**
+	 * @param chars holding long name with or without leading dashes
+	 * @param start of name (inclusive)
+	 * @param end   of name (exclusive)
+	 * @return ordinal of option or -1 if none found
+	 */
+	int findLong(CharSequence chars, int start, int end) {
+
+		int found = longNames.get(chars, start, end);
+		if (found < 0 && end - start > 2 && chars.charAt(start) == '-' && chars.charAt(start + 1) == '-') {
+			found = longNames.get(chars, start + 2, end);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Finds option by long name or unambiguous abbreviation of long name
+	 * Long names are indexed into a trie on first call
+	 *
+	 * @param chars holding long name or abbreviation with or without leading dashes
+	 * @param start of name (inclusive)
+	 * @param end   of name (exclusive)
+	 * @return ordinal of option, {@link NameTrie#NONE} if none found or {@link NameTrie#AMBIGUOUS} if abbreviation matches more than one option
+	 */
+	int findLongPrefix(CharSequence chars, int start, int end) {
+
+		int found = findLong(chars, start, end);
+		if (found >= 0) {
+			return found;
+		}
+
+		if (end - start > 2 && chars.charAt(start) == '-' && chars.charAt(start + 1) == '-') {
+			start = start + 2;
+		}
+
+		return longPrefixes().find(chars, start, end);
+	}
+
+	/**
+	 * @param chars holding abbreviation of long name with or without leading dashes
+	 * @param start of name (inclusive)
+	 * @param end   of name (exclusive)
+	 * @return long names starting with given abbreviation: "--verbose", "--version"
+	 */
+	List<String> longMatches(CharSequence chars, int start, int end) {
+
+		if (end - start > 2 && chars.charAt(start) == '-' && chars.charAt(start + 1) == '-') {
+			start = start + 2;
+		}
+
+		List<String> out = new ArrayList<>();
+		for (int ordinal : longPrefixes().matches(chars, start, end)) {
+			out.add("--" + options[ordinal].getLongCommand());
+		}
+
+		return out;
+	}
+
+	private NameTrie longPrefixes() {
+
+		NameTrie trie = longPrefixes;
+		if (trie == null) {
+
+			String[] names = new String[options.length];
+			for (int ordinal = 0; ordinal < options.length; ordinal++) {
+				names[ordinal] = options[ordinal].getLongCommand();
+			}
+
+			trie = new NameTrie(names);
+			longPrefixes = trie;
+		}
+
+		return trie;
+	}
+
+	/**
+	 * @param chars holding setting, short or long name
+	 * @param start of name (inclusive)
+	 * @param end   of name (exclusive)
+	 * @return ordinal of option or -1 if none found
+	 */
+	int findOption(CharSequence chars, int start, int end) {
+
+		int found = settings.get(chars, start, end);
+		if (found < 0) {
+			found = findShort(chars, start, end);
+		}
+
+		if (found < 0) {
+			found = findLong(chars, start, end);
+		}
+
+		return found;
+	}
+
+	/**
+	 * @param key setting name
+	 * @return ordinal of option or -1 if none found
+	 */
+	int settingOrdinal(CharSequence key) {
+
+		return settings.get(key);
+	}
+
+	/**
+	 * @return config file option ordinal or -1 if not configured
+	 */
+	int getConfigFile() {
+
+		return configFile;
+	}
+
+	/**
+	 * @return config file option or null if not configured
+	 */
+	public CommandOption<?> getConfigFileOption() {
+
+		return option(configFile);
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return kind of option value
+	 */
+	byte kind(int ordinal) {
+
+		return kinds[ordinal];
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return index of option value in values array of option kind
+	 */
+	int slot(int ordinal) {
+
+		return slots[ordinal];
+	}
+
+	/**
+	 * @param kind of option value
+	 * @return number of options of given kind
+	 */
+	int count(byte kind) {
+
+		return counts[kind];
+	}
+
+	String getHelpAppVersion() {
+
+		return helpAppVersion;
+	}
+
+	String getHelpAppExample() {
+
+		return helpAppExample;
+	}
+
+	/**
+	 * @return help screen layout, computed on first call
+	 */
+	HelpLayout helpLayout() {
+
+		HelpLayout layout = helpLayout;
+		if (layout == null) {
+			layout = new HelpLayout(this);
+			helpLayout = layout;
+		}
+
+		return layout;
+	}
+
+	private CommandOption<?> option(int ordinal) {
+
+		return ordinal < 0 ? null : options[ordinal];
+	}
+}
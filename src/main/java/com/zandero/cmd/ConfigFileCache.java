@@ -0,0 +1,181 @@
+package com.zandero.cmd;
+
+import com.zandero.settings.Settings;
+import com.zandero.utils.Assert;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed config files
+ * Cached settings are reused as long as size and last modified time of config file and all included files are unchanged
+ * and no file was added to or removed from included directories
+ * (and content checksum if enabled), so an unchanged file costs a single file stat per file instead of a read and parse
+ *
+ * Cached settings are shared among callers and must not be modified, parser copies mutable and single use values into each result
+ */
+public class ConfigFileCache {
+
+	/**
+	 * Default number of cached files
+	 */
+	public static final int DEFAULT_SIZE = 16;
+
+	private final boolean verifyContent;
+
+	private final Map<String, CachedFile> entries;
+
+	/**
+	 * Creates cache holding up to {@link #DEFAULT_SIZE} files validated by size and last modified time
+	 */
+	public ConfigFileCache() {
+
+		this(DEFAULT_SIZE, false);
+	}
+
+	/**
+	 * @param maxEntries    max number of cached files, least recently used file is dropped first
+	 * @param verifyContent true to also compare content checksum (file is read but not parsed),
+	 *                      catches changes made within last modified time resolution that keep file size
+	 */
+	public ConfigFileCache(int maxEntries, boolean verifyContent) {
+
+		Assert.isTrue(maxEntries > 0, "Expected at least one cache entry!");
+
+		this.verifyContent = verifyContent;
+		entries = new LinkedHashMap<String, CachedFile>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedFile> eldest) {
+
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns cached settings or loads file if not cached or changed
+	 *
+	 * @param file   to get settings from
+	 * @param spec   compiled options
+	 * @param reader to load file with if needed
+	 * @return list of settings
+	 * @throws CommandLineException in case file could not be loaded
+	 */
+	public Settings load(String file, CommandSpec spec, ConfigFileReader reader) throws CommandLineException {
+
+		return read(file, spec, reader).getSettings();
+	}
+
+	/**
+	 * Same as {@link #load(String, CommandSpec, ConfigFileReader)}
+	 *
+	 * @return cached settings (reporting no bytes read) or settings loaded from file
+	 */
+	ConfigFiles read(String file, CommandSpec spec, ConfigFileReader reader) throws CommandLineException {
+
+		Assert.notNullOrEmptyTrimmed(file, "Missing file!");
+		Assert.notNull(spec, "Missing command spec!");
+		Assert.notNull(reader, "Missing config file reader!");
+
+		CachedFile entry;
+		synchronized (entries) {
+			entry = entries.get(file);
+		}
+
+		if (entry != null && entry.spec == spec && entry.isCurrent()) {
+			return entry.cached;
+		}
+
+		ConfigFiles loaded = reader.read(file, spec, verifyContent);
+
+		synchronized (entries) {
+			entries.put(file, new CachedFile(spec, loaded));
+		}
+
+		return loaded;
+	}
+
+	/**
+	 * @return number of cached files
+	 */
+	public int size() {
+
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Removes all cached files
+	 */
+	public void clear() {
+
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	private static long checksum(Path path) throws IOException {
+
+		try (MappedInput input = new MappedInput(path)) {
+			return input.checksum();
+		}
+	}
+
+	/**
+	 * Settings with stamps of all files read (config file and included files)
+	 */
+	private static final class CachedFile {
+
+		private final CommandSpec spec;
+
+		/**
+		 * Loaded settings as returned on cache hit, no bytes read
+		 */
+		private final ConfigFiles cached;
+
+		private final List<FileStamp> files;
+
+		/**
+		 * Content checksum by file taken when read, null if not verified
+		 */
+		private final long[] checksums;
+
+		private CachedFile(CommandSpec spec, ConfigFiles loaded) {
+
+			this.spec = spec;
+			files = loaded.getFiles();
+			checksums = loaded.getChecksums();
+			cached = new ConfigFiles(loaded.getSettings(), files, checksums, 0);
+		}
+
+		/**
+		 * @return true if none of the files has changed
+		 */
+		private boolean isCurrent() {
+
+			for (int index = 0; index < files.size(); index++) {
+
+				FileStamp stamp = files.get(index);
+				if (!stamp.isCurrent()) {
+					return false;
+				}
+
+				try {
+					if (checksums != null && !stamp.isDirectory() && checksum(stamp.getPath()) != checksums[index]) {
+						return false;
+					}
+				}
+				catch (IOException e) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
@@ -1,118 +1,528 @@
 package com.zandero.cmd;
 
 import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.MultiValueOption;
 import com.zandero.settings.Settings;
 import com.zandero.utils.Assert;
-import com.zandero.utils.Pair;
-import com.zandero.utils.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Loads options from a config file
+ * Format is chosen by file extension, or by sniffing first bytes of file, see {@link ConfigFormat}.
+ * File is streamed from a memory mapped buffer, each value is matched against options as it is read
+ *
+ * A directory (conf.d) stands for all files in it, ordered by name.
+ * An {@link #INCLUDE} entry reads given file or directory, its values override values of including file.
  */
 public class ConfigFileReader {
 
 	private static final Logger log = LoggerFactory.getLogger(ConfigFileReader.class);
 
+	/**
+	 * name = value lines (.properties, .cfg, .conf and any file not recognized as other format)
+	 */
+	public static final ConfigFormat PROPERTIES = new PropertiesFormat();
+
+	/**
+	 * JSON (.json or file starting with '{')
+	 */
+	public static final ConfigFormat JSON = new JsonFormat();
+
+	/**
+	 * Simple YAML (.yaml, .yml or file starting with "---" or "name:")
+	 */
+	public static final ConfigFormat YAML = new YamlFormat();
+
+	/**
+	 * Name of entry including another config file or directory of files, path is relative to including file
+	 */
+	public static final String INCLUDE = "include";
+
+	/**
+	 * Number of bytes given to {@link ConfigFormat#sniff(byte[], int)}
+	 */
+	static final int HEAD = 512;
+
+	/**
+	 * Formats in order of precedence, properties is last as it accepts any content
+	 */
+	private final List<ConfigFormat> formats = new CopyOnWriteArrayList<>(Arrays.asList(JSON, YAML, PROPERTIES));
+
+	/**
+	 * Adds format taking precedence over already known formats
+	 *
+	 * @param format to add
+	 */
+	public void addFormat(ConfigFormat format) {
+
+		Assert.notNull(format, "Missing config format!");
+		formats.add(0, format);
+	}
+
 	/**
 	 * Loads name value pairs directly from given file ... adding them as settings
 	 *
-	 * @param file to get settings from
+	 * @param file    to get settings from
+	 * @param builder holding options
 	 * @return list of settings
 	 */
 	public Settings load(String file, CommandBuilder builder) throws CommandLineException {
 
-		Scanner scanner = null;
-		try {
+		Assert.notNull(builder, "Missing command builder!");
+		return load(file, builder.build());
+	}
+
+	/**
+	 * Loads name value pairs directly from given file ... adding them as settings
+	 *
+	 * @param file to get settings from, or directory of files
+	 * @param spec compiled options
+	 * @return list of settings
+	 */
+	public Settings load(String file, CommandSpec spec) throws CommandLineException {
+
+		return read(file, spec).getSettings();
+	}
+
+	/**
+	 * Reads given file and all files it includes
+	 * Files are read level by level, files of same level are parsed in parallel, each file is parsed once.
+	 * Settings are then merged depth first: values of file, then values of included files in order given,
+	 * so later values override earlier ones regardless of which file was parsed first.
+	 * Values of multi value options are accumulated across files in same order, as within a single file.
+	 *
+	 * @param file to get settings from, or directory of files
+	 * @param spec compiled options
+	 * @return settings and stamps of all files read
+	 */
+	ConfigFiles read(String file, CommandSpec spec) throws CommandLineException {
+
+		return read(file, spec, false);
+	}
+
+	/**
+	 * Same as {@link #read(String, CommandSpec)}
+	 *
+	 * @param checksums true to also take content checksum of each file when read
+	 */
+	ConfigFiles read(String file, CommandSpec spec, boolean checksums) throws CommandLineException {
+
+		Assert.notNull(spec, "Missing command spec!");
+
+		File config = new File(file);
+		Assert.isTrue(config.exists(), "File '" + file + "' does not exist");
+		Assert.isTrue(config.canRead(), "File '" + file + "' cannot be read");
+
+		List<FileStamp> directories = new ArrayList<>();
+		List<Path> roots = files(config.toPath(), file, directories);
+
+		Map<Path, Fragment> fragments = new HashMap<>();
+		List<Path> level = roots;
 
-			File config = new File(file);
-			Assert.isTrue(config.exists(), "File '" + file + "' does not exist");
-			Assert.isFalse(config.isDirectory(), "File '" + file + "' is a directory");
-			Assert.isTrue(config.canRead(), "File '" + file + "' cannot be read");
+		while (!level.isEmpty()) {
 
-			scanner = new Scanner(config);
+			List<Fragment> parsed = parse(level, spec, checksums);
 
-			ArrayList<String> list = new ArrayList<>();
-			while (scanner.hasNextLine()) {
-				list.add(scanner.nextLine());
+			Set<Path> next = new LinkedHashSet<>();
+			for (Fragment fragment : parsed) {
+				fragments.put(fragment.stamp.getPath(), fragment);
 			}
 
-			return parse(list, builder);
+			for (Fragment fragment : parsed) {
+				for (Path include : fragment.includes) {
+					if (!fragments.containsKey(include)) {
+						next.add(include);
+					}
+				}
+			}
+
+			level = new ArrayList<>(next);
 		}
-		catch (FileNotFoundException e) {
 
-			log.error("File not found: " + e.getMessage());
-			throw new CommandLineException("File: '" + file + "', not found!");
+		Settings settings = new Settings();
+		List<FileStamp> stamps = new ArrayList<>(directories);
+		Set<Path> merged = new HashSet<>();
+		Deque<Path> chain = new ArrayDeque<>();
+
+		for (Path root : roots) {
+			merge(root, spec, fragments, chain, merged, settings, stamps);
+		}
+
+		long bytesRead = 0;
+		for (Fragment fragment : fragments.values()) {
+			bytesRead += fragment.stamp.getSize();
 		}
-		finally {
 
-			if (scanner != null) {
-				scanner.close();
+		long[] sums = null;
+		if (checksums) {
+
+			sums = new long[stamps.size()];
+			for (int index = 0; index < sums.length; index++) {
+
+				FileStamp stamp = stamps.get(index);
+				sums[index] = stamp.isDirectory() ? 0 : fragments.get(stamp.getPath()).checksum;
 			}
 		}
+
+		return new ConfigFiles(settings, stamps, sums, bytesRead);
 	}
 
 	/**
-	 * Expects name = value in each line
-	 * ignores lines starting with '#' or '//'
+	 * Adds settings of file and then of files it includes
 	 *
-	 * @param list of strings
+	 * @param chain  files including given file
+	 * @param merged files already merged, a file included twice is merged once at first occurrence
 	 */
-	private Settings parse(ArrayList<String> list, CommandBuilder builder) throws CommandLineException {
+	private static void merge(Path path, CommandSpec spec, Map<Path, Fragment> fragments, Deque<Path> chain, Set<Path> merged, Settings settings,
+	                          List<FileStamp> stamps) throws CommandLineException {
 
-		Settings settings = new Settings();
+		if (chain.contains(path)) {
 
-		if (list != null && list.size() > 0) {
+			StringBuilder cycle = new StringBuilder();
+			for (Path item : chain) {
+				cycle.append(item).append(" -> ");
+			}
 
-			for (String line : list) {
+			throw new CommandLineException("Config file include cycle: " + cycle + path);
+		}
 
-				line = StringUtils.trimToNull(line);
-				if (line != null && !isComment(line)) {
-					String[] items = line.split("=");
+		if (!merged.add(path)) {
+			return;
+		}
 
-					if (items.length == 2) {
-						String name = items[0];
-						String value = items[1];
+		Fragment fragment = fragments.get(path);
+		for (Map.Entry<String, Object> entry : fragment.settings.entrySet()) {
 
-						Pair<String, Object> found = parseAndAdd(builder, name, value);
+			String setting = entry.getKey();
+			List<String> arguments = fragment.arguments.get(setting);
+			Object given = arguments == null ? null : settings.get(setting);
 
-						if (found != null) {
-							settings.put(found.getKey(), found.getValue());
-						}
-					}
+			settings.put(setting, given == null ? entry.getValue() : append(spec, setting, given, arguments));
+		}
+
+		stamps.add(fragment.stamp);
+		stamps.addAll(fragment.directories);
+
+		chain.addLast(path);
+		for (Path include : fragment.includes) {
+			merge(include, spec, fragments, chain, merged, settings, stamps);
+		}
+
+		chain.removeLast();
+	}
+
+	/**
+	 * Adds arguments of multi value option given in included file to values of including files
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object append(CommandSpec spec, String setting, Object given, List<String> arguments) throws CommandLineException {
+
+		MultiValueOption<Object> option = (MultiValueOption<Object>) spec.get(spec.settingOrdinal(setting));
+		for (String argument : arguments) {
+			given = option.append(given, argument);
+		}
+
+		return given;
+	}
+
+	/**
+	 * Parses given files, in parallel if more than one
+	 *
+	 * @return parsed files in order given
+	 */
+	private List<Fragment> parse(List<Path> files, CommandSpec spec, boolean checksums) throws CommandLineException {
+
+		if (files.size() == 1) {
+			return Collections.singletonList(parse(files.get(0), spec, checksums));
+		}
+
+		List<Callable<Fragment>> tasks = new ArrayList<>(files.size());
+		for (Path path : files) {
+			tasks.add(() -> parse(path, spec, checksums));
+		}
+
+		List<Fragment> out = new ArrayList<>(files.size());
+		try {
+			for (Future<Fragment> result : FileValidator.shared().invokeAll(tasks)) {
+				out.add(result.get());
+			}
+		}
+		catch (ExecutionException e) {
+
+			if (e.getCause() instanceof CommandLineException) {
+				throw (CommandLineException) e.getCause();
+			}
+
+			if (e.getCause() instanceof IllegalArgumentException) {
+				throw (IllegalArgumentException) e.getCause();
+			}
+
+			throw new CommandLineException("Failed to read config file: " + e.getCause().getMessage());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CommandLineException("Interrupted while reading config files!");
+		}
+
+		return out;
+	}
+
+	private Fragment parse(Path path, CommandSpec spec, boolean checksums) throws CommandLineException {
+
+		String file = path.toString();
+
+		try (MappedInput mapped = new MappedInput(path)) {
+
+			// stamp and checksum are taken before file is parsed, a change while parsing invalidates cached settings
+			FileStamp stamp = FileStamp.of(path);
+			long checksum = checksums ? mapped.checksum() : 0;
+
+			Input input = new Input(mapped, file);
+			ConfigFormat format = format(file, input);
+
+			Settings settings = new Settings();
+			Map<String, List<String>> arguments = new HashMap<>();
+			List<String> includes = new ArrayList<>();
+
+			format.parse(input, (name, start, end, value) -> {
+
+				if (isInclude(name, start, end)) {
+					includes.add(value);
 				}
+				else {
+					set(spec, settings, arguments, name, start, end, value);
+				}
+			});
+
+			List<Path> included = new ArrayList<>();
+			List<FileStamp> directories = new ArrayList<>();
+			for (String include : includes) {
+
+				Path resolved = path.resolveSibling(include);
+				if (!Files.exists(resolved)) {
+					throw new CommandLineException("Included config file '" + include + "' does not exist, included from: " + file);
+				}
+
+				included.addAll(files(resolved, include, directories));
+			}
+
+			return new Fragment(stamp, checksum, settings, arguments, included, directories);
+		}
+		catch (NoSuchFileException e) {
+
+			log.error("File not found: " + e.getMessage());
+			throw new CommandLineException("File: '" + file + "', not found!");
+		}
+		catch (IOException e) {
+
+			log.error("Failed to read file: " + e.getMessage());
+			throw new CommandLineException("File: '" + file + "', could not be read: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return real path of file, or real paths of regular files in directory ordered by name, hidden files are skipped
+	 */
+	private static List<Path> files(Path path, String name, List<FileStamp> directories) throws CommandLineException {
+
+		try {
+			Path real = path.toRealPath();
+			if (!Files.isDirectory(real)) {
+				return Collections.singletonList(real);
 			}
+
+			List<Path> out = FileStamp.list(real);
+			directories.add(FileStamp.directory(real, out));
+			return out;
 		}
+		catch (IOException e) {
 
-		return settings;
+			log.error("Failed to list files: " + e.getMessage());
+			throw new CommandLineException("File: '" + name + "', could not be read: " + e.getMessage());
+		}
 	}
 
-	private Pair<String, Object> parseAndAdd(CommandBuilder cmdBuilder, String name, String value) throws CommandLineException {
+	private static boolean isInclude(CharSequence name, int start, int end) {
+
+		if (end - start != INCLUDE.length()) {
+			return false;
+		}
 
-		name = StringUtils.trim(name);
+		for (int index = start; index < end; index++) {
+			if (name.charAt(index) != INCLUDE.charAt(index - start)) {
+				return false;
+			}
+		}
 
-		CommandOption found = cmdBuilder.findOption(name);
+		return true;
+	}
 
-		// OK setting exits ... check and return
-		if (found != null) {
+	/**
+	 * @return first format accepting file by extension or first format accepting file content
+	 */
+	private ConfigFormat format(String file, Input input) {
 
-			value = StringUtils.trim(value);
-			Object optionValue = found.parse(value);
+		String name = file.toLowerCase(Locale.ROOT);
+		for (ConfigFormat format : formats) {
+			if (format.accepts(name)) {
+				return format;
+			}
+		}
 
-			return new Pair<>(found.getSetting(), optionValue);
+		for (ConfigFormat format : formats) {
+			if (format.sniff(input.head, input.headLength)) {
+				return format;
+			}
 		}
 
-		return null;
+		return PROPERTIES;
 	}
 
-	private boolean isComment(String line) {
+	/**
+	 * Matches name against options, parses value of matching option, values of multi value options are accumulated
+	 * and their arguments kept, to be added to values of including files
+	 */
+	@SuppressWarnings("unchecked")
+	private static void set(CommandSpec spec, Settings settings, Map<String, List<String>> arguments, CharSequence name, int start, int end, String value)
+		throws CommandLineException {
+
+		int ordinal = spec.findOption(name, start, end);
+		if (ordinal < 0) {
+			return;
+		}
 
-		return line != null && (line.startsWith("#") || line.startsWith("//"));
+		// OK setting exits ... check and add
+		CommandOption<?> found = spec.get(ordinal);
+		Object given = found instanceof MultiValueOption ? settings.get(found.getSetting()) : null;
+
+		Object optionValue = given != null ? ((MultiValueOption<Object>) found).append(given, value) : found.parse(value);
+		settings.put(found.getSetting(), optionValue);
+
+		if (found instanceof MultiValueOption) {
+			arguments.computeIfAbsent(found.getSetting(), setting -> new ArrayList<>()).add(value);
+		}
+	}
+
+	/**
+	 * Reports value to handler, ASCII names are given directly from buffer, no String is created for unknown names
+	 */
+	static void value(ConfigFormat.Handler handler, ByteChars chars, int start, int end, String value) throws CommandLineException {
+
+		if (chars.isAscii(start, end)) {
+			handler.value(chars, start, end, value);
+		}
+		else {
+			String name = chars.toString(start, end);
+			handler.value(name, 0, name.length(), value);
+		}
+	}
+
+	/**
+	 * Parsed file with resolved includes
+	 */
+	private static final class Fragment {
+
+		private final FileStamp stamp;
+
+		/**
+		 * Content checksum taken when read, 0 if not requested
+		 */
+		private final long checksum;
+
+		private final Settings settings;
+
+		/**
+		 * Arguments of multi value options by setting, in order given
+		 */
+		private final Map<String, List<String>> arguments;
+
+		private final List<Path> includes;
+
+		/**
+		 * Stamps of included directories
+		 */
+		private final List<FileStamp> directories;
+
+		private Fragment(FileStamp stamp, long checksum, Settings settings, Map<String, List<String>> arguments, List<Path> includes, List<FileStamp> directories) {
+
+			this.stamp = stamp;
+			this.checksum = checksum;
+			this.settings = settings;
+			this.arguments = arguments;
+			this.includes = includes;
+			this.directories = directories;
+		}
+	}
+
+	/**
+	 * File content with first bytes read ahead to detect format, UTF-8 byte order mark is skipped
+	 */
+	private static final class Input implements ConfigFormat.Input {
+
+		private final MappedInput input;
+
+		private final String name;
+
+		private final byte[] head = new byte[HEAD];
+
+		private int headLength;
+
+		private int index;
+
+		private Input(MappedInput mapped, String fileName) throws IOException {
+
+			input = mapped;
+			name = fileName;
+
+			int value;
+			while (headLength < head.length && (value = input.read()) >= 0) {
+				head[headLength++] = (byte) value;
+			}
+
+			// UTF-8 BOM is EF BB BF ... file can't start with EF otherwise
+			if (headLength >= 3 && (head[0] & 0xff) == 0xEF && (head[1] & 0xff) == 0xBB && (head[2] & 0xff) == 0xBF) {
+				System.arraycopy(head, 3, head, 0, headLength - 3);
+				headLength -= 3;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			if (index < headLength) {
+				return head[index++] & 0xff;
+			}
+
+			return input.read();
+		}
+
+		@Override
+		public String getName() {
+
+			return name;
+		}
 	}
 }
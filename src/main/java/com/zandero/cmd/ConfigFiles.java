@@ -0,0 +1,63 @@
+package com.zandero.cmd;
+
+import com.zandero.settings.Settings;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings loaded from config file and files it includes, with stamps of all files and directories read
+ */
+final class ConfigFiles {
+
+	private final Settings settings;
+
+	private final List<FileStamp> files;
+
+	private final long[] checksums;
+
+	private final long bytesRead;
+
+	/**
+	 * @param settings  loaded
+	 * @param files     stamps of files and directories read
+	 * @param checksums content checksum by file taken when read, null if not taken
+	 * @param bytesRead number of bytes read to load settings, 0 if taken from cache
+	 */
+	ConfigFiles(Settings settings, List<FileStamp> files, long[] checksums, long bytesRead) {
+
+		this.settings = settings;
+		this.files = Collections.unmodifiableList(files);
+		this.checksums = checksums;
+		this.bytesRead = bytesRead;
+	}
+
+	Settings getSettings() {
+
+		return settings;
+	}
+
+	/**
+	 * @return files in order merged, directories follow the file including them
+	 */
+	List<FileStamp> getFiles() {
+
+		return files;
+	}
+
+	/**
+	 * @return content checksum of each file in {@link #getFiles()} order (0 for directories), null if not taken
+	 */
+	long[] getChecksums() {
+
+		return checksums;
+	}
+
+	/**
+	 * @return number of bytes read to load settings, 0 if settings were cached
+	 */
+	long getBytesRead() {
+
+		return bytesRead;
+	}
+}
@@ -0,0 +1,68 @@
+package com.zandero.cmd;
+
+import java.io.IOException;
+
+/**
+ * Config file format, see {@link ConfigFileReader#addFormat(ConfigFormat)}
+ * Formats stream name value pairs straight to handler while reading, without building a document first
+ */
+public interface ConfigFormat {
+
+	/**
+	 * @param fileName name of config file
+	 * @return true if file is of this format by extension
+	 */
+	boolean accepts(String fileName);
+
+	/**
+	 * Called for files not accepted by extension by any format
+	 *
+	 * @param head   first bytes of file (after byte order mark)
+	 * @param length number of bytes in head
+	 * @return true if file content looks like this format
+	 */
+	boolean sniff(byte[] head, int length);
+
+	/**
+	 * Reads file, reporting each value as read
+	 * Nested names are joined with dots: server.port, each item of a list is reported under name of list
+	 *
+	 * @param input   file content
+	 * @param handler to receive values
+	 * @throws IOException          in case file could not be read
+	 * @throws CommandLineException in case file is not valid or value is rejected by handler
+	 */
+	void parse(Input input, Handler handler) throws IOException, CommandLineException;
+
+	/**
+	 * Config file content
+	 */
+	interface Input {
+
+		/**
+		 * @return next byte (0 - 255) or -1 when end of file is reached
+		 * @throws IOException in case file could not be read
+		 */
+		int read() throws IOException;
+
+		/**
+		 * @return name of file
+		 */
+		String getName();
+	}
+
+	/**
+	 * Receives values as read
+	 */
+	interface Handler {
+
+		/**
+		 * @param name  holding name of value, valid only during call
+		 * @param start of name (inclusive)
+		 * @param end   of name (exclusive)
+		 * @param value as given in file
+		 * @throws CommandLineException in case value is not valid
+		 */
+		void value(CharSequence name, int start, int end, String value) throws CommandLineException;
+	}
+}
@@ -0,0 +1,139 @@
+package com.zandero.cmd;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Size and last modified time of a file, taken before file is read
+ * Directory is stamped by hash of its listing, so adding or removing a file is detected
+ */
+final class FileStamp {
+
+	/**
+	 * Modified time of directory stamps, size holds hash of listed file names
+	 */
+	static final long DIRECTORY = -1;
+
+	private final Path path;
+
+	private final long size;
+
+	private final long modified;
+
+	FileStamp(Path path, long size, long modified) {
+
+		this.path = path;
+		this.size = size;
+		this.modified = modified;
+	}
+
+	/**
+	 * @param path of file
+	 * @return current stamp of file
+	 * @throws IOException in case attributes can't be read
+	 */
+	static FileStamp of(Path path) throws IOException {
+
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		return new FileStamp(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+	}
+
+	/**
+	 * @param directory listed
+	 * @param entries   files listed in directory, as given by {@link #list(Path)}
+	 * @return stamp of directory
+	 */
+	static FileStamp directory(Path directory, List<Path> entries) {
+
+		return new FileStamp(directory, hash(entries), DIRECTORY);
+	}
+
+	/**
+	 * @param directory to list
+	 * @return regular non hidden files in directory sorted by name
+	 * @throws IOException in case directory can't be listed
+	 */
+	static List<Path> list(Path directory) throws IOException {
+
+		List<Path> out = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path item : stream) {
+				if (Files.isRegularFile(item) && !item.getFileName().toString().startsWith(".")) {
+					out.add(item.toRealPath());
+				}
+			}
+		}
+
+		out.sort(Comparator.comparing(item -> item.getFileName().toString()));
+		return out;
+	}
+
+	Path getPath() {
+
+		return path;
+	}
+
+	long getSize() {
+
+		return size;
+	}
+
+	long getModified() {
+
+		return modified;
+	}
+
+	boolean isDirectory() {
+
+		return modified == DIRECTORY;
+	}
+
+	/**
+	 * @return true if file size and last modified time (or directory listing) are unchanged, false if changed or not readable
+	 */
+	boolean isCurrent() {
+
+		try {
+			if (isDirectory()) {
+				return Files.isDirectory(path) && hash(list(path)) == size;
+			}
+
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return attributes.size() == size && attributes.lastModifiedTime().toMillis() == modified;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * FNV-1a hash of file names
+	 */
+	private static long hash(List<Path> entries) {
+
+		long hash = 0xcbf29ce484222325L;
+		for (Path entry : entries) {
+
+			String name = entry.getFileName().toString();
+			for (int index = 0; index < name.length(); index++) {
+				hash = (hash ^ name.charAt(index)) * 0x100000001b3L;
+			}
+
+			hash = (hash ^ '/') * 0x100000001b3L;
+		}
+
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+
+		return path.toString();
+	}
+}
@@ -0,0 +1,150 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.FileOption;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks arguments of all file options given in a single parse concurrently, with a deadline
+ * so a hanging file system fails the parse instead of blocking it
+ */
+final class FileValidator {
+
+	private final ExecutorService executor;
+
+	private final long timeout;
+
+	private final TimeUnit unit;
+
+	FileValidator(ExecutorService executor, long timeout, TimeUnit unit) {
+
+		this.executor = executor == null ? Shared.EXECUTOR : executor;
+		this.timeout = timeout;
+		this.unit = unit;
+	}
+
+	/**
+	 * @param spec   of options
+	 * @param option ordinal
+	 * @return true if option arguments are validated by this validator
+	 */
+	static boolean validates(CommandSpec spec, int option) {
+
+		return spec.get(option) instanceof FileOption && option != spec.getConfigFile();
+	}
+
+	/**
+	 * Parses deferred arguments of file options
+	 *
+	 * @param spec of options
+	 * @param out  holding deferred arguments
+	 * @throws CommandLineException in case file is not valid or checks did not finish in time
+	 */
+	void validate(CommandSpec spec, OptionValues out) throws CommandLineException {
+
+		List<Integer> ordinals = new ArrayList<>();
+		List<Check> checks = new ArrayList<>();
+
+		for (int ordinal = 0; ordinal < spec.size(); ordinal++) {
+
+			String argument = out.getDeferred(ordinal);
+			if (argument != null && validates(spec, ordinal) && !out.isLazy(ordinal)) {
+				ordinals.add(ordinal);
+				checks.add(new Check(spec.get(ordinal), argument));
+			}
+		}
+
+		if (checks.isEmpty()) {
+			return;
+		}
+
+		List<Future<Object>> results;
+		try {
+			results = executor.invokeAll(checks, timeout, unit); // unfinished checks are cancelled
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CommandLineException("Interrupted while checking files!");
+		}
+
+		List<String> timedOut = new ArrayList<>();
+		for (int index = 0; index < results.size(); index++) {
+
+			try {
+				out.set(ordinals.get(index), results.get(index).get());
+			}
+			catch (CancellationException e) {
+				timedOut.add(checks.get(index).argument);
+			}
+			catch (ExecutionException e) {
+
+				if (e.getCause() instanceof CommandLineException) {
+					throw (CommandLineException) e.getCause();
+				}
+
+				throw new CommandLineException("Failed to check file: " + checks.get(index).argument + ", " + e.getCause().getMessage());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CommandLineException("Interrupted while checking files!");
+			}
+		}
+
+		if (!timedOut.isEmpty()) {
+			throw new CommandLineException("File check did not finish in " + unit.toMillis(timeout) + " ms: " + String.join(", ", timedOut));
+		}
+	}
+
+	/**
+	 * @return default executor, shared with config file reader
+	 */
+	static ExecutorService shared() {
+
+		return Shared.EXECUTOR;
+	}
+
+	private static final class Check implements Callable<Object> {
+
+		private final CommandOption<?> option;
+
+		private final String argument;
+
+		private Check(CommandOption<?> option, String argument) {
+
+			this.option = option;
+			this.argument = argument;
+		}
+
+		@Override
+		public Object call() throws CommandLineException {
+
+			return option.parse(argument);
+		}
+	}
+
+	/**
+	 * Default executor, created on first use
+	 * Threads are created as needed (a hanging check doesn't block others) and are daemons, so they don't keep application running
+	 */
+	private static final class Shared {
+
+		private static final AtomicInteger count = new AtomicInteger();
+
+		private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+
+			Thread thread = new Thread(runnable, "cmd-file-check-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
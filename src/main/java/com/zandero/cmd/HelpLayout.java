@@ -0,0 +1,40 @@
+package com.zandero.cmd;
+
+/**
+ * Help screen column layout of a spec, computed once
+ */
+final class HelpLayout {
+
+	/**
+	 * Command strings by ordinal: "-a [ --all ]"
+	 */
+	private final String[] commands;
+
+	/**
+	 * Length of longest command string
+	 */
+	private final int column;
+
+	HelpLayout(CommandSpec spec) {
+
+		commands = new String[spec.size()];
+
+		int max = 0;
+		for (int ordinal = 0; ordinal < commands.length; ordinal++) {
+			commands[ordinal] = spec.get(ordinal).toCommandString();
+			max = Math.max(max, commands[ordinal].length());
+		}
+
+		column = max;
+	}
+
+	String command(int ordinal) {
+
+		return commands[ordinal];
+	}
+
+	int column() {
+
+		return column;
+	}
+}
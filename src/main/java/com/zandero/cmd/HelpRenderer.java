@@ -0,0 +1,256 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.utils.Assert;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Renders help screen of compiled spec
+ *
+ * Options are written one by one straight to given output, no intermediate list of lines is built,
+ * descriptions are aligned into a single column and wrapped to given width.
+ * Command column layout is computed once per spec and shared by all renderers.
+ */
+public final class HelpRenderer {
+
+	/**
+	 * Width used when terminal width is unknown
+	 */
+	public static final int DEFAULT_WIDTH = 80;
+
+	/**
+	 * Descriptions are wrapped to at least this width, even if command column leaves less space
+	 */
+	private static final int MIN_DESCRIPTION_WIDTH = 20;
+
+	private static final String SPACES = "                                                                ";
+
+	private final CommandSpec spec;
+
+	private final int width;
+
+	/**
+	 * Renders help wrapped to terminal width
+	 *
+	 * @param spec to render help for
+	 */
+	public HelpRenderer(CommandSpec spec) {
+
+		this(spec, terminalWidth());
+	}
+
+	/**
+	 * @param spec  to render help for
+	 * @param width max line width, 0 to not wrap lines
+	 */
+	public HelpRenderer(CommandSpec spec, int width) {
+
+		Assert.notNull(spec, "Missing command spec!");
+		Assert.isTrue(width >= 0, "Width must be greater or equal to 0!");
+
+		this.spec = spec;
+		this.width = width;
+	}
+
+	/**
+	 * @return terminal width as given in COLUMNS environment variable or {@link #DEFAULT_WIDTH} if not available
+	 */
+	public static int terminalWidth() {
+
+		try {
+			String columns = System.getenv("COLUMNS");
+			if (columns != null) {
+				int width = Integer.parseInt(columns.trim());
+				if (width > 0) {
+					return width;
+				}
+			}
+		}
+		catch (NumberFormatException | SecurityException e) {
+			// fall back to default
+		}
+
+		return DEFAULT_WIDTH;
+	}
+
+	/**
+	 * Writes help screen to output
+	 *
+	 * @param out to write to
+	 * @throws IOException in case writing failed
+	 */
+	public void render(Appendable out) throws IOException {
+
+		Assert.notNull(out, "Missing output!");
+
+		String newLine = System.lineSeparator();
+		if (header(out, newLine)) {
+			out.append(newLine);
+		}
+
+		HelpLayout layout = spec.helpLayout();
+		for (int ordinal = 0; ordinal < spec.size(); ordinal++) {
+			option(out, layout, ordinal, newLine);
+			out.append(newLine);
+		}
+	}
+
+	/**
+	 * Lines are rendered on demand, so help can be paged without rendering all options first
+	 *
+	 * @return help screen lines
+	 */
+	public Iterator<String> lines() {
+
+		return new Lines();
+	}
+
+	/**
+	 * Writes application version and example lines if given
+	 *
+	 * @return true if any header was written
+	 */
+	private boolean header(Appendable out, String newLine) throws IOException {
+
+		String version = spec.getHelpAppVersion();
+		String example = spec.getHelpAppExample();
+
+		if (version != null) {
+			out.append(version).append(newLine);
+		}
+
+		if (example != null) {
+			out.append(example).append(newLine);
+		}
+
+		return version != null || example != null;
+	}
+
+	/**
+	 * Writes single option: command, padding and description wrapped into description column (without trailing new line)
+	 */
+	private void option(Appendable out, HelpLayout layout, int ordinal, String newLine) throws IOException {
+
+		String command = layout.command(ordinal);
+		int column = layout.column() + 1;
+
+		out.append(command);
+		pad(out, column - command.length());
+
+		CommandOption<?> option = spec.get(ordinal);
+		String description = option.getDescription();
+
+		int length = description.length();
+		int available = Math.max(width - column, MIN_DESCRIPTION_WIDTH);
+
+		if (width == 0 || length <= available) {
+			out.append(description);
+			return;
+		}
+
+		int start = 0;
+		while (start < length) {
+
+			int end = start + available;
+			if (end >= length) {
+				end = length;
+			}
+			else {
+				// break on last space if any, otherwise break word
+				int space = description.lastIndexOf(' ', end);
+				if (space > start) {
+					end = space;
+				}
+			}
+
+			if (start > 0) {
+				out.append(newLine);
+				pad(out, column);
+			}
+
+			out.append(description, start, end);
+
+			start = end;
+			while (start < length && description.charAt(start) == ' ') {
+				start++;
+			}
+		}
+	}
+
+	private static void pad(Appendable out, int count) throws IOException {
+
+		while (count > 0) {
+			int size = Math.min(count, SPACES.length());
+			out.append(SPACES, 0, size);
+			count -= size;
+		}
+	}
+
+	/**
+	 * Renders one option at a time into reused buffer
+	 */
+	private final class Lines implements Iterator<String> {
+
+		private final ArrayDeque<String> pending = new ArrayDeque<>();
+
+		private final StringBuilder buffer = new StringBuilder();
+
+		private final HelpLayout layout = spec.helpLayout();
+
+		private int ordinal = -1;
+
+		@Override
+		public boolean hasNext() {
+
+			while (pending.isEmpty() && ordinal < spec.size()) {
+				fill();
+			}
+
+			return !pending.isEmpty();
+		}
+
+		@Override
+		public String next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return pending.poll();
+		}
+
+		private void fill() {
+
+			buffer.setLength(0);
+
+			try {
+				if (ordinal < 0) {
+					if (header(buffer, "\n")) {
+						buffer.append('\n');
+					}
+				}
+				else {
+					option(buffer, layout, ordinal, "\n");
+					buffer.append('\n');
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e); // not thrown by StringBuilder
+			}
+
+			ordinal++;
+
+			int start = 0;
+			for (int index = 0; index < buffer.length(); index++) {
+				if (buffer.charAt(index) == '\n') {
+					pending.add(buffer.substring(start, index));
+					start = index + 1;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package com.zandero.cmd;
+
+import java.io.IOException;
+
+/**
+ * JSON config: { "threads": 4, "server": { "port": 8080 }, "files": ["a", "b"] }
+ * Nested names are joined with dots (server.port), each array item is reported under name of array.
+ * Strings are reported unescaped, numbers and booleans as given, nulls are skipped.
+ */
+final class JsonFormat implements ConfigFormat {
+
+	@Override
+	public boolean accepts(String fileName) {
+
+		return fileName.endsWith(".json");
+	}
+
+	@Override
+	public boolean sniff(byte[] head, int length) {
+
+		for (int index = 0; index < length; index++) {
+			if (head[index] > ' ') {
+				return head[index] == '{';
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public void parse(Input input, Handler handler) throws IOException, CommandLineException {
+
+		new Reader(input, handler).document();
+	}
+
+	/**
+	 * Recursive descent over bytes with single byte look ahead
+	 */
+	private static final class Reader {
+
+		private final Input input;
+
+		private final Handler handler;
+
+		/**
+		 * Name of current value, names are appended when entering objects and cut when leaving
+		 */
+		private final ByteChars path = new ByteChars();
+
+		private final ByteChars text = new ByteChars();
+
+		private int current;
+
+		private int line = 1;
+
+		private Reader(Input input, Handler handler) {
+
+			this.input = input;
+			this.handler = handler;
+		}
+
+		private void document() throws IOException, CommandLineException {
+
+			next();
+			skipWhitespace();
+
+			if (current != '{') {
+				throw error("expected '{'");
+			}
+
+			object();
+
+			skipWhitespace();
+			if (current >= 0) {
+				throw error("unexpected content after end of document");
+			}
+		}
+
+		private void object() throws IOException, CommandLineException {
+
+			next(); // {
+			skipWhitespace();
+
+			if (current == '}') {
+				next();
+				return;
+			}
+
+			while (true) {
+
+				if (current != '"') {
+					throw error("expected name");
+				}
+
+				int length = path.length();
+				if (length > 0) {
+					path.append('.');
+				}
+
+				string(path);
+
+				skipWhitespace();
+				if (current != ':') {
+					throw error("expected ':'");
+				}
+
+				next();
+				skipWhitespace();
+				value();
+
+				path.truncate(length);
+
+				skipWhitespace();
+				if (current == ',') {
+					next();
+					skipWhitespace();
+					continue;
+				}
+
+				if (current == '}') {
+					next();
+					return;
+				}
+
+				throw error("expected ',' or '}'");
+			}
+		}
+
+		private void array() throws IOException, CommandLineException {
+
+			next(); // [
+			skipWhitespace();
+
+			if (current == ']') {
+				next();
+				return;
+			}
+
+			while (true) {
+
+				value();
+
+				skipWhitespace();
+				if (current == ',') {
+					next();
+					skipWhitespace();
+					continue;
+				}
+
+				if (current == ']') {
+					next();
+					return;
+				}
+
+				throw error("expected ',' or ']'");
+			}
+		}
+
+		private void value() throws IOException, CommandLineException {
+
+			switch (current) {
+				case '{':
+					object();
+					return;
+
+				case '[':
+					array();
+					return;
+
+				case '"':
+					text.clear();
+					string(text);
+					ConfigFileReader.value(handler, path, 0, path.length(), text.toString());
+					return;
+
+				default:
+					// number, true, false or null
+					text.clear();
+					while (current > ' ' && current != ',' && current != '}' && current != ']') {
+						text.append(current);
+						next();
+					}
+
+					if (text.length() == 0) {
+						throw error("expected value");
+					}
+
+					String value = text.toString();
+					if (!value.equals("null")) {
+						ConfigFileReader.value(handler, path, 0, path.length(), value);
+					}
+			}
+		}
+
+		/**
+		 * Reads quoted string into given buffer, escapes are resolved
+		 */
+		private void string(ByteChars out) throws IOException, CommandLineException {
+
+			next(); // "
+			while (current != '"') {
+
+				if (current < 0 || current == '\n') {
+					throw error("missing closing quote");
+				}
+
+				if (current == '\\') {
+					next();
+					escaped(out);
+				}
+				else {
+					out.append(current);
+				}
+
+				next();
+			}
+
+			next(); // "
+		}
+
+		private void escaped(ByteChars out) throws IOException, CommandLineException {
+
+			switch (current) {
+				case '"':
+				case '\\':
+				case '/':
+					out.append(current);
+					break;
+
+				case 'b':
+					out.append('\b');
+					break;
+
+				case 'f':
+					out.append('\f');
+					break;
+
+				case 'n':
+					out.append('\n');
+					break;
+
+				case 'r':
+					out.append('\r');
+					break;
+
+				case 't':
+					out.append('\t');
+					break;
+
+				case 'u':
+					int code = hex();
+					if (Character.isHighSurrogate((char) code)) {
+
+						next();
+						if (current != '\\') {
+							throw error("expected low surrogate");
+						}
+
+						next();
+						if (current != 'u') {
+							throw error("expected low surrogate");
+						}
+
+						code = Character.toCodePoint((char) code, (char) hex());
+					}
+
+					appendUtf8(out, code);
+					break;
+
+				default:
+					throw error("invalid escape");
+			}
+		}
+
+		/**
+		 * @return value of four hex digits following \\u
+		 */
+		private int hex() throws IOException, CommandLineException {
+
+			int value = 0;
+			for (int index = 0; index < 4; index++) {
+
+				next();
+				int digit = Character.digit(current, 16);
+				if (digit < 0) {
+					throw error("invalid unicode escape");
+				}
+
+				value = value * 16 + digit;
+			}
+
+			return value;
+		}
+
+		private static void appendUtf8(ByteChars out, int code) {
+
+			if (code < 0x80) {
+				out.append(code);
+			}
+			else if (code < 0x800) {
+				out.append(0xC0 | (code >> 6));
+				out.append(0x80 | (code & 0x3F));
+			}
+			else if (code < 0x10000) {
+				out.append(0xE0 | (code >> 12));
+				out.append(0x80 | ((code >> 6) & 0x3F));
+				out.append(0x80 | (code & 0x3F));
+			}
+			else {
+				out.append(0xF0 | (code >> 18));
+				out.append(0x80 | ((code >> 12) & 0x3F));
+				out.append(0x80 | ((code >> 6) & 0x3F));
+				out.append(0x80 | (code & 0x3F));
+			}
+		}
+
+		private void skipWhitespace() throws IOException {
+
+			while (current == ' ' || current == '\t' || current == '\n' || current == '\r') {
+				next();
+			}
+		}
+
+		private void next() throws IOException {
+
+			if (current == '\n') {
+				line++;
+			}
+
+			current = input.read();
+		}
+
+		private CommandLineException error(String message) {
+
+			return new CommandLineException("Invalid JSON in: " + input.getName() + ", line " + line + ": " + message);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.zandero.cmd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential reader of a memory mapped file
+ * File is mapped in windows, so memory use does not depend on file size
+ */
+final class MappedInput implements Closeable {
+
+	/**
+	 * Size of single mapped window
+	 */
+	static final int WINDOW = 64 * 1024 * 1024;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int window;
+
+	/**
+	 * File position of current window
+	 */
+	private long position;
+
+	private MappedByteBuffer buffer;
+
+	MappedInput(Path file) throws IOException {
+
+		this(file, WINDOW);
+	}
+
+	MappedInput(Path file, int windowSize) throws IOException {
+
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		size = channel.size();
+		window = windowSize;
+	}
+
+	/**
+	 * @return next byte (0 - 255) or -1 when end of file is reached
+	 * @throws IOException in case file could not be mapped
+	 */
+	int read() throws IOException {
+
+		if (buffer == null || !buffer.hasRemaining()) {
+
+			if (!nextWindow()) {
+				return -1;
+			}
+		}
+
+		return buffer.get() & 0xff;
+	}
+
+	/**
+	 * @return size of file in bytes
+	 */
+	long size() {
+
+		return size;
+	}
+
+	/**
+	 * @return CRC32 checksum of file content, read position is unchanged
+	 * @throws IOException in case file could not be mapped
+	 */
+	long checksum() throws IOException {
+
+		CRC32 crc = new CRC32();
+		for (long offset = 0; offset < size; offset += window) {
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(window, size - offset)));
+		}
+
+		return crc.getValue();
+	}
+
+	private boolean nextWindow() throws IOException {
+
+		if (buffer != null) {
+			position += buffer.limit();
+		}
+
+		if (position >= size) {
+			return false;
+		}
+
+		long length = Math.min(window, size - position);
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		buffer = null;
+		channel.close();
+	}
+}
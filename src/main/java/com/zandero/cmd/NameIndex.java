@@ -0,0 +1,125 @@
+package com.zandero.cmd;
+
+import com.zandero.utils.Assert;
+
+/**
+ * Open addressing hash index of names to option ordinals
+ * Lookups work on any char sequence range, so no substring is needed to find an option
+ */
+final class NameIndex {
+
+	private final String[] keys;
+
+	private final int[] ordinals;
+
+	private final int mask;
+
+	private final int shift;
+
+	private int size;
+
+	/**
+	 * @param expected number of names to be stored
+	 */
+	NameIndex(int expected) {
+
+		int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+		keys = new String[capacity];
+		ordinals = new int[capacity];
+		mask = capacity - 1;
+		shift = Integer.numberOfLeadingZeros(capacity) + 1;
+	}
+
+	/**
+	 * Stores name
+	 *
+	 * @param name    to store
+	 * @param ordinal option ordinal
+	 * @throws IllegalArgumentException in case name is already taken by other option
+	 */
+	void put(String name, int ordinal) {
+
+		Assert.isTrue(size < keys.length - 1, "Name index is full!");
+
+		int index = index(name, 0, name.length());
+		while (keys[index] != null) {
+
+			Assert.isFalse(keys[index].equals(name), "Name: '" + name + "' is already taken!");
+			index = (index + 1) & mask;
+		}
+
+		keys[index] = name;
+		ordinals[index] = ordinal;
+		size++;
+	}
+
+	/**
+	 * @param name to search for
+	 * @return option ordinal or -1 if not found
+	 */
+	int get(CharSequence name) {
+
+		if (name == null) {
+			return -1;
+		}
+
+		return get(name, 0, name.length());
+	}
+
+	/**
+	 * @param chars holding name
+	 * @param start of name (inclusive)
+	 * @param end   of name (exclusive)
+	 * @return option ordinal or -1 if not found
+	 */
+	int get(CharSequence chars, int start, int end) {
+
+		int index = index(chars, start, end);
+
+		String key;
+		while ((key = keys[index]) != null) {
+
+			if (matches(key, chars, start, end)) {
+				return ordinals[index];
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	int size() {
+
+		return size;
+	}
+
+	/**
+	 * Same as String.hashCode() but for any char sequence range, spread with Fibonacci hashing
+	 * (similar names produce sequential hash codes, which would cluster if used directly with linear probing)
+	 */
+	private int index(CharSequence chars, int start, int end) {
+
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+
+		return (hash * 0x9E3779B9) >>> shift;
+	}
+
+	private static boolean matches(String key, CharSequence chars, int start, int end) {
+
+		if (key.length() != end - start) {
+			return false;
+		}
+
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != chars.charAt(start + i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,173 @@
+package com.zandero.cmd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BK-tree of option names by Levenshtein distance
+ * Finding names close to a given one only visits subtrees within distance, not all names
+ */
+final class NameTree {
+
+	/**
+	 * Max number of names returned
+	 */
+	static final int MAX_SUGGESTIONS = 3;
+
+	private Node root;
+
+	/**
+	 * @param name as given
+	 * @return max edit distance of names to suggest for given name, 0 for single char names (all single char names are similar)
+	 */
+	static int maxDistance(String name) {
+
+		if (name.length() <= 2) {
+			return 0;
+		}
+
+		return Math.max(1, Math.min(3, name.length() / 3));
+	}
+
+	/**
+	 * @param name to add
+	 */
+	void add(String name) {
+
+		if (root == null) {
+			root = new Node(name);
+			return;
+		}
+
+		Node node = root;
+		while (true) {
+
+			int distance = distance(node.name, name);
+			if (distance == 0) {
+				return; // already present
+			}
+
+			Node child = node.child(distance);
+			if (child == null) {
+				node.add(distance, new Node(name));
+				return;
+			}
+
+			node = child;
+		}
+	}
+
+	/**
+	 * @param name    to search for
+	 * @param maxDistance max edit distance of found names
+	 * @return up to {@link #MAX_SUGGESTIONS} names closest to given name, ordered by distance and name
+	 */
+	List<String> find(String name, int maxDistance) {
+
+		List<Match> matches = new ArrayList<>();
+		if (root != null) {
+			find(root, name, maxDistance, matches);
+		}
+
+		matches.sort((one, other) -> one.distance != other.distance ? Integer.compare(one.distance, other.distance) : one.name.compareTo(other.name));
+
+		List<String> out = new ArrayList<>(Math.min(MAX_SUGGESTIONS, matches.size()));
+		for (int index = 0; index < matches.size() && index < MAX_SUGGESTIONS; index++) {
+			out.add(matches.get(index).name);
+		}
+
+		return out;
+	}
+
+	private static void find(Node node, String name, int maxDistance, List<Match> matches) {
+
+		int distance = distance(node.name, name);
+		if (distance <= maxDistance) {
+			matches.add(new Match(node.name, distance));
+		}
+
+		// only children within [distance - max, distance + max] can hold matches (triangle inequality)
+		int from = Math.max(1, distance - maxDistance);
+		int to = Math.min(node.children.length - 1, distance + maxDistance);
+
+		for (int index = from; index <= to; index++) {
+			if (node.children[index] != null) {
+				find(node.children[index], name, maxDistance, matches);
+			}
+		}
+	}
+
+	/**
+	 * @return Levenshtein distance of given strings
+	 */
+	static int distance(String one, String other) {
+
+		int[] previous = new int[other.length() + 1];
+		int[] current = new int[other.length() + 1];
+
+		for (int index = 0; index < previous.length; index++) {
+			previous[index] = index;
+		}
+
+		for (int i = 1; i <= one.length(); i++) {
+
+			current[0] = i;
+			char value = one.charAt(i - 1);
+
+			for (int j = 1; j <= other.length(); j++) {
+
+				int cost = value == other.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+			}
+
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+
+		return previous[other.length()];
+	}
+
+	private static final class Node {
+
+		private final String name;
+
+		/**
+		 * Children by distance to this node
+		 */
+		private Node[] children = new Node[0];
+
+		private Node(String name) {
+
+			this.name = name;
+		}
+
+		private Node child(int distance) {
+
+			return distance < children.length ? children[distance] : null;
+		}
+
+		private void add(int distance, Node child) {
+
+			if (distance >= children.length) {
+				children = Arrays.copyOf(children, distance + 1);
+			}
+
+			children[distance] = child;
+		}
+	}
+
+	private static final class Match {
+
+		private final String name;
+
+		private final int distance;
+
+		private Match(String name, int distance) {
+
+			this.name = name;
+			this.distance = distance;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.zandero.cmd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Prefix tree of names flattened into arrays, used to resolve abbreviated names
+ * Children of a node are stored next to each other ordered by char, lookup takes one (binary) search per char of given name.
+ * Each node knows if a single name starts with it, so ambiguity is known as soon as the last char is reached.
+ */
+final class NameTrie {
+
+	/**
+	 * No name starts with given prefix
+	 */
+	static final int NONE = -1;
+
+	/**
+	 * More than one name starts with given prefix
+	 */
+	static final int AMBIGUOUS = -2;
+
+	/**
+	 * Char leading into node by node index (root has none)
+	 */
+	private final char[] labels;
+
+	/**
+	 * Index of first child and number of children by node index
+	 */
+	private final int[] first;
+
+	private final int[] count;
+
+	/**
+	 * Ordinal of name ending in node or NONE
+	 */
+	private final int[] exact;
+
+	/**
+	 * Ordinal of only name starting with node prefix, or AMBIGUOUS
+	 */
+	private final int[] unique;
+
+	/**
+	 * @param names by ordinal, null names are skipped
+	 */
+	NameTrie(String[] names) {
+
+		Node root = new Node('\0');
+		int size = 1;
+
+		for (int ordinal = 0; ordinal < names.length; ordinal++) {
+
+			String name = names[ordinal];
+			if (name == null) {
+				continue;
+			}
+
+			Node node = root;
+			node.add(ordinal);
+
+			for (int index = 0; index < name.length(); index++) {
+
+				char value = name.charAt(index);
+				Node child = node.children.get(value);
+				if (child == null) {
+					child = new Node(value);
+					node.children.put(value, child);
+					size++;
+				}
+
+				node = child;
+				node.add(ordinal);
+			}
+
+			node.exact = ordinal;
+		}
+
+		labels = new char[size];
+		first = new int[size];
+		count = new int[size];
+		exact = new int[size];
+		unique = new int[size];
+
+		// breadth first, so children of each node are stored together
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		queue.add(root);
+
+		int index = 0;
+		int next = 1;
+
+		while (!queue.isEmpty()) {
+
+			Node node = queue.poll();
+			labels[index] = node.label;
+			exact[index] = node.exact;
+			unique[index] = node.names == 1 ? node.ordinal : AMBIGUOUS;
+			first[index] = next;
+			count[index] = node.children.size();
+
+			next += node.children.size();
+			queue.addAll(node.children.values());
+			index++;
+		}
+	}
+
+	/**
+	 * @param chars holding name or prefix of name
+	 * @param start of prefix (inclusive)
+	 * @param end   of prefix (exclusive)
+	 * @return ordinal of name equal to prefix or of only name starting with prefix, {@link #NONE} or {@link #AMBIGUOUS}
+	 */
+	int find(CharSequence chars, int start, int end) {
+
+		int node = node(chars, start, end);
+		if (node < 0) {
+			return NONE;
+		}
+
+		// exact match wins over longer names
+		return exact[node] >= 0 ? exact[node] : unique[node];
+	}
+
+	/**
+	 * @param chars holding prefix
+	 * @param start of prefix (inclusive)
+	 * @param end   of prefix (exclusive)
+	 * @return ordinals of all names starting with prefix, in order of names
+	 */
+	List<Integer> matches(CharSequence chars, int start, int end) {
+
+		List<Integer> out = new ArrayList<>();
+
+		int node = node(chars, start, end);
+		if (node >= 0) {
+			collect(node, out);
+		}
+
+		return out;
+	}
+
+	private void collect(int node, List<Integer> out) {
+
+		if (exact[node] >= 0) {
+			out.add(exact[node]);
+		}
+
+		for (int child = first[node]; child < first[node] + count[node]; child++) {
+			collect(child, out);
+		}
+	}
+
+	/**
+	 * @return index of node reached by given prefix or -1 if none
+	 */
+	private int node(CharSequence chars, int start, int end) {
+
+		int node = 0;
+		for (int index = start; index < end; index++) {
+
+			node = child(node, chars.charAt(index));
+			if (node < 0) {
+				return -1;
+			}
+		}
+
+		return node;
+	}
+
+	private int child(int node, char value) {
+
+		int low = first[node];
+		int high = low + count[node] - 1;
+
+		while (low <= high) {
+
+			int middle = (low + high) >>> 1;
+			char label = labels[middle];
+
+			if (label < value) {
+				low = middle + 1;
+			}
+			else if (label > value) {
+				high = middle - 1;
+			}
+			else {
+				return middle;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Node used while building trie
+	 */
+	private static final class Node {
+
+		private final char label;
+
+		private final TreeMap<Character, Node> children = new TreeMap<>();
+
+		private int exact = NONE;
+
+		private int names;
+
+		private int ordinal;
+
+		private Node(char label) {
+
+			this.label = label;
+		}
+
+		private void add(int nameOrdinal) {
+
+			names++;
+			ordinal = nameOrdinal;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+
+/**
+ * Typed handle of an option in a compiled spec
+ * Obtained once with {@link CommandSpec#key(CommandOption)} and used to read values from {@link OptionValues} by ordinal
+ *
+ * @param <T> option value type
+ */
+public final class OptionKey<T> {
+
+	private final CommandSpec spec;
+
+	private final int ordinal;
+
+	private final CommandOption<T> option;
+
+	OptionKey(CommandSpec spec, int ordinal, CommandOption<T> option) {
+
+		this.spec = spec;
+		this.ordinal = ordinal;
+		this.option = option;
+	}
+
+	/**
+	 * @return spec key belongs to
+	 */
+	public CommandSpec getSpec() {
+
+		return spec;
+	}
+
+	/**
+	 * @return option ordinal in spec
+	 */
+	public int getOrdinal() {
+
+		return ordinal;
+	}
+
+	/**
+	 * @return option
+	 */
+	public CommandOption<T> getOption() {
+
+		return option;
+	}
+
+	@Override
+	public String toString() {
+
+		return option.toCommandString();
+	}
+}
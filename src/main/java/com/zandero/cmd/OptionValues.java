@@ -0,0 +1,469 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.ConfigFileOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.MultiValueOption;
+import com.zandero.settings.Settings;
+import com.zandero.utils.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parsed option values stored by option ordinal
+ * Int and boolean options are held in primitive arrays, all other options in an object array,
+ * values are read with typed {@link OptionKey} handles without hashing or boxing
+ *
+ * When parsed lazily, arguments of non eager options are kept as given and converted on first access.
+ * Lazy values are not safe to be accessed by multiple threads until converted, see {@link #validateAll()}
+ */
+public final class OptionValues {
+
+	/**
+	 * Option kinds, deciding which array value is stored in
+	 */
+	static final byte OBJECT = 0;
+
+	static final byte INT = 1;
+
+	static final byte BOOL = 2;
+
+	/**
+	 * Value states by ordinal
+	 */
+	private static final byte MISSING = 0;
+
+	private static final byte NULL = 1;
+
+	private static final byte VALUE = 2;
+
+	/**
+	 * Argument given but not yet parsed (held in objects array)
+	 */
+	private static final byte RAW = 3;
+
+	private final CommandSpec spec;
+
+	private final byte[] states;
+
+	private final int[] ints;
+
+	private final boolean[] bools;
+
+	private final Object[] objects;
+
+	private final boolean lazy;
+
+	/**
+	 * File option arguments are deferred to be checked together
+	 */
+	private final boolean deferFiles;
+
+	/**
+	 * Number of arguments not yet parsed
+	 */
+	private int raw;
+
+	private Settings settings;
+
+	/**
+	 * Arguments given after end of options (--), null if none
+	 */
+	private List<String> arguments;
+
+	OptionValues(CommandSpec spec) {
+
+		this(spec, false, false);
+	}
+
+	/**
+	 * @param spec       of options
+	 * @param lazy       true to keep arguments as given until first accessed
+	 * @param deferFiles true to keep file arguments as given, to be checked by {@link FileValidator}
+	 */
+	OptionValues(CommandSpec spec, boolean lazy, boolean deferFiles) {
+
+		this.spec = spec;
+		this.lazy = lazy;
+		this.deferFiles = deferFiles;
+
+		states = new byte[spec.size()];
+		ints = new int[spec.count(INT)];
+		bools = new boolean[spec.count(BOOL)];
+		objects = new Object[spec.count(OBJECT)];
+	}
+
+	/**
+	 * @param option to get kind for
+	 * @return kind of option value
+	 */
+	static byte kind(CommandOption<?> option) {
+
+		if (option instanceof IntOption && !overridesParse(option)) {
+			return INT;
+		}
+
+		if (option instanceof BoolOption) {
+			return BOOL;
+		}
+
+		return OBJECT;
+	}
+
+	/**
+	 * @return true if int option parses arguments by own means, such option is parsed and stored as object
+	 */
+	private static boolean overridesParse(CommandOption<?> option) {
+
+		try {
+			return option.getClass().getMethod("parse", String.class).getDeclaringClass() != IntOption.class;
+		}
+		catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * @return spec values belong to
+	 */
+	public CommandSpec getSpec() {
+
+		return spec;
+	}
+
+	/**
+	 * @param key of int option
+	 * @return option value
+	 * @throws IllegalArgumentException in case option has no value or value is invalid
+	 */
+	public int getInt(OptionKey<Integer> key) {
+
+		int ordinal = checkValue(key);
+
+		if (spec.kind(ordinal) == INT) {
+			return ints[spec.slot(ordinal)];
+		}
+
+		return (Integer) objects[spec.slot(ordinal)];
+	}
+
+	/**
+	 * @param key of boolean option
+	 * @return option value
+	 * @throws IllegalArgumentException in case option has no value or value is invalid
+	 */
+	public boolean getBool(OptionKey<Boolean> key) {
+
+		int ordinal = checkValue(key);
+
+		if (spec.kind(ordinal) == BOOL) {
+			return bools[spec.slot(ordinal)];
+		}
+
+		return (Boolean) objects[spec.slot(ordinal)];
+	}
+
+	/**
+	 * @param key of option
+	 * @param <T> option value type
+	 * @return option value or null if not set
+	 * @throws IllegalArgumentException in case value is invalid
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(OptionKey<T> key) {
+
+		return (T) get(check(key));
+	}
+
+	/**
+	 * @param key of option
+	 * @return true if option has a (non null) value, false otherwise
+	 */
+	public boolean isSet(OptionKey<?> key) {
+
+		return hasValue(check(key));
+	}
+
+	/**
+	 * Parses all arguments not yet parsed
+	 *
+	 * @throws CommandLineException in case any argument is invalid
+	 */
+	public void validateAll() throws CommandLineException {
+
+		for (int ordinal = 0; raw > 0 && ordinal < states.length; ordinal++) {
+			if (states[ordinal] == RAW) {
+				convert(ordinal);
+			}
+		}
+	}
+
+	/**
+	 * @return arguments given after end of options: -- file1 file2, or empty list if none
+	 */
+	public List<String> getArguments() {
+
+		return arguments == null ? Collections.emptyList() : Collections.unmodifiableList(arguments);
+	}
+
+	/**
+	 * Settings view of values, created once on first call
+	 * Holds all options but config file option
+	 *
+	 * @return values as settings
+	 * @throws IllegalArgumentException in case lazily parsed value is invalid
+	 */
+	public Settings toSettings() {
+
+		if (settings == null) {
+
+			Settings out = new Settings();
+			for (int ordinal = 0; ordinal < states.length; ordinal++) {
+
+				CommandOption<?> option = spec.get(ordinal);
+				if (!(option instanceof ConfigFileOption)) {
+					out.put(option.getSetting(), get(ordinal));
+				}
+			}
+
+			settings = out;
+		}
+
+		return settings;
+	}
+
+	/**
+	 * Parses and stores argument
+	 *
+	 * @param ordinal  of option
+	 * @param argument to parse
+	 * @throws CommandLineException in case argument is not valid
+	 */
+	void parse(int ordinal, String argument) throws CommandLineException {
+
+		parse(ordinal, argument, true);
+	}
+
+	/**
+	 * Parses and stores argument
+	 *
+	 * @param ordinal  of option
+	 * @param argument to parse
+	 * @param defer    false to parse argument now even if parsed lazily or file checks are deferred
+	 * @throws CommandLineException in case argument is not valid
+	 */
+	@SuppressWarnings("unchecked")
+	void parse(int ordinal, String argument, boolean defer) throws CommandLineException {
+
+		CommandOption<?> option = spec.get(ordinal);
+
+		if (spec.kind(ordinal) == INT) {
+			ints[spec.slot(ordinal)] = ((IntOption) option).parseInt(argument);
+			states[ordinal] = VALUE;
+			return;
+		}
+
+		if (option instanceof MultiValueOption) {
+			append(ordinal, (MultiValueOption<Object>) option, argument);
+			return;
+		}
+
+		if (defer && (isLazy(ordinal) || (deferFiles && FileValidator.validates(spec, ordinal)))) {
+			defer(ordinal, argument);
+			return;
+		}
+
+		set(ordinal, option.parse(argument));
+	}
+
+	/**
+	 * Adds values of argument to values given so far
+	 */
+	private void append(int ordinal, MultiValueOption<Object> option, String argument) throws CommandLineException {
+
+		Object values = states[ordinal] == VALUE ? objects[spec.slot(ordinal)] : null;
+		set(ordinal, option.append(values, argument));
+	}
+
+	/**
+	 * Multi value option was given, values (if any) follow
+	 *
+	 * @param ordinal of multi value option
+	 */
+	@SuppressWarnings("unchecked")
+	void start(int ordinal) {
+
+		if (states[ordinal] != VALUE) {
+			set(ordinal, ((MultiValueOption<Object>) spec.get(ordinal)).empty());
+		}
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return true if argument of option is kept as given until accessed
+	 */
+	boolean isLazy(int ordinal) {
+
+		// config file is read while parsing, so it is never deferred, multi values are accumulated while parsing
+		return lazy && spec.kind(ordinal) == OBJECT && !spec.get(ordinal).isEager() && ordinal != spec.getConfigFile() &&
+		       !(spec.get(ordinal) instanceof MultiValueOption);
+	}
+
+	/**
+	 * Keeps argument as given, to be parsed later
+	 *
+	 * @param ordinal  of object option
+	 * @param argument as given
+	 */
+	void defer(int ordinal, String argument) {
+
+		if (states[ordinal] != RAW) {
+			raw++;
+		}
+
+		objects[spec.slot(ordinal)] = argument;
+		states[ordinal] = RAW;
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return argument kept as given or null if option has no deferred argument
+	 */
+	String getDeferred(int ordinal) {
+
+		return states[ordinal] == RAW ? (String) objects[spec.slot(ordinal)] : null;
+	}
+
+	/**
+	 * Parses argument kept as given
+	 */
+	private void convert(int ordinal) throws CommandLineException {
+
+		String argument = (String) objects[spec.slot(ordinal)];
+		set(ordinal, spec.get(ordinal).parse(argument));
+	}
+
+	/**
+	 * @param argument given after end of options
+	 */
+	void addArgument(String argument) {
+
+		if (arguments == null) {
+			arguments = new ArrayList<>();
+		}
+
+		arguments.add(argument);
+	}
+
+	/**
+	 * Stores value
+	 *
+	 * @param ordinal of option
+	 * @param value   to store (of option type)
+	 */
+	void set(int ordinal, Object value) {
+
+		if (states[ordinal] == RAW) {
+			raw--;
+		}
+
+		if (value == null) {
+			states[ordinal] = NULL;
+			return;
+		}
+
+		int slot = spec.slot(ordinal);
+		switch (spec.kind(ordinal)) {
+			case INT:
+				ints[slot] = (Integer) value;
+				break;
+
+			case BOOL:
+				bools[slot] = (Boolean) value;
+				break;
+
+			default:
+				objects[slot] = value;
+		}
+
+		states[ordinal] = VALUE;
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return true if value was stored (can be null), false if not
+	 */
+	boolean isGiven(int ordinal) {
+
+		return states[ordinal] != MISSING;
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return true if option holds a non null value
+	 */
+	boolean hasValue(int ordinal) {
+
+		return states[ordinal] == VALUE || states[ordinal] == RAW;
+	}
+
+	/**
+	 * @param ordinal of option
+	 * @return boxed value or null if not set
+	 */
+	Object get(int ordinal) {
+
+		if (states[ordinal] == RAW) {
+			try {
+				convert(ordinal);
+			}
+			catch (CommandLineException e) {
+				throw new IllegalArgumentException(e.getMessage(), e);
+			}
+		}
+
+		if (states[ordinal] != VALUE) {
+			return null;
+		}
+
+		int slot = spec.slot(ordinal);
+		switch (spec.kind(ordinal)) {
+			case INT:
+				return ints[slot];
+
+			case BOOL:
+				return bools[slot];
+
+			default:
+				return objects[slot];
+		}
+	}
+
+	private int check(OptionKey<?> key) {
+
+		Assert.notNull(key, "Missing option key!");
+
+		if (key.getSpec() != spec) {
+			throw new IllegalArgumentException("Option: " + key + " is not part of given spec!");
+		}
+
+		return key.getOrdinal();
+	}
+
+	private int checkValue(OptionKey<?> key) {
+
+		int ordinal = check(key);
+		if (states[ordinal] == RAW) {
+			get(ordinal);
+		}
+
+		if (states[ordinal] != VALUE) {
+			throw new IllegalArgumentException("Missing value for: " + key);
+		}
+
+		return ordinal;
+	}
+}
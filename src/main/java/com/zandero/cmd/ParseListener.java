@@ -0,0 +1,80 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+
+/**
+ * Receives parse metrics from {@link CommandLineParser}, all methods are optional
+ * Listener is called from the parsing thread, so it must be thread safe when parser is shared.
+ * When no listener is set, parser does no timing or counting at all.
+ */
+public interface ParseListener {
+
+	/**
+	 * Parse phases, in order as executed
+	 */
+	enum Phase {
+		/**
+		 * Tokenizing and parsing given arguments
+		 */
+		ARGUMENTS,
+		/**
+		 * Checking given files concurrently (only when file validation is set on parser)
+		 */
+		FILES,
+		/**
+		 * Loading config file given with config file option
+		 */
+		CONFIG_FILE,
+		/**
+		 * Setting options not given from system properties, environment, config file or defaults
+		 */
+		DEFAULTS,
+		/**
+		 * Checking required options are present
+		 */
+		REQUIRED
+	}
+
+	/**
+	 * Called once a phase is finished (not called for phase failing with exception)
+	 *
+	 * @param phase finished
+	 * @param nanos phase duration in nanoseconds
+	 */
+	default void phase(Phase phase, long nanos) {
+	}
+
+	/**
+	 * @param count number of tokens (arguments) given
+	 */
+	default void tokens(int count) {
+	}
+
+	/**
+	 * @param file  config file loaded
+	 * @param bytes number of bytes read (config file and included files), 0 if settings were taken from cache or snapshot
+	 */
+	default void configFile(String file, long bytes) {
+	}
+
+	/**
+	 * Called for option not found in spec (ignored) or value given without option (failing parse)
+	 *
+	 * @param argument as given
+	 */
+	default void unknownOption(String argument) {
+	}
+
+	/**
+	 * @param option parsed
+	 * @param nanos  time spent parsing option argument in nanoseconds
+	 */
+	default void optionParsed(CommandOption<?> option, long nanos) {
+	}
+
+	/**
+	 * @param exception thrown by parser
+	 */
+	default void failed(CommandLineException exception) {
+	}
+}
@@ -0,0 +1,61 @@
+package com.zandero.cmd;
+
+import com.zandero.settings.Settings;
+
+/**
+ * Outcome of a single parse in a batch: either parsed settings or the error parsing failed with
+ */
+public final class ParseResult {
+
+	private final String[] arguments;
+
+	private final Settings settings;
+
+	private final CommandLineException error;
+
+	ParseResult(String[] arguments, Settings settings) {
+
+		this.arguments = arguments;
+		this.settings = settings;
+		this.error = null;
+	}
+
+	ParseResult(String[] arguments, CommandLineException error) {
+
+		this.arguments = arguments;
+		this.settings = null;
+		this.error = error;
+	}
+
+	/**
+	 * @return given arguments
+	 */
+	public String[] getArguments() {
+
+		return arguments;
+	}
+
+	/**
+	 * @return parsed settings or null if parsing failed
+	 */
+	public Settings getSettings() {
+
+		return settings;
+	}
+
+	/**
+	 * @return error or null if parsing succeeded
+	 */
+	public CommandLineException getError() {
+
+		return error;
+	}
+
+	/**
+	 * @return true if arguments were parsed, false otherwise
+	 */
+	public boolean isValid() {
+
+		return error == null;
+	}
+}
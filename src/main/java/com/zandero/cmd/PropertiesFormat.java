@@ -0,0 +1,102 @@
+package com.zandero.cmd;
+
+import java.io.IOException;
+
+/**
+ * Expects name = value in each line
+ * ignores lines starting with '#' or '//'
+ * value is everything after first '=' so values might contain '=' themselves
+ */
+final class PropertiesFormat implements ConfigFormat {
+
+	@Override
+	public boolean accepts(String fileName) {
+
+		return fileName.endsWith(".properties") || fileName.endsWith(".cfg") || fileName.endsWith(".conf");
+	}
+
+	@Override
+	public boolean sniff(byte[] head, int length) {
+
+		return true; // default format
+	}
+
+	@Override
+	public void parse(Input input, Handler handler) throws IOException, CommandLineException {
+
+		// single line buffer reused for all lines, only grows to longest line in file
+		ByteChars line = new ByteChars();
+
+		int value = input.read();
+		while (value >= 0) {
+
+			line.clear();
+			while (value >= 0 && value != '\n') {
+				line.append(value);
+				value = input.read();
+			}
+
+			parseLine(line, handler);
+			value = input.read();
+		}
+	}
+
+	private static void parseLine(ByteChars line, Handler handler) throws CommandLineException {
+
+		int start = skipWhitespace(line, 0);
+		int end = trimWhitespace(line, start, line.length());
+
+		if (start == end || isComment(line, start, end)) {
+			return;
+		}
+
+		int equals = indexOf(line, '=', start, end);
+		if (equals < 0) {
+			return;
+		}
+
+		int nameEnd = trimWhitespace(line, start, equals);
+		int valueStart = skipWhitespace(line, equals + 1);
+
+		if (nameEnd == start || valueStart >= end) {
+			return;
+		}
+
+		ConfigFileReader.value(handler, line, start, nameEnd, line.toString(valueStart, end));
+	}
+
+	private static int skipWhitespace(ByteChars line, int index) {
+
+		while (index < line.length() && line.byteAt(index) <= ' ') {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static int trimWhitespace(ByteChars line, int start, int end) {
+
+		while (end > start && line.byteAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		return end;
+	}
+
+	private static int indexOf(ByteChars line, char value, int start, int end) {
+
+		for (int i = start; i < end; i++) {
+			if (line.byteAt(i) == value) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private static boolean isComment(ByteChars line, int start, int end) {
+
+		return line.byteAt(start) == '#' ||
+			(end - start > 1 && line.byteAt(start) == '/' && line.byteAt(start + 1) == '/');
+	}
+}
@@ -0,0 +1,823 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.IntList;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.LongList;
+import com.zandero.cmd.option.MultiValueOption;
+import com.zandero.settings.Settings;
+import com.zandero.utils.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Config file settings compiled into a read only binary file, memory mapped by any number of processes
+ * Values are read straight from mapped pages (shared through OS page cache), a config file is parsed only when snapshot is missing or stale.
+ *
+ * Snapshot holds stamps (size and last modified time) of config file and all included files (listing of included directories)
+ * and a fingerprint of options, a change of any of them rebuilds snapshot on next {@link #open}.
+ * Fingerprint covers option names, types and value limits of built in options,
+ * a custom option changing how values are parsed must be accompanied by a new snapshot version. Snapshot is replaced atomically, processes holding old snapshot keep reading it.
+ *
+ * Layout (big endian):
+ * <pre>
+ * header:  magic, version, file length, options fingerprint, number of sources, entries and index slots
+ * sources: string ref, size, last modified time
+ * index:   entry number + 1 by slot (0 = empty slot), open addressing by name hash
+ * entries: name ref, name hash, type, value (inline or offset of list)
+ * values:  lists as count followed by elements
+ * strings: length followed by UTF-8 bytes
+ * </pre>
+ *
+ * Instances are immutable and can be shared among threads.
+ */
+public final class SettingsSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger(SettingsSnapshot.class);
+
+	static final int MAGIC = 0x434d4453; // CMDS
+
+	static final int VERSION = 1;
+
+	private static final int HEADER = 36;
+
+	private static final int SOURCE = 20;
+
+	private static final int ENTRY = 20;
+
+	static final int BOOL = 1;
+
+	static final int INT = 2;
+
+	static final int LONG = 3;
+
+	static final int DOUBLE = 4;
+
+	static final int STRING = 5;
+
+	static final int URI = 6;
+
+	static final int STRING_LIST = 7;
+
+	static final int INT_LIST = 8;
+
+	static final int LONG_LIST = 9;
+
+	private final Path path;
+
+	private final ByteBuffer buffer;
+
+	private final int entries;
+
+	private final int slots;
+
+	private final int sources;
+
+	private final int index;
+
+	private final int entryStart;
+
+	private final int valueStart;
+
+	private final int stringStart;
+
+	/**
+	 * Stamps of source files, decoded once when snapshot is mapped
+	 */
+	private final FileStamp[] stamps;
+
+	/**
+	 * Number of config file bytes read to build snapshot, 0 if snapshot was current
+	 */
+	private final long bytesRead;
+
+	private SettingsSnapshot(Path file, ByteBuffer mapped, long read) {
+
+		path = file;
+		buffer = mapped;
+		bytesRead = read;
+
+		sources = buffer.getInt(24);
+		entries = buffer.getInt(28);
+		slots = buffer.getInt(32);
+
+		index = HEADER + sources * SOURCE;
+		entryStart = index + slots * 4;
+		valueStart = entryStart + entries * ENTRY;
+		stringStart = buffer.getInt(valueStart);
+
+		stamps = new FileStamp[sources];
+		for (int source = 0; source < sources; source++) {
+
+			int offset = HEADER + source * SOURCE;
+			stamps[source] = new FileStamp(Paths.get(string(buffer.getInt(offset))), buffer.getLong(offset + 4), buffer.getLong(offset + 12));
+		}
+	}
+
+	/**
+	 * Opens snapshot of given config file, snapshot is (re)built if missing, stale or written for other options
+	 *
+	 * @param snapshot file holding snapshot
+	 * @param file     config file (or directory) to get settings from
+	 * @param spec     compiled options
+	 * @param reader   to load config file with if needed
+	 * @return snapshot
+	 * @throws CommandLineException     in case config file could not be loaded or snapshot could not be written
+	 * @throws IllegalArgumentException in case a setting holds value of type not listed in {@link #get(String)}, see {@link #canStore(Settings)}
+	 */
+	public static SettingsSnapshot open(Path snapshot, String file, CommandSpec spec, ConfigFileReader reader) throws CommandLineException {
+
+		return open(snapshot, file, spec, reader, 0);
+	}
+
+	/**
+	 * Same as {@link #open(Path, String, CommandSpec, ConfigFileReader)}
+	 *
+	 * @param version of option parsing, to be changed when options parse values differently, snapshots of other versions are rebuilt
+	 */
+	public static SettingsSnapshot open(Path snapshot, String file, CommandSpec spec, ConfigFileReader reader, int version) throws CommandLineException {
+
+		Assert.notNull(snapshot, "Missing snapshot file!");
+		Assert.notNullOrEmptyTrimmed(file, "Missing file!");
+		Assert.notNull(spec, "Missing command spec!");
+		Assert.notNull(reader, "Missing config file reader!");
+
+		long fingerprint = fingerprint(spec, version);
+
+		SettingsSnapshot existing = current(snapshot, fingerprint);
+		if (existing != null) {
+			return existing;
+		}
+
+		return create(snapshot, fingerprint, reader.read(file, spec));
+	}
+
+	/**
+	 * @return existing snapshot if current, null if missing, stale or written for other options
+	 */
+	static SettingsSnapshot current(Path snapshot, long fingerprint) {
+
+		SettingsSnapshot existing = map(snapshot, fingerprint, 0);
+		return existing != null && existing.isCurrent() ? existing : null;
+	}
+
+	/**
+	 * Writes and opens snapshot of loaded settings
+	 */
+	static SettingsSnapshot create(Path snapshot, long fingerprint, ConfigFiles loaded) throws CommandLineException {
+
+		write(snapshot, fingerprint, loaded);
+
+		SettingsSnapshot written = map(snapshot, fingerprint, loaded.getBytesRead());
+		if (written == null) {
+			throw new CommandLineException("Snapshot: '" + snapshot + "', could not be read!");
+		}
+
+		return written;
+	}
+
+	/**
+	 * Settings of custom options (or options without value) can't be stored, such config files must be loaded directly
+	 *
+	 * @param settings to check
+	 * @return true if all values are of types listed in {@link #get(String)}
+	 */
+	public static boolean canStore(Settings settings) {
+
+		for (Object value : settings.values()) {
+			if (!canStore(value)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean canStore(Object value) {
+
+		if (value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof Double ||
+			value instanceof String || value instanceof java.net.URI || value instanceof IntList || value instanceof LongList) {
+			return true;
+		}
+
+		if (!(value instanceof List)) {
+			return false;
+		}
+
+		for (Object item : (List<?>) value) {
+			if (!(item instanceof String)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return snapshot or null if file is missing, invalid or written for other options
+	 */
+	private static SettingsSnapshot map(Path snapshot, long fingerprint, long bytesRead) {
+
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+
+			long size = channel.size();
+			if (size < HEADER || size > Integer.MAX_VALUE) {
+				return null;
+			}
+
+			// mapping stays valid after channel is closed
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != size || buffer.getLong(16) != fingerprint) {
+				return null;
+			}
+
+			return new SettingsSnapshot(snapshot, buffer, bytesRead);
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+		catch (IOException | RuntimeException e) {
+
+			log.warn("Failed to read snapshot: " + snapshot + ", " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes snapshot to temporary file next to target, then moves it in place
+	 */
+	static void write(Path snapshot, long fingerprint, ConfigFiles loaded) throws CommandLineException {
+
+		byte[] content = new Layout(fingerprint, loaded).write();
+
+		Path directory = snapshot.toAbsolutePath().getParent();
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+			Files.write(temp, content);
+
+			try {
+				Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e) {
+
+			log.error("Failed to write snapshot: " + e.getMessage());
+			throw new CommandLineException("Snapshot: '" + snapshot + "', could not be written: " + e.getMessage());
+		}
+		finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				}
+				catch (IOException e) {
+					// nothing to do, temporary file is left behind
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param file        config file as given
+	 * @param fingerprint of options
+	 * @return name of snapshot file, unique for absolute path of config file and options
+	 */
+	static String fileName(String file, long fingerprint) {
+
+		Path path = Paths.get(file).toAbsolutePath().normalize();
+		long hash = fingerprint(fingerprint, path.toString());
+
+		Path name = path.getFileName();
+		return (name == null ? "config" : name.toString()) + "-" + Long.toHexString(hash) + ".snapshot";
+	}
+
+	/**
+	 * @return 64 bit FNV-1a hash of version and option settings, names, types and value limits, snapshots of other options are not used
+	 */
+	static long fingerprint(CommandSpec spec, int version) {
+
+		long hash = fingerprint(0xcbf29ce484222325L, Integer.toString(version));
+		for (int ordinal = 0; ordinal < spec.size(); ordinal++) {
+
+			CommandOption<?> option = spec.get(ordinal);
+			hash = fingerprint(hash, option.getSetting());
+			hash = fingerprint(hash, option.getCommand());
+			hash = fingerprint(hash, option.getLongCommand());
+			hash = fingerprint(hash, option.getClass().getName());
+
+			if (option instanceof IntOption) {
+				hash = fingerprint(hash, String.valueOf(((IntOption) option).getMin()));
+				hash = fingerprint(hash, String.valueOf(((IntOption) option).getMax()));
+			}
+
+			if (option instanceof MultiValueOption) {
+				hash = fingerprint(hash, Integer.toString(((MultiValueOption<?>) option).getMinValues()));
+				hash = fingerprint(hash, Integer.toString(((MultiValueOption<?>) option).getMaxValues()));
+			}
+		}
+
+		return hash;
+	}
+
+	private static long fingerprint(long hash, String value) {
+
+		if (value != null) {
+			for (int index = 0; index < value.length(); index++) {
+				hash = (hash ^ value.charAt(index)) * 0x100000001b3L;
+			}
+		}
+
+		return (hash ^ 0xff) * 0x100000001b3L; // separator, so "ab" + "c" differs from "a" + "bc"
+	}
+
+	/**
+	 * @return true if none of the source files has changed since snapshot was written
+	 */
+	public boolean isCurrent() {
+
+		for (FileStamp stamp : stamps) {
+			if (!stamp.isCurrent()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return snapshot file
+	 */
+	public Path getPath() {
+
+		return path;
+	}
+
+	/**
+	 * @return number of config file bytes read when snapshot was opened, 0 if snapshot was current
+	 */
+	long getBytesRead() {
+
+		return bytesRead;
+	}
+
+	/**
+	 * @return number of settings
+	 */
+	public int size() {
+
+		return entries;
+	}
+
+	/**
+	 * @param name of setting
+	 * @return true if setting is present
+	 */
+	public boolean contains(String name) {
+
+		return find(name) >= 0;
+	}
+
+	/**
+	 * @param name of setting
+	 * @return value (Boolean, Integer, Long, Double, String, URI, List of String, IntList or LongList) or null if not present
+	 */
+	public Object get(String name) {
+
+		int entry = find(name);
+		return entry < 0 ? null : value(entry);
+	}
+
+	/**
+	 * @param name         of setting
+	 * @param defaultValue returned if setting is not present
+	 * @return value of int setting, read without creating any objects
+	 */
+	public int getInt(String name, int defaultValue) {
+
+		int entry = find(name);
+		if (entry < 0) {
+			return defaultValue;
+		}
+
+		Assert.isTrue(type(entry) == INT, "Setting: " + name + ", is not an int!");
+		return (int) buffer.getLong(entry + 12);
+	}
+
+	/**
+	 * @param name         of setting
+	 * @param defaultValue returned if setting is not present
+	 * @return value of boolean setting, read without creating any objects
+	 */
+	public boolean getBool(String name, boolean defaultValue) {
+
+		int entry = find(name);
+		if (entry < 0) {
+			return defaultValue;
+		}
+
+		Assert.isTrue(type(entry) == BOOL, "Setting: " + name + ", is not a boolean!");
+		return buffer.getLong(entry + 12) != 0;
+	}
+
+	/**
+	 * @return names of settings in snapshot order
+	 */
+	public List<String> names() {
+
+		List<String> out = new ArrayList<>(entries);
+		for (int entry = 0; entry < entries; entry++) {
+			out.add(string(buffer.getInt(entryStart + entry * ENTRY)));
+		}
+
+		return out;
+	}
+
+	/**
+	 * @return all settings decoded, as returned by {@link ConfigFileReader#load(String, CommandSpec)}
+	 */
+	public Settings toSettings() {
+
+		Settings out = new Settings();
+		for (int entry = 0; entry < entries; entry++) {
+
+			int offset = entryStart + entry * ENTRY;
+			out.put(string(buffer.getInt(offset)), value(offset));
+		}
+
+		return out;
+	}
+
+	/**
+	 * @return buffer offset of entry or -1 if not found
+	 */
+	private int find(String name) {
+
+		if (name == null || slots == 0) {
+			return -1;
+		}
+
+		int hash = name.hashCode();
+		int mask = slots - 1;
+
+		for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+
+			int number = buffer.getInt(index + slot * 4);
+			if (number == 0) {
+				return -1;
+			}
+
+			int offset = entryStart + (number - 1) * ENTRY;
+			if (buffer.getInt(offset + 4) == hash && equals(buffer.getInt(offset), name)) {
+				return offset;
+			}
+		}
+	}
+
+	private static int spread(int hash) {
+
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Compares stored string with given one, ASCII strings are compared without decoding
+	 */
+	private boolean equals(int ref, String name) {
+
+		int start = stringStart + ref;
+		int length = buffer.getInt(start);
+
+		if (length != name.length()) {
+			return length >= name.length() && string(ref).equals(name); // non ASCII name takes more bytes than chars
+		}
+
+		for (int index = 0; index < length; index++) {
+
+			int value = buffer.get(start + 4 + index) & 0xff;
+			if (value >= 0x80) {
+				return string(ref).equals(name);
+			}
+
+			if (value != name.charAt(index)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private int type(int entry) {
+
+		return buffer.getInt(entry + 8);
+	}
+
+	private Object value(int entry) {
+
+		long value = buffer.getLong(entry + 12);
+
+		switch (type(entry)) {
+			case BOOL:
+				return value != 0;
+
+			case INT:
+				return (int) value;
+
+			case LONG:
+				return value;
+
+			case DOUBLE:
+				return Double.longBitsToDouble(value);
+
+			case STRING:
+				return string((int) value);
+
+			case URI:
+				return java.net.URI.create(string((int) value));
+
+			case STRING_LIST: {
+				int offset = valueStart + 4 + (int) value;
+				int count = buffer.getInt(offset);
+				List<String> out = new ArrayList<>(count);
+				for (int item = 0; item < count; item++) {
+					out.add(string(buffer.getInt(offset + 4 + item * 4)));
+				}
+
+				return out;
+			}
+
+			case INT_LIST: {
+				int offset = valueStart + 4 + (int) value;
+				int count = buffer.getInt(offset);
+				IntList out = new IntList();
+				for (int item = 0; item < count; item++) {
+					out.add(buffer.getInt(offset + 4 + item * 4));
+				}
+
+				return out;
+			}
+
+			case LONG_LIST: {
+				int offset = valueStart + 4 + (int) value;
+				int count = buffer.getInt(offset);
+				LongList out = new LongList();
+				for (int item = 0; item < count; item++) {
+					out.add(buffer.getLong(offset + 4 + item * 8));
+				}
+
+				return out;
+			}
+
+			default:
+				throw new IllegalStateException("Unknown value type: " + type(entry) + ", in snapshot: " + path);
+		}
+	}
+
+	private String string(int ref) {
+
+		int start = stringStart + ref;
+		byte[] bytes = new byte[buffer.getInt(start)];
+		for (int index = 0; index < bytes.length; index++) {
+			bytes[index] = buffer.get(start + 4 + index);
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Lays out snapshot of loaded settings, strings are stored once
+	 */
+	private static final class Layout {
+
+		private final long fingerprint;
+
+		private final List<FileStamp> files;
+
+		private final List<Map.Entry<String, Object>> settings;
+
+		private final Map<String, Integer> stringRefs = new HashMap<>();
+
+		private final ByteBuilder strings = new ByteBuilder();
+
+		private final ByteBuilder values = new ByteBuilder();
+
+		private Layout(long fingerprint, ConfigFiles loaded) {
+
+			this.fingerprint = fingerprint;
+			files = loaded.getFiles();
+
+			settings = new ArrayList<>(loaded.getSettings().entrySet());
+			settings.sort(Map.Entry.comparingByKey());
+		}
+
+		private byte[] write() {
+
+			int slots = slots(settings.size());
+
+			ByteBuilder entries = new ByteBuilder();
+			int[] index = new int[slots];
+
+			for (int entry = 0; entry < settings.size(); entry++) {
+
+				String name = settings.get(entry).getKey();
+				Object value = settings.get(entry).getValue();
+
+				int hash = name.hashCode();
+				int slot = spread(hash) & (slots - 1);
+				while (index[slot] != 0) {
+					slot = (slot + 1) & (slots - 1);
+				}
+
+				index[slot] = entry + 1;
+
+				entries.putInt(ref(name));
+				entries.putInt(hash);
+				value(name, value, entries);
+			}
+
+			ByteBuilder sources = new ByteBuilder();
+			for (FileStamp file : files) {
+				sources.putInt(ref(file.getPath().toString()));
+				sources.putLong(file.getSize());
+				sources.putLong(file.getModified());
+			}
+
+			// values section starts with offset of strings section relative to it
+			int stringStart = HEADER + sources.length() + slots * 4 + entries.length() + 4 + values.length();
+			int length = stringStart + strings.length();
+
+			ByteBuffer out = ByteBuffer.allocate(length);
+			out.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(fingerprint);
+			out.putInt(files.size()).putInt(settings.size()).putInt(slots);
+			sources.copyTo(out);
+
+			for (int slot : index) {
+				out.putInt(slot);
+			}
+
+			entries.copyTo(out);
+			out.putInt(stringStart);
+			values.copyTo(out);
+			strings.copyTo(out);
+
+			return out.array();
+		}
+
+		/**
+		 * @return power of two number of slots, at most half full
+		 */
+		private static int slots(int count) {
+
+			int slots = 1;
+			while (slots < count * 2) {
+				slots <<= 1;
+			}
+
+			return count == 0 ? 0 : slots;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void value(String name, Object value, ByteBuilder entries) {
+
+			if (value instanceof Boolean) {
+				entries.putInt(BOOL).putLong((Boolean) value ? 1 : 0);
+			}
+			else if (value instanceof Integer) {
+				entries.putInt(INT).putLong((Integer) value);
+			}
+			else if (value instanceof Long) {
+				entries.putInt(LONG).putLong((Long) value);
+			}
+			else if (value instanceof Double) {
+				entries.putInt(DOUBLE).putLong(Double.doubleToLongBits((Double) value));
+			}
+			else if (value instanceof String) {
+				entries.putInt(STRING).putLong(ref((String) value));
+			}
+			else if (value instanceof java.net.URI) {
+				entries.putInt(URI).putLong(ref(value.toString()));
+			}
+			else if (value instanceof IntList) {
+
+				IntList list = (IntList) value;
+				entries.putInt(INT_LIST).putLong(values.length());
+
+				values.putInt(list.size());
+				for (int item = 0; item < list.size(); item++) {
+					values.putInt(list.get(item));
+				}
+			}
+			else if (value instanceof LongList) {
+
+				LongList list = (LongList) value;
+				entries.putInt(LONG_LIST).putLong(values.length());
+
+				values.putInt(list.size());
+				for (int item = 0; item < list.size(); item++) {
+					values.putLong(list.get(item));
+				}
+			}
+			else if (value instanceof List && canStore(value)) {
+
+				List<String> list = (List<String>) value;
+				entries.putInt(STRING_LIST).putLong(values.length());
+
+				values.putInt(list.size());
+				for (String item : list) {
+					values.putInt(ref(item));
+				}
+			}
+			else {
+				throw new IllegalArgumentException("Setting: " + name + ", of type: " + (value == null ? null : value.getClass().getName()) + ", can't be stored in snapshot!");
+			}
+		}
+
+		private int ref(String value) {
+
+			Integer ref = stringRefs.get(value);
+			if (ref == null) {
+
+				ref = strings.length();
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				strings.putInt(bytes.length);
+				strings.put(bytes);
+
+				stringRefs.put(value, ref);
+			}
+
+			return ref;
+		}
+	}
+
+	/**
+	 * Growable big endian byte array
+	 */
+	private static final class ByteBuilder {
+
+		private byte[] bytes = new byte[256];
+
+		private int length;
+
+		private int length() {
+
+			return length;
+		}
+
+		private ByteBuilder putInt(int value) {
+
+			ensure(4);
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				bytes[length++] = (byte) (value >>> shift);
+			}
+
+			return this;
+		}
+
+		private ByteBuilder putLong(long value) {
+
+			ensure(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				bytes[length++] = (byte) (value >>> shift);
+			}
+
+			return this;
+		}
+
+		private void put(byte[] value) {
+
+			ensure(value.length);
+			System.arraycopy(value, 0, bytes, length, value.length);
+			length += value.length;
+		}
+
+		private void ensure(int size) {
+
+			if (length + size > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+			}
+		}
+
+		private void copyTo(ByteBuffer out) {
+
+			out.put(bytes, 0, length);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package com.zandero.cmd;
+
+/**
+ * Splits a single command line into tokens following POSIX shell quoting rules:
+ * <ul>
+ * <li>tokens are separated by whitespace</li>
+ * <li>chars in single quotes are taken literally</li>
+ * <li>in double quotes a backslash only escapes $ ` " \ and new line</li>
+ * <li>outside quotes a backslash escapes any char, backslash followed by new line is removed</li>
+ * </ul>
+ * Plain tokens are handed out as ranges of the given command line,
+ * only tokens holding quotes or escapes are copied (into a single reused buffer)
+ */
+final class ShellTokens implements Tokens {
+
+	private final CharSequence line;
+
+	private final StringBuilder buffer = new StringBuilder();
+
+	private int position;
+
+	private CharSequence chars;
+
+	private int start;
+
+	private int end;
+
+	ShellTokens(CharSequence commandLine) {
+
+		line = commandLine == null ? "" : commandLine;
+	}
+
+	@Override
+	public boolean next() throws CommandLineException {
+
+		int length = line.length();
+		while (position < length && Character.isWhitespace(line.charAt(position))) {
+			position++;
+		}
+
+		if (position >= length) {
+			chars = null;
+			return false;
+		}
+
+		// plain token ... no copy needed
+		int index = position;
+		while (index < length) {
+
+			char value = line.charAt(index);
+			if (Character.isWhitespace(value)) {
+				break;
+			}
+
+			if (value == '\'' || value == '"' || value == '\\') {
+				return quoted(index);
+			}
+
+			index++;
+		}
+
+		chars = line;
+		start = position;
+		end = index;
+		position = index;
+		return true;
+	}
+
+	/**
+	 * Copies token holding quotes or escapes into buffer
+	 *
+	 * @param index of first quote or escape
+	 */
+	private boolean quoted(int index) throws CommandLineException {
+
+		buffer.setLength(0);
+		buffer.append(line, position, index);
+
+		int length = line.length();
+		while (index < length) {
+
+			char value = line.charAt(index);
+			if (Character.isWhitespace(value)) {
+				break;
+			}
+
+			switch (value) {
+				case '\'':
+					int close = indexOf('\'', index + 1);
+					buffer.append(line, index + 1, close);
+					index = close + 1;
+					break;
+
+				case '"':
+					index = doubleQuoted(index + 1);
+					break;
+
+				case '\\':
+					if (index + 1 < length && line.charAt(index + 1) != '\n') {
+						buffer.append(line.charAt(index + 1));
+					}
+
+					index = Math.min(index + 2, length);
+					break;
+
+				default:
+					buffer.append(value);
+					index++;
+			}
+		}
+
+		chars = buffer;
+		start = 0;
+		end = buffer.length();
+		position = index;
+		return true;
+	}
+
+	/**
+	 * @param index first char after opening quote
+	 * @return index after closing quote
+	 */
+	private int doubleQuoted(int index) throws CommandLineException {
+
+		int length = line.length();
+		while (index < length) {
+
+			char value = line.charAt(index);
+			if (value == '"') {
+				return index + 1;
+			}
+
+			if (value == '\\' && index + 1 < length) {
+
+				char next = line.charAt(index + 1);
+				if (next == '$' || next == '`' || next == '"' || next == '\\' || next == '\n') {
+
+					if (next != '\n') {
+						buffer.append(next);
+					}
+
+					index += 2;
+					continue;
+				}
+			}
+
+			buffer.append(value);
+			index++;
+		}
+
+		throw new CommandLineException("Missing closing quote (\") in: " + line);
+	}
+
+	private int indexOf(char quote, int index) throws CommandLineException {
+
+		for (int i = index; i < line.length(); i++) {
+			if (line.charAt(i) == quote) {
+				return i;
+			}
+		}
+
+		throw new CommandLineException("Missing closing quote (" + quote + ") in: " + line);
+	}
+
+	@Override
+	public CharSequence chars() {
+
+		return chars;
+	}
+
+	@Override
+	public int start() {
+
+		return start;
+	}
+
+	@Override
+	public int end() {
+
+		return end;
+	}
+
+	@Override
+	public String string() {
+
+		return chars.subSequence(start, end).toString();
+	}
+}
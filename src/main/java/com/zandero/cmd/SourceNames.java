@@ -0,0 +1,130 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.CommandOption;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Environment variable and system property names of options by ordinal, compiled once per spec and prefixes
+ * Option names given with {@link CommandOption#env(String)} and {@link CommandOption#property(String)} win over names derived from prefix and setting.
+ */
+final class SourceNames {
+
+	private final String[] environment;
+
+	private final String[] properties;
+
+	/**
+	 * No option is read from environment or system properties
+	 */
+	private final boolean empty;
+
+	/**
+	 * @param spec              of options
+	 * @param environmentPrefix prefix of derived environment variable names, "APP_" maps setting "threads" to APP_THREADS, null to not derive names
+	 * @param propertyPrefix    prefix of derived system property names, "app." maps setting "threads" to app.threads, null to not derive names
+	 */
+	SourceNames(CommandSpec spec, String environmentPrefix, String propertyPrefix) {
+
+		environment = new String[spec.size()];
+		properties = new String[spec.size()];
+
+		int count = 0;
+
+		for (int ordinal = 0; ordinal < spec.size(); ordinal++) {
+
+			CommandOption<?> option = spec.get(ordinal);
+
+			environment[ordinal] = option.getEnv() != null ? option.getEnv() : environmentName(environmentPrefix, option.getSetting());
+			properties[ordinal] = option.getProperty() != null ? option.getProperty() : propertyName(propertyPrefix, option.getSetting());
+
+			if (environment[ordinal] != null || properties[ordinal] != null) {
+				count++;
+			}
+		}
+
+		empty = count == 0;
+	}
+
+	/**
+	 * @return APP_ + file-system = APP_FILE_SYSTEM, or null if no prefix
+	 */
+	static String environmentName(String prefix, String setting) {
+
+		if (prefix == null) {
+			return null;
+		}
+
+		StringBuilder out = new StringBuilder(prefix.length() + setting.length()).append(prefix);
+		for (int index = 0; index < setting.length(); index++) {
+
+			char value = setting.charAt(index);
+			out.append(Character.isLetterOrDigit(value) ? Character.toUpperCase(value) : '_');
+		}
+
+		return out.toString();
+	}
+
+	/**
+	 * @return app. + threads = app.threads, or null if no prefix
+	 */
+	static String propertyName(String prefix, String setting) {
+
+		return prefix == null ? null : prefix + setting;
+	}
+
+	/**
+	 * @return true if no option is read from environment or system properties
+	 */
+	boolean isEmpty() {
+
+		return empty;
+	}
+
+	/**
+	 * @return environment variable name of option or null if none
+	 */
+	String environment(int ordinal) {
+
+		return environment[ordinal];
+	}
+
+	/**
+	 * @return system property name of option or null if none
+	 */
+	String property(int ordinal) {
+
+		return properties[ordinal];
+	}
+
+	/**
+	 * Looks up option value, system property wins over environment variable
+	 *
+	 * @param ordinal          of option
+	 * @param variables        environment snapshot
+	 * @param systemProperties system properties
+	 * @return value or null if option is not given in either
+	 */
+	String value(int ordinal, Map<String, String> variables, Properties systemProperties) {
+
+		String value = properties[ordinal] == null ? null : systemProperties.getProperty(properties[ordinal]);
+		if (value == null && environment[ordinal] != null) {
+			value = variables.get(environment[ordinal]);
+		}
+
+		return value;
+	}
+
+	/**
+	 * @return description of source of value as returned by {@link #value(int, Map, Properties)}
+	 */
+	String source(int ordinal, Properties systemProperties) {
+
+		if (properties[ordinal] != null && systemProperties.getProperty(properties[ordinal]) != null) {
+			return "system property " + properties[ordinal];
+		}
+
+		return "environment variable " + environment[ordinal];
+	}
+}
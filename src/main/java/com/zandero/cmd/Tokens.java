@@ -0,0 +1,36 @@
+package com.zandero.cmd;
+
+/**
+ * Source of command line tokens
+ * Current token is exposed as a range of chars, so sources can hand out tokens without creating Strings
+ */
+interface Tokens {
+
+	/**
+	 * Moves to next token
+	 *
+	 * @return true if there is a next token, false if all tokens were consumed
+	 * @throws CommandLineException in case next token could not be read
+	 */
+	boolean next() throws CommandLineException;
+
+	/**
+	 * @return chars holding current token
+	 */
+	CharSequence chars();
+
+	/**
+	 * @return start of current token in chars (inclusive)
+	 */
+	int start();
+
+	/**
+	 * @return end of current token in chars (exclusive)
+	 */
+	int end();
+
+	/**
+	 * @return current token as String
+	 */
+	String string();
+}
@@ -0,0 +1,419 @@
+package com.zandero.cmd;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Simple YAML config: nested block mappings, block lists and flow lists of scalars
+ * <pre>
+ * threads: 4
+ * server:
+ *   port: 8080
+ * files:
+ *   - a.txt
+ *   - 'b.txt'
+ * tags: [one, two]
+ * </pre>
+ * Nested names are joined with dots (server.port), each list item is reported under name of list, nulls (~) are skipped.
+ * Anchors, block scalars (| and &gt;), flow mappings and mappings inside lists are not supported.
+ */
+final class YamlFormat implements ConfigFormat {
+
+	@Override
+	public boolean accepts(String fileName) {
+
+		return fileName.endsWith(".yaml") || fileName.endsWith(".yml");
+	}
+
+	@Override
+	public boolean sniff(byte[] head, int length) {
+
+		// first line that is not blank or comment is either a document start or "name:"
+		int index = 0;
+		while (index < length) {
+
+			while (index < length && head[index] <= ' ') {
+				index++;
+			}
+
+			if (index < length && head[index] == '#') {
+				while (index < length && head[index] != '\n') {
+					index++;
+				}
+				continue;
+			}
+
+			break;
+		}
+
+		if (index + 3 <= length && head[index] == '-' && head[index + 1] == '-' && head[index + 2] == '-') {
+			return true;
+		}
+
+		for (; index < length && head[index] != '\n'; index++) {
+
+			if (head[index] == '=' || head[index] == '"' || head[index] == '\'') {
+				return false;
+			}
+
+			if (head[index] == ':') {
+				return index + 1 == length || head[index + 1] <= ' ';
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public void parse(Input input, Handler handler) throws IOException, CommandLineException {
+
+		new Reader(input, handler).document();
+	}
+
+	/**
+	 * Reads line by line, keeping stack of parent names by indentation
+	 */
+	private static final class Reader {
+
+		private final Input input;
+
+		private final Handler handler;
+
+		private final ByteChars line = new ByteChars();
+
+		private final ByteChars path = new ByteChars();
+
+		/**
+		 * Indentation and path length of parent names
+		 */
+		private int[] indents = new int[8];
+
+		private int[] lengths = new int[8];
+
+		private int depth;
+
+		private int lineNumber;
+
+		private Reader(Input input, Handler handler) {
+
+			this.input = input;
+			this.handler = handler;
+		}
+
+		private void document() throws IOException, CommandLineException {
+
+			int value = input.read();
+			while (value >= 0) {
+
+				line.clear();
+				while (value >= 0 && value != '\n') {
+					line.append(value);
+					value = input.read();
+				}
+
+				lineNumber++;
+				line();
+				value = input.read();
+			}
+		}
+
+		private void line() throws CommandLineException {
+
+			int indent = 0;
+			while (indent < line.length() && line.byteAt(indent) == ' ') {
+				indent++;
+			}
+
+			int end = trim(indent, commentStart(indent));
+			if (indent == end) {
+				return;
+			}
+
+			if (line.byteAt(indent) == '\t') {
+				throw error("tabs can't be used for indentation");
+			}
+
+			if (isMarker(indent, end, '-') || isMarker(indent, end, '.')) { // document start or end
+				depth = 0;
+				return;
+			}
+
+			if (line.byteAt(indent) == '-' && (indent + 1 == end || line.byteAt(indent + 1) == ' ')) {
+				item(indent, end);
+			}
+			else {
+				mapping(indent, end);
+			}
+		}
+
+		/**
+		 * List item: - value, belongs to last name with lower (or same) indentation
+		 */
+		private void item(int indent, int end) throws CommandLineException {
+
+			while (depth > 0 && indents[depth - 1] > indent) {
+				depth--;
+			}
+
+			if (depth == 0) {
+				throw error("list item without name");
+			}
+
+			path.truncate(lengths[depth - 1]);
+
+			int start = skipSpaces(indent + 1, end);
+			if (start < end && nameEnd(start, end) >= 0 && line.byteAt(start) != '\'' && line.byteAt(start) != '"') {
+				throw error("mappings in lists are not supported");
+			}
+
+			scalar(start, end);
+		}
+
+		/**
+		 * name: value, or name: followed by nested lines
+		 */
+		private void mapping(int indent, int end) throws CommandLineException {
+
+			int colon = nameEnd(indent, end);
+			if (colon < 0) {
+				throw error("expected name: value");
+			}
+
+			while (depth > 0 && indents[depth - 1] >= indent) {
+				depth--;
+			}
+
+			int parent = depth > 0 ? lengths[depth - 1] : 0;
+			path.truncate(parent);
+			if (parent > 0) {
+				path.append('.');
+			}
+
+			int nameStart = indent;
+			int nameEnd = trim(indent, colon);
+			if (nameEnd - nameStart >= 2 && (line.byteAt(nameStart) == '"' || line.byteAt(nameStart) == '\'') && line.byteAt(nameEnd - 1) == line.byteAt(nameStart)) {
+				nameStart++;
+				nameEnd--;
+			}
+
+			path.append(line, nameStart, nameEnd);
+
+			int start = skipSpaces(colon + 1, end);
+			if (start == end) { // nested names or list follow
+				push(indent, path.length());
+				return;
+			}
+
+			int first = line.byteAt(start);
+			if (first == '|' || first == '>' || first == '{' || first == '&' || first == '*') {
+				throw error("block scalars, flow mappings, anchors and aliases are not supported");
+			}
+
+			if (first == '[') {
+				flowList(start, end);
+			}
+			else {
+				scalar(start, end);
+			}
+
+			path.truncate(parent);
+		}
+
+		/**
+		 * [one, two, 'three']
+		 */
+		private void flowList(int start, int end) throws CommandLineException {
+
+			if (line.byteAt(end - 1) != ']') {
+				throw error("missing closing ]");
+			}
+
+			int index = start + 1;
+			end--;
+
+			while (index < end) {
+
+				int itemStart = skipSpaces(index, end);
+				int itemEnd = itemStart;
+				int quote = itemStart < end && (line.byteAt(itemStart) == '\'' || line.byteAt(itemStart) == '"') ? line.byteAt(itemStart) : 0;
+
+				if (quote != 0) {
+					itemEnd++;
+					while (itemEnd < end && line.byteAt(itemEnd) != quote) {
+						itemEnd++;
+					}
+					itemEnd = Math.min(itemEnd + 1, end);
+				}
+
+				while (itemEnd < end && line.byteAt(itemEnd) != ',') {
+					itemEnd++;
+				}
+
+				int trimmed = trim(itemStart, itemEnd);
+				if (trimmed > itemStart) {
+					scalar(itemStart, trimmed);
+				}
+
+				index = itemEnd + 1;
+			}
+		}
+
+		/**
+		 * Reports plain or quoted scalar
+		 */
+		private void scalar(int start, int end) throws CommandLineException {
+
+			String value = line.toString(start, end);
+
+			if (value.length() >= 2 && value.charAt(0) == '\'' && value.charAt(value.length() - 1) == '\'') {
+				value = value.substring(1, value.length() - 1).replace("''", "'");
+			}
+			else if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+				value = unescape(value.substring(1, value.length() - 1));
+			}
+			else if (value.equals("~") || value.equals("null")) {
+				return;
+			}
+
+			ConfigFileReader.value(handler, path, 0, path.length(), value);
+		}
+
+		private String unescape(String value) throws CommandLineException {
+
+			if (value.indexOf('\\') < 0) {
+				return value;
+			}
+
+			StringBuilder out = new StringBuilder(value.length());
+			for (int index = 0; index < value.length(); index++) {
+
+				char current = value.charAt(index);
+				if (current != '\\' || index + 1 == value.length()) {
+					out.append(current);
+					continue;
+				}
+
+				char escaped = value.charAt(++index);
+				switch (escaped) {
+					case 'n':
+						out.append('\n');
+						break;
+
+					case 't':
+						out.append('\t');
+						break;
+
+					case 'r':
+						out.append('\r');
+						break;
+
+					case '"':
+					case '\\':
+					case '/':
+						out.append(escaped);
+						break;
+
+					default:
+						throw error("unsupported escape: \\" + escaped);
+				}
+			}
+
+			return out.toString();
+		}
+
+		/**
+		 * @return index of ':' ending name (followed by space or end of line) or -1 if none
+		 */
+		private int nameEnd(int start, int end) {
+
+			int quote = 0;
+			for (int index = start; index < end; index++) {
+
+				int value = line.byteAt(index);
+				if (quote != 0) {
+					if (value == quote) {
+						quote = 0;
+					}
+				}
+				else if (index == start && (value == '"' || value == '\'')) {
+					quote = value;
+				}
+				else if (value == ':' && (index + 1 == end || line.byteAt(index + 1) == ' ')) {
+					return index;
+				}
+			}
+
+			return -1;
+		}
+
+		/**
+		 * @return index of # starting a comment (outside of quotes, at start or after whitespace) or end of line
+		 */
+		private int commentStart(int start) {
+
+			int quote = 0;
+			for (int index = start; index < line.length(); index++) {
+
+				int value = line.byteAt(index);
+				if (quote != 0) {
+					if (value == '\'' && quote == '\'' && index + 1 < line.length() && line.byteAt(index + 1) == '\'') {
+						index++; // '' in single quotes
+					}
+					else if (value == quote) {
+						quote = 0;
+					}
+				}
+				else if (value == '"' || value == '\'') {
+					if (index == start || line.byteAt(index - 1) == ' ' || line.byteAt(index - 1) == '[' || line.byteAt(index - 1) == ',') {
+						quote = value;
+					}
+				}
+				else if (value == '#' && (index == start || line.byteAt(index - 1) <= ' ')) {
+					return index;
+				}
+			}
+
+			return line.length();
+		}
+
+		private boolean isMarker(int start, int end, int value) {
+
+			return end - start == 3 && line.byteAt(start) == value && line.byteAt(start + 1) == value && line.byteAt(start + 2) == value;
+		}
+
+		private int skipSpaces(int index, int end) {
+
+			while (index < end && line.byteAt(index) <= ' ') {
+				index++;
+			}
+
+			return index;
+		}
+
+		private int trim(int start, int end) {
+
+			while (end > start && line.byteAt(end - 1) <= ' ') {
+				end--;
+			}
+
+			return end;
+		}
+
+		private void push(int indent, int length) {
+
+			if (depth == indents.length) {
+				indents = Arrays.copyOf(indents, depth * 2);
+				lengths = Arrays.copyOf(lengths, depth * 2);
+			}
+
+			indents[depth] = indent;
+			lengths[depth] = length;
+			depth++;
+		}
+
+		private CommandLineException error(String message) {
+
+			return new CommandLineException("Invalid YAML in: " + input.getName() + ", line " + lineNumber + ": " + message);
+		}
+	}
+}
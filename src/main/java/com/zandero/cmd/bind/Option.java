@@ -0,0 +1,53 @@
+package com.zandero.cmd.bind;
+
+import com.zandero.cmd.option.CommandOption;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks field to be bound to a command line option
+ *
+ * For instance: @Option(shortName = "t", longName = "threads") int threads = 4;
+ * Option type is taken from field type (int, boolean, String, URI, List, IntList, LongList, ValueSource) unless given with {@link #type()},
+ * field initial value is used as option default
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Option {
+
+	/**
+	 * @return short command name, for instance: "t"
+	 */
+	String shortName();
+
+	/**
+	 * @return long command name, for instance: "threads" (none if empty)
+	 */
+	String longName() default "";
+
+	/**
+	 * @return setting name (field name if empty)
+	 */
+	String setting() default "";
+
+	/**
+	 * @return description shown in help screen
+	 */
+	String description() default "";
+
+	/**
+	 * @return true if option must be given
+	 */
+	boolean required() default false;
+
+	/**
+	 * @return option class to use, must have a public constructor taking short name (deduced from field type if not given)
+	 */
+	@SuppressWarnings("rawtypes")
+	Class<? extends CommandOption> type() default CommandOption.class;
+}
@@ -0,0 +1,298 @@
+package com.zandero.cmd.bind;
+
+import com.zandero.cmd.CommandBuilder;
+import com.zandero.cmd.CommandLineException;
+import com.zandero.cmd.CommandLineParser;
+import com.zandero.cmd.CommandSpec;
+import com.zandero.cmd.OptionKey;
+import com.zandero.cmd.OptionValues;
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.IntList;
+import com.zandero.cmd.option.IntListOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.LongList;
+import com.zandero.cmd.option.LongListOption;
+import com.zandero.cmd.option.MultiArgOption;
+import com.zandero.cmd.option.StreamOption;
+import com.zandero.cmd.option.StringOption;
+import com.zandero.cmd.option.UrlOption;
+import com.zandero.cmd.option.ValueSource;
+import com.zandero.utils.Assert;
+import com.zandero.utils.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds parsed options to fields annotated with {@link Option}
+ * Options and field setters are resolved once per class, binder is cached and can be shared among threads
+ *
+ * @param <T> type to bind options to
+ */
+public final class OptionBinder<T> {
+
+	private static final ClassValue<OptionBinder<?>> binders = new ClassValue<OptionBinder<?>>() {
+
+		@Override
+		protected OptionBinder<?> computeValue(Class<?> type) {
+
+			return new OptionBinder<>(type);
+		}
+	};
+
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	private final MethodHandle constructor;
+
+	private final CommandSpec spec;
+
+	private final CommandLineParser parser;
+
+	private final Binding[] bindings;
+
+	private OptionBinder(Class<T> type) {
+
+		try {
+			constructor = constructor(type);
+
+			// fields initialized by constructor are used as defaults
+			Object prototype = constructor.invoke();
+
+			CommandBuilder builder = new CommandBuilder();
+			List<Field> fields = new ArrayList<>();
+			List<CommandOption<?>> options = new ArrayList<>();
+
+			for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+
+				for (Field field : clazz.getDeclaredFields()) {
+
+					Option annotation = field.getAnnotation(Option.class);
+					if (annotation == null) {
+						continue;
+					}
+
+					Assert.isFalse(Modifier.isStatic(field.getModifiers()), "Option field: " + field + " can't be static!");
+					field.setAccessible(true);
+
+					CommandOption<?> option = option(field, annotation, field.get(prototype));
+					builder.add(option);
+
+					fields.add(field);
+					options.add(option);
+				}
+			}
+
+			spec = builder.build();
+			parser = new CommandLineParser(spec);
+
+			bindings = new Binding[fields.size()];
+			for (int index = 0; index < bindings.length; index++) {
+				bindings[index] = new Binding(spec.key(options.get(index)), fields.get(index));
+			}
+		}
+		catch (IllegalArgumentException e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new IllegalArgumentException("Failed to bind options to: " + type.getName() + ", " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Gets cached binder for given type
+	 *
+	 * @param type with fields annotated by {@link Option}, must have a no argument constructor
+	 * @param <T>  bound type
+	 * @return binder
+	 * @throws IllegalArgumentException in case type can't be bound
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> OptionBinder<T> of(Class<T> type) {
+
+		Assert.notNull(type, "Missing class to bind options to!");
+		return (OptionBinder<T>) binders.get(type);
+	}
+
+	/**
+	 * @return options compiled from annotated fields
+	 */
+	public CommandSpec getSpec() {
+
+		return spec;
+	}
+
+	/**
+	 * Parses arguments into new instance
+	 *
+	 * @param arguments to be parsed
+	 * @return instance holding parsed options
+	 * @throws CommandLineException in case parsing failed
+	 */
+	public T parse(String[] arguments) throws CommandLineException {
+
+		return bind(parser.parseValues(arguments));
+	}
+
+	/**
+	 * Binds parsed values into new instance
+	 *
+	 * @param values parsed with {@link #getSpec()}
+	 * @return instance holding given values
+	 */
+	@SuppressWarnings("unchecked")
+	public T bind(OptionValues values) {
+
+		Assert.notNull(values, "Missing option values!");
+
+		try {
+			Object instance = constructor.invokeExact();
+			for (Binding binding : bindings) {
+				binding.set(instance, values);
+			}
+
+			return (T) instance;
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new IllegalStateException("Failed to bind options: " + e.getMessage(), e);
+		}
+	}
+
+	private static MethodHandle constructor(Class<?> type) throws IllegalAccessException {
+
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+		}
+		catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Missing no argument constructor in: " + type.getName());
+		}
+	}
+
+	private static CommandOption<?> option(Field field, Option annotation, Object initial) throws ReflectiveOperationException {
+
+		CommandOption<?> option = create(field, annotation);
+
+		if (!StringUtils.isNullOrEmptyTrimmed(annotation.longName())) {
+			option.longCommand(annotation.longName());
+		}
+
+		option.setting(StringUtils.isNullOrEmptyTrimmed(annotation.setting()) ? field.getName() : annotation.setting());
+		option.description(annotation.description());
+
+		if (annotation.required()) {
+			option.required();
+		}
+		else if (initial != null) {
+			option.defaultsTo(initial);
+		}
+
+		return option;
+	}
+
+	private static CommandOption<?> create(Field field, Option annotation) throws ReflectiveOperationException {
+
+		String name = annotation.shortName();
+		if (annotation.type() != CommandOption.class) {
+			return annotation.type().getConstructor(String.class).newInstance(name);
+		}
+
+		Class<?> type = field.getType();
+		if (type == int.class || type == Integer.class) {
+			return new IntOption(name);
+		}
+
+		if (type == boolean.class || type == Boolean.class) {
+			return new BoolOption(name);
+		}
+
+		if (type == String.class) {
+			return new StringOption(name);
+		}
+
+		if (type == URI.class) {
+			return new UrlOption(name);
+		}
+
+		if (type == List.class) {
+			return new MultiArgOption(name);
+		}
+
+		if (type == IntList.class) {
+			return new IntListOption(name);
+		}
+
+		if (type == LongList.class) {
+			return new LongListOption(name);
+		}
+
+		if (type == ValueSource.class) {
+			return new StreamOption<String>(name);
+		}
+
+		throw new IllegalArgumentException("Can't deduce option type of field: " + field + ", set it with @Option(type = ...)");
+	}
+
+	/**
+	 * Sets single field from option value
+	 */
+	private static final class Binding {
+
+		private static final byte OBJECT = 0;
+
+		private static final byte INT = 1;
+
+		private static final byte BOOL = 2;
+
+		private final OptionKey<?> key;
+
+		private final MethodHandle setter;
+
+		private final byte kind;
+
+		private Binding(OptionKey<?> key, Field field) throws IllegalAccessException {
+
+			this.key = key;
+
+			Class<?> type = field.getType();
+			kind = type == int.class ? INT : type == boolean.class ? BOOL : OBJECT;
+
+			// erase declaring class so setter can be invoked exactly
+			Class<?> valueType = kind == INT ? int.class : kind == BOOL ? boolean.class : Object.class;
+			setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, valueType));
+		}
+
+		@SuppressWarnings("unchecked")
+		private void set(Object instance, OptionValues values) throws Throwable {
+
+			if (!values.isSet(key)) {
+				// keep field initial value
+				return;
+			}
+
+			switch (kind) {
+				case INT:
+					setter.invokeExact(instance, values.getInt((OptionKey<Integer>) key));
+					break;
+
+				case BOOL:
+					setter.invokeExact(instance, values.getBool((OptionKey<Boolean>) key));
+					break;
+
+				default:
+					setter.invokeExact(instance, values.get(key));
+			}
+		}
+	}
+}
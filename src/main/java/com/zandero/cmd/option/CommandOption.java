@@ -14,6 +14,18 @@ import java.util.List;
  */
 public abstract class CommandOption<T> {
 
+	/**
+	 * Generic class type resolved once per option class
+	 */
+	private static final ClassValue<Type> types = new ClassValue<Type>() {
+
+		@Override
+		protected Type computeValue(Class<?> clazz) {
+
+			return getParametrizedType(clazz);
+		}
+	};
+
 	/**
 	 * Short command version: -a
 	 */
@@ -49,6 +61,18 @@ public abstract class CommandOption<T> {
 	 */
 	private boolean required = false;
 
+	/**
+	 * Is option always parsed when given, even if parser converts values lazily
+	 */
+	private boolean eager = false;
+
+	/**
+	 * Environment variable and system property option is read from when not given in command line
+	 */
+	private String environment;
+
+	private String property;
+
 	/**
 	 * List of messages to display as help
 	 */
@@ -61,7 +85,7 @@ public abstract class CommandOption<T> {
 	public CommandOption() {
 
 		// find out generic class type given in derived class
-		type = getParametrizedType(this.getClass());
+		type = types.get(this.getClass());
 		command = null;
 	}
 
@@ -79,11 +103,11 @@ public abstract class CommandOption<T> {
 		Assert.isTrue(shortName.equals(compare), "Option name can not contain whitespace characters!");
 
 		// find out generic class type given in derived class
-		type = getParametrizedType(this.getClass());
+		type = types.get(this.getClass());
 		command = shortName;
 	}
 
-	private Type getParametrizedType(Class<?> clazz) {
+	private static Type getParametrizedType(Class<?> clazz) {
 
 		try {
 
@@ -159,27 +183,92 @@ public abstract class CommandOption<T> {
 	 */
 	public CommandOption<T> defaultsTo(Object aDefault) {
 
-		if (aDefault == null) {
-			defaultValue = null;
-			return this;
+		defaultValue = cast(aDefault);
+		return this;
+	}
+
+	/**
+	 * Checks if value is of option type
+	 *
+	 * @param value to check
+	 * @return value cast to option type
+	 * @throws IllegalArgumentException in case value is not of option type
+	 */
+	public T cast(Object value) {
+
+		if (value == null) {
+			return null;
 		}
 
 		boolean isCorrectType;
 		if (type instanceof ParameterizedType) {
-			isCorrectType = ((Class) ((ParameterizedType) type).getRawType()).isInstance(aDefault);
+			isCorrectType = ((Class) ((ParameterizedType) type).getRawType()).isInstance(value);
 		}
 		else {
-			isCorrectType = ((Class) type).isInstance(aDefault);
+			isCorrectType = ((Class) type).isInstance(value);
 		}
 
 		if (!isCorrectType) {
-			throw new IllegalArgumentException("Expected default setting of type: " + type.getTypeName() + ", but was provided: " + aDefault.getClass().getName());
+			throw new IllegalArgumentException("Expected default setting of type: " + type.getTypeName() + ", but was provided: " + value.getClass().getName());
 		}
 
-		defaultValue = (T) aDefault;
+		return (T) value;
+	}
+
+	/**
+	 * Copies value shared among parses (cached config file settings or defaults), so each parse gets own value
+	 * Value is returned as is by default, to be overridden by options with mutable or single use values
+	 *
+	 * @param value shared value, not null
+	 * @return copy of value
+	 */
+	public T copy(T value) {
+
+		return value;
+	}
+
+	/**
+	 * Sets environment variable option value is taken from when not given in command line
+	 *
+	 * @param variable name, for instance: "APP_THREADS"
+	 * @return command option
+	 */
+	public CommandOption<T> env(String variable) {
+
+		Assert.notNullOrEmptyTrimmed(variable, "Missing environment variable name!");
+		environment = StringUtils.trim(variable);
+		return this;
+	}
+
+	/**
+	 * Sets system property option value is taken from when not given in command line
+	 *
+	 * @param name of property, for instance: "app.threads"
+	 * @return command option
+	 */
+	public CommandOption<T> property(String name) {
+
+		Assert.notNullOrEmptyTrimmed(name, "Missing system property name!");
+		property = StringUtils.trim(name);
 		return this;
 	}
 
+	/**
+	 * @return environment variable name or null if not set
+	 */
+	public String getEnv() {
+
+		return environment;
+	}
+
+	/**
+	 * @return system property name or null if not set
+	 */
+	public String getProperty() {
+
+		return property;
+	}
+
 	public CommandOption<T> required() {
 		required = true;
 		return this;
@@ -243,6 +332,25 @@ public abstract class CommandOption<T> {
 		return type != null && !type.equals(Void.class) && !type.equals(Boolean.class);
 	}
 
+	/**
+	 * Option is parsed when given, even when parser converts values on first access
+	 *
+	 * @return command option
+	 */
+	public CommandOption<T> eager() {
+
+		eager = true;
+		return this;
+	}
+
+	/**
+	 * @return true if option must be parsed when given, false if it can be parsed on first access
+	 */
+	public boolean isEager() {
+
+		return eager;
+	}
+
 	public boolean isRequired() {
 		return required;
 	}
@@ -1,9 +1,14 @@
 package com.zandero.cmd.option;
 
 import com.zandero.cmd.CommandLineException;
-import com.zandero.utils.Assert;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Reads configured options from a given file
@@ -22,6 +27,7 @@ public class FileOption extends CommandOption<String> {
 
 	/**
 	 * Expects file that is available and readable
+	 * File attributes are read with a single call, followed by read access check
 	 *
 	 * @param argument given argument in command line
 	 * @return absolute file path
@@ -33,15 +39,27 @@ public class FileOption extends CommandOption<String> {
 
 		File file = new File(argument);
 
+		BasicFileAttributes attributes;
+		Path path;
 		try {
-			Assert.isTrue(file.exists(), "File '" + file + "' does not exist");
-			Assert.isFalse(file.isDirectory(), "File '" + file + "' is a directory");
-			Assert.isTrue(file.canRead(), "File '" + file + "' cannot be read");
+			path = file.toPath();
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
 		}
-		catch (IllegalArgumentException e) {
-			throw new CommandLineException(e.getMessage());
+		catch (NoSuchFileException | InvalidPathException e) {
+			throw new CommandLineException("File '" + file + "' does not exist");
+		}
+		catch (IOException e) {
+			throw new CommandLineException("File '" + file + "' cannot be read");
+		}
+
+		if (attributes.isDirectory()) {
+			throw new CommandLineException("File '" + file + "' is a directory");
+		}
+
+		if (!Files.isReadable(path)) {
+			throw new CommandLineException("File '" + file + "' cannot be read");
 		}
 
-		return file.getAbsolutePath();
+		return path.toAbsolutePath().toString();
 	}
 }
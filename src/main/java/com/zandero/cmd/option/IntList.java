@@ -0,0 +1,142 @@
+package com.zandero.cmd.option;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Growable list of int values, stored without boxing
+ */
+public final class IntList {
+
+	private int[] values;
+
+	private int size;
+
+	public IntList() {
+
+		this(16);
+	}
+
+	/**
+	 * @param capacity initial capacity
+	 */
+	public IntList(int capacity) {
+
+		values = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * @param items to hold
+	 * @return list holding given items
+	 */
+	public static IntList of(int... items) {
+
+		IntList out = new IntList(items.length);
+		System.arraycopy(items, 0, out.values, 0, items.length);
+		out.size = items.length;
+		return out;
+	}
+
+	/**
+	 * @param value to add
+	 */
+	public void add(int value) {
+
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size + (size >> 1) + 1);
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * @param index of value
+	 * @return value at index
+	 * @throws IndexOutOfBoundsException in case index is out of range
+	 */
+	public int get(int index) {
+
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+
+		return values[index];
+	}
+
+	public int size() {
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+
+		return size == 0;
+	}
+
+	/**
+	 * @return copy of values
+	 */
+	public int[] toArray() {
+
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * @return stream of values
+	 */
+	public IntStream stream() {
+
+		return Arrays.stream(values, 0, size);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (this == o) {
+			return true;
+		}
+
+		if (!(o instanceof IntList)) {
+			return false;
+		}
+
+		IntList other = (IntList) o;
+		if (size != other.size) {
+			return false;
+		}
+
+		for (int index = 0; index < size; index++) {
+			if (values[index] != other.values[index]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+
+		int hash = 1;
+		for (int index = 0; index < size; index++) {
+			hash = 31 * hash + values[index];
+		}
+
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder out = new StringBuilder("[");
+		for (int index = 0; index < size; index++) {
+			if (index > 0) {
+				out.append(", ");
+			}
+
+			out.append(values[index]);
+		}
+
+		return out.append(']').toString();
+	}
+}
@@ -0,0 +1,72 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+
+/**
+ * Option taking multiple int values: --shards 1 2 3, or --shards 1,2,3
+ * Values are held in an {@link IntList} without boxing
+ */
+public class IntListOption extends MultiValueOption<IntList> {
+
+	/**
+	 * Initializes command option
+	 *
+	 * @param shortName short command name, for instance: "a"
+	 */
+	public IntListOption(String shortName) {
+
+		super(shortName);
+	}
+
+	@Override
+	public IntList empty() {
+
+		return new IntList();
+	}
+
+	@Override
+	public int size(IntList values) {
+
+		return values.size();
+	}
+
+	@Override
+	public IntList copy(IntList values) {
+
+		return IntList.of(values.toArray());
+	}
+
+	@Override
+	protected void add(IntList values, String argument) throws CommandLineException {
+
+		int length = argument == null ? 0 : argument.length();
+		int index = 0;
+
+		while (index < length) {
+
+			if (isSeparator(argument.charAt(index))) {
+				index++;
+				continue;
+			}
+
+			int end = index + 1;
+			while (end < length && !isSeparator(argument.charAt(end))) {
+				end++;
+			}
+
+			try {
+				long value = LongListOption.parseLong(argument, index, end);
+				if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+					throw new NumberFormatException();
+				}
+
+				values.add((int) value);
+			}
+			catch (NumberFormatException e) {
+				throw new CommandLineException("Integer expected for " + getCommand() + ", but: '" + argument.substring(index, end) + "', was given!");
+			}
+
+			index = end;
+		}
+	}
+}
@@ -25,6 +25,18 @@ public class IntOption extends CommandOption<Integer> {
 	@Override
 	public Integer parse(String argument) throws CommandLineException {
 
+		return parseInt(argument);
+	}
+
+	/**
+	 * Parses argument without boxing
+	 *
+	 * @param argument given argument in command line
+	 * @return parsed value
+	 * @throws CommandLineException in case argument is not an integer or is out of min, max range
+	 */
+	public int parseInt(String argument) throws CommandLineException {
+
 		if (StringUtils.isNullOrEmptyTrimmed(argument)) {
 			throw new CommandLineException("Integer expected for " + getCommand() + ", but: '" + argument + "', was given!");
 		}
@@ -0,0 +1,142 @@
+package com.zandero.cmd.option;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Growable list of long values, stored without boxing
+ */
+public final class LongList {
+
+	private long[] values;
+
+	private int size;
+
+	public LongList() {
+
+		this(16);
+	}
+
+	/**
+	 * @param capacity initial capacity
+	 */
+	public LongList(int capacity) {
+
+		values = new long[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * @param items to hold
+	 * @return list holding given items
+	 */
+	public static LongList of(long... items) {
+
+		LongList out = new LongList(items.length);
+		System.arraycopy(items, 0, out.values, 0, items.length);
+		out.size = items.length;
+		return out;
+	}
+
+	/**
+	 * @param value to add
+	 */
+	public void add(long value) {
+
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size + (size >> 1) + 1);
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * @param index of value
+	 * @return value at index
+	 * @throws IndexOutOfBoundsException in case index is out of range
+	 */
+	public long get(int index) {
+
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+
+		return values[index];
+	}
+
+	public int size() {
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+
+		return size == 0;
+	}
+
+	/**
+	 * @return copy of values
+	 */
+	public long[] toArray() {
+
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * @return stream of values
+	 */
+	public LongStream stream() {
+
+		return Arrays.stream(values, 0, size);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (this == o) {
+			return true;
+		}
+
+		if (!(o instanceof LongList)) {
+			return false;
+		}
+
+		LongList other = (LongList) o;
+		if (size != other.size) {
+			return false;
+		}
+
+		for (int index = 0; index < size; index++) {
+			if (values[index] != other.values[index]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+
+		int hash = 1;
+		for (int index = 0; index < size; index++) {
+			hash = 31 * hash + Long.hashCode(values[index]);
+		}
+
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder out = new StringBuilder("[");
+		for (int index = 0; index < size; index++) {
+			if (index > 0) {
+				out.append(", ");
+			}
+
+			out.append(values[index]);
+		}
+
+		return out.append(']').toString();
+	}
+}
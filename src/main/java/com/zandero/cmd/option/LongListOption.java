@@ -0,0 +1,110 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+
+/**
+ * Option taking multiple long values: --ids 1 2 3, or --ids 1,2,3
+ * Values are held in a {@link LongList} without boxing
+ */
+public class LongListOption extends MultiValueOption<LongList> {
+
+	/**
+	 * Initializes command option
+	 *
+	 * @param shortName short command name, for instance: "a"
+	 */
+	public LongListOption(String shortName) {
+
+		super(shortName);
+	}
+
+	@Override
+	public LongList empty() {
+
+		return new LongList();
+	}
+
+	@Override
+	public int size(LongList values) {
+
+		return values.size();
+	}
+
+	@Override
+	public LongList copy(LongList values) {
+
+		return LongList.of(values.toArray());
+	}
+
+	@Override
+	protected void add(LongList values, String argument) throws CommandLineException {
+
+		int length = argument == null ? 0 : argument.length();
+		int index = 0;
+
+		while (index < length) {
+
+			if (isSeparator(argument.charAt(index))) {
+				index++;
+				continue;
+			}
+
+			int end = index + 1;
+			while (end < length && !isSeparator(argument.charAt(end))) {
+				end++;
+			}
+
+			try {
+				values.add(parseLong(argument, index, end));
+			}
+			catch (NumberFormatException e) {
+				throw new CommandLineException("Long expected for " + getCommand() + ", but: '" + argument.substring(index, end) + "', was given!");
+			}
+
+			index = end;
+		}
+	}
+
+	/**
+	 * Parses decimal number in given range of chars without creating a substring
+	 *
+	 * @return parsed value
+	 * @throws NumberFormatException in case chars are not a number or number is out of long range
+	 */
+	static long parseLong(CharSequence chars, int start, int end) {
+
+		boolean negative = false;
+		int index = start;
+
+		if (index < end && (chars.charAt(index) == '-' || chars.charAt(index) == '+')) {
+			negative = chars.charAt(index) == '-';
+			index++;
+		}
+
+		if (index == end) {
+			throw new NumberFormatException();
+		}
+
+		// accumulated negatively, as Long.MIN_VALUE has no positive counterpart
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / 10;
+		long value = 0;
+
+		for (; index < end; index++) {
+
+			int digit = chars.charAt(index) - '0';
+			if (digit < 0 || digit > 9 || value < multiplyLimit) {
+				throw new NumberFormatException();
+			}
+
+			value *= 10;
+			if (value < limit + digit) {
+				throw new NumberFormatException();
+			}
+
+			value -= digit;
+		}
+
+		return negative ? value : -value;
+	}
+}
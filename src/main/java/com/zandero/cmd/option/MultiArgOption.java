@@ -1,7 +1,6 @@
 package com.zandero.cmd.option;
 
 import com.zandero.cmd.CommandLineException;
-import com.zandero.utils.StringUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -9,8 +8,9 @@ import java.util.List;
 /**
  * Supports options with multiple arguments 1..n
  * For instance: -a one two three ... would fill option "a" with a list of arguments holding (one, two, three)
+ * An argument holding whitespace is split into values: -a "one two" holds (one, two)
  */
-public class MultiArgOption extends CommandOption<List<String>> {
+public class MultiArgOption extends MultiValueOption<List<String>> {
 
 	/**
 	 * Initializes command option
@@ -23,19 +23,43 @@ public class MultiArgOption extends CommandOption<List<String>> {
 	}
 
 	@Override
-	public List<String> parse(String argument) throws CommandLineException {
+	public List<String> empty() {
 
-		if (StringUtils.isNullOrEmptyTrimmed(argument)) {
-			return null;
-		}
+		return new ArrayList<>();
+	}
 
-		String[] items = argument.split(" ");
+	@Override
+	public int size(List<String> values) {
 
-		List<String> list = new ArrayList();
-		for (String item : items) {
-			list.add(StringUtils.trimToNull(item));
-		}
+		return values.size();
+	}
+
+	@Override
+	public List<String> copy(List<String> values) {
+
+		return new ArrayList<>(values);
+	}
+
+	@Override
+	protected void add(List<String> values, String argument) throws CommandLineException {
+
+		int length = argument == null ? 0 : argument.length();
+		int index = 0;
 
-		return list;
+		while (index < length) {
+
+			if (Character.isWhitespace(argument.charAt(index))) {
+				index++;
+				continue;
+			}
+
+			int end = index + 1;
+			while (end < length && !Character.isWhitespace(argument.charAt(end))) {
+				end++;
+			}
+
+			values.add(argument.substring(index, end));
+			index = end;
+		}
 	}
 }
@@ -0,0 +1,137 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.utils.Assert;
+import com.zandero.utils.StringUtils;
+
+/**
+ * Option taking multiple values: -a one two three
+ * Values of consecutive arguments and of repeated options are accumulated: -a one two -b -a three holds (one, two, three)
+ *
+ * @param <T> type holding values
+ */
+public abstract class MultiValueOption<T> extends CommandOption<T> {
+
+	/**
+	 * Min and max number of values in total
+	 */
+	private int minValues = 1;
+
+	private int maxValues = Integer.MAX_VALUE;
+
+	/**
+	 * Initializes command option
+	 *
+	 * @param shortName short command name, for instance: "a"
+	 */
+	public MultiValueOption(String shortName) {
+
+		super(shortName);
+	}
+
+	/**
+	 * Sets number of values option accepts (1..n by default)
+	 *
+	 * @param min number of values, 0 allows option to be given without values
+	 * @param max number of values
+	 * @return build option
+	 */
+	public MultiValueOption<T> arity(int min, int max) {
+
+		Assert.isTrue(min >= 0, "Min number of values must be greater or equal to 0!");
+		Assert.isTrue(max > 0 && max >= min, "Max number of values must be greater than 0 and min number of values!");
+
+		minValues = min;
+		maxValues = max;
+		return this;
+	}
+
+	/**
+	 * @return min number of values
+	 */
+	public int getMinValues() {
+
+		return minValues;
+	}
+
+	/**
+	 * @return max number of values
+	 */
+	public int getMaxValues() {
+
+		return maxValues;
+	}
+
+	/**
+	 * @return new empty holder of values
+	 */
+	public abstract T empty();
+
+	/**
+	 * @param values holder
+	 * @return number of values held
+	 */
+	public abstract int size(T values);
+
+	/**
+	 * Parses values of argument into holder
+	 *
+	 * @param values   holder to add to
+	 * @param argument given argument in command line (or config file), can hold more than one value
+	 * @throws CommandLineException in case argument can't be parsed
+	 */
+	protected abstract void add(T values, String argument) throws CommandLineException;
+
+	/**
+	 * Parses argument and adds values to already given values
+	 *
+	 * @param values   given so far or null if none
+	 * @param argument given argument in command line
+	 * @return holder of all values
+	 * @throws CommandLineException in case argument can't be parsed or too many values were given
+	 */
+	public T append(T values, String argument) throws CommandLineException {
+
+		if (values == null) {
+			values = empty();
+		}
+
+		add(values, argument);
+
+		if (size(values) > maxValues) {
+			throw new CommandLineException("Expected at most " + maxValues + " value(s) for " + getCommand() + ", but: " + size(values) + ", were given!");
+		}
+
+		return values;
+	}
+
+	/**
+	 * @param values given
+	 * @throws CommandLineException in case less than min number of values were given
+	 */
+	public void checkArity(T values) throws CommandLineException {
+
+		int size = values == null ? 0 : size(values);
+		if (size < minValues) {
+			throw new CommandLineException("Expected at least " + minValues + " value(s) for " + getCommand() + ", but: " + size + ", were given!");
+		}
+	}
+
+	@Override
+	public T parse(String argument) throws CommandLineException {
+
+		if (StringUtils.isNullOrEmptyTrimmed(argument)) {
+			return null;
+		}
+
+		return append(null, argument);
+	}
+
+	/**
+	 * @return true if char separates values given in single argument
+	 */
+	static boolean isSeparator(char value) {
+
+		return value == ',' || Character.isWhitespace(value);
+	}
+}
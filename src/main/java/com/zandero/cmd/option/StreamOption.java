@@ -0,0 +1,93 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.utils.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Option reading its values from standard input (given as - or @-), a named pipe or a file: -i ids.fifo
+ * Values are read one per line as consumed from returned {@link ValueSource}, source is not opened while parsing.
+ *
+ * @param <T> type of values, String if no value option is given
+ */
+public class StreamOption<T> extends CommandOption<ValueSource<T>> {
+
+	/**
+	 * Parses values read, null to give values as Strings
+	 */
+	private final CommandOption<T> values;
+
+	/**
+	 * Initializes option giving values as Strings
+	 *
+	 * @param shortName short command name, for instance: "a"
+	 */
+	public StreamOption(String shortName) {
+
+		this(shortName, null);
+	}
+
+	/**
+	 * @param shortName short command name, for instance: "a"
+	 * @param valueOption parses each value read, for instance: new IntOption("id")
+	 */
+	public StreamOption(String shortName, CommandOption<T> valueOption) {
+
+		super(shortName);
+		values = valueOption;
+	}
+
+	/**
+	 * @param argument "-" or "@-" for standard input, otherwise name of named pipe or file
+	 * @return source of values, not yet opened
+	 * @throws CommandLineException in case file does not exist or is a directory
+	 */
+	@Override
+	public ValueSource<T> parse(String argument) throws CommandLineException {
+
+		argument = StringUtils.trim(argument);
+		if (StringUtils.isNullOrEmpty(argument)) {
+			throw new CommandLineException("Missing value source for " + getCommand() + ", expected: - or file name!");
+		}
+
+		if (argument.equals(ValueSource.STDIN) || argument.equals("@" + ValueSource.STDIN)) {
+			return new ValueSource<>(ValueSource.STDIN, null, values);
+		}
+
+		// attributes only, named pipe is not opened
+		Path path;
+		BasicFileAttributes attributes;
+		try {
+			path = Paths.get(argument);
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		}
+		catch (NoSuchFileException | InvalidPathException e) {
+			throw new CommandLineException("File '" + argument + "' does not exist");
+		}
+		catch (IOException e) {
+			throw new CommandLineException("File '" + argument + "' cannot be read");
+		}
+
+		if (attributes.isDirectory()) {
+			throw new CommandLineException("File '" + argument + "' is a directory");
+		}
+
+		return new ValueSource<>(argument, path, values);
+	}
+
+	/**
+	 * @return new unread source of same values, source can only be read once
+	 */
+	@Override
+	public ValueSource<T> copy(ValueSource<T> value) {
+
+		return value.copy();
+	}
+}
@@ -0,0 +1,223 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.utils.Assert;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Values read one per line from standard input, a named pipe or a file
+ * Source is opened on first iteration and values are read as consumed, so values can be processed while still being produced.
+ * Values can be iterated only once, empty lines are skipped.
+ *
+ * @param <T> type of values
+ */
+public final class ValueSource<T> implements Iterable<T> {
+
+	/**
+	 * Argument denoting standard input
+	 */
+	public static final String STDIN = "-";
+
+	private final String name;
+
+	/**
+	 * File or named pipe, null for standard input
+	 */
+	private final Path path;
+
+	/**
+	 * Converts each line into value, null to give lines as Strings
+	 */
+	private final CommandOption<T> converter;
+
+	private final AtomicBoolean read = new AtomicBoolean();
+
+	/**
+	 * @param name      of source, {@link #STDIN} for standard input
+	 * @param path      to read from, null for standard input
+	 * @param converter to parse each line with, null to give lines as they are
+	 */
+	ValueSource(String name, Path path, CommandOption<T> converter) {
+
+		Assert.notNull(name, "Missing source name!");
+
+		this.name = name;
+		this.path = path;
+		this.converter = converter;
+	}
+
+	/**
+	 * @return file name as given or {@link #STDIN}
+	 */
+	public String getName() {
+
+		return name;
+	}
+
+	/**
+	 * @return true if values are read from standard input
+	 */
+	public boolean isStdin() {
+
+		return path == null;
+	}
+
+	/**
+	 * @return new unread source reading from same file, named pipe or standard input
+	 */
+	public ValueSource<T> copy() {
+
+		return new ValueSource<>(name, path, converter);
+	}
+
+	/**
+	 * Opens source, reading from named pipe blocks until pipe is opened for writing
+	 *
+	 * @return values as read from source
+	 * @throws IllegalStateException in case values were already read
+	 * @throws UncheckedIOException  in case source can't be opened or read
+	 * @throws IllegalArgumentException in case value can't be converted (while iterating)
+	 */
+	@Override
+	public Iterator<T> iterator() {
+
+		return open();
+	}
+
+	/**
+	 * Stream should be closed when not consumed to the end, in order to close underlying file
+	 *
+	 * @return sequential stream of values as read from source
+	 * @throws IllegalStateException in case values were already read
+	 */
+	public Stream<T> stream() {
+
+		Values values = open();
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(values, Spliterator.ORDERED | Spliterator.NONNULL), false)
+		                    .onClose(values::close);
+	}
+
+	private Values open() {
+
+		if (!read.compareAndSet(false, true)) {
+			throw new IllegalStateException("Values of: " + name + " were already read!");
+		}
+
+		try {
+			Reader reader = path == null ? new InputStreamReader(System.in, StandardCharsets.UTF_8) : Files.newBufferedReader(path, StandardCharsets.UTF_8);
+			return new Values(new BufferedReader(reader));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Failed to open: " + name, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+
+		return name;
+	}
+
+	/**
+	 * Reads one line ahead, closes source once all lines are read (standard input is never closed)
+	 */
+	private final class Values implements Iterator<T>, Closeable {
+
+		private final BufferedReader reader;
+
+		private String next;
+
+		private boolean done;
+
+		private Values(BufferedReader reader) {
+
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			if (next != null) {
+				return true;
+			}
+
+			if (done) {
+				return false;
+			}
+
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+
+					line = line.trim();
+					if (!line.isEmpty()) {
+						next = line;
+						return true;
+					}
+				}
+			}
+			catch (IOException e) {
+				close();
+				throw new UncheckedIOException("Failed to read: " + name, e);
+			}
+
+			close();
+			return false;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			String line = next;
+			next = null;
+
+			if (converter == null) {
+				return (T) line;
+			}
+
+			try {
+				return converter.parse(line);
+			}
+			catch (CommandLineException e) {
+				throw new IllegalArgumentException(e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public void close() {
+
+			done = true;
+			next = null;
+
+			if (path != null) {
+				try {
+					reader.close();
+				}
+				catch (IOException e) {
+					// nothing to do, source was only read
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,809 @@
+package com.zandero.cmd.processor;
+
+import com.zandero.cmd.bind.Option;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a parser for each class with fields annotated with {@link Option}
+ *
+ * For class Config a ConfigParser is generated in the same package, with a single static method: Config parse(String[] arguments)
+ * Options are dispatched with a switch on the given argument and assigned directly to fields,
+ * no reflection is used and no options are constructed (but for URI, List or explicitly given option types).
+ * Config files and settings are not supported by generated parsers, use {@link com.zandero.cmd.bind.OptionBinder} for those.
+ *
+ * Processor is not registered as a service, enable it with: javac -processor com.zandero.cmd.processor.OptionProcessor
+ */
+@SupportedAnnotationTypes("com.zandero.cmd.bind.Option")
+public class OptionProcessor extends AbstractProcessor {
+
+	private static final String COMMAND_OPTION = "com.zandero.cmd.option.CommandOption";
+
+	private static final String MULTI_VALUE_OPTION = "com.zandero.cmd.option.MultiValueOption";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+
+		// classes holding annotated fields
+		Set<TypeElement> classes = new LinkedHashSet<>();
+		for (Element element : round.getElementsAnnotatedWith(Option.class)) {
+
+			if (element.getKind() != ElementKind.FIELD) {
+				continue;
+			}
+
+			classes.add((TypeElement) element.getEnclosingElement());
+		}
+
+		for (TypeElement type : classes) {
+			generate(type);
+		}
+
+		return true;
+	}
+
+	private void generate(TypeElement type) {
+
+		Messager messager = processingEnv.getMessager();
+
+		if (type.getModifiers().contains(Modifier.ABSTRACT) ||
+		    (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Can't generate parser for: " + type + ", class must not be abstract or inner class!", type);
+			return;
+		}
+
+		if (!hasConstructor(type)) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Can't generate parser for: " + type + ", missing no argument constructor!", type);
+			return;
+		}
+
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+
+		// options of class and super classes
+		List<OptionField> fields = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		boolean valid = true;
+
+		for (TypeElement clazz = type; clazz != null; clazz = superclass(clazz)) {
+
+			for (VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+
+				Option annotation = field.getAnnotation(Option.class);
+				if (annotation == null) {
+					continue;
+				}
+
+				// report all invalid fields at once
+				OptionField option = option(field, annotation, packageName, fields.size());
+				if (option == null) {
+					valid = false;
+					continue;
+				}
+
+				if (!names.add("-" + option.shortName) || (option.longName != null && !names.add("--" + option.longName))) {
+					messager.printMessage(Diagnostic.Kind.ERROR, "Option: " + option.command() + " is given more than once!", field);
+					valid = false;
+					continue;
+				}
+
+				fields.add(option);
+			}
+		}
+
+		if (!valid) {
+			return;
+		}
+
+		String name = parserName(type);
+		try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualify(packageName, name), type).openWriter())) {
+			write(out, packageName, name, type.getQualifiedName().toString(), fields);
+		}
+		catch (IOException e) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Failed to generate parser for: " + type + ", " + e.getMessage(), type);
+		}
+	}
+
+	private OptionField option(VariableElement field, Option annotation, String packageName, int index) {
+
+		Messager messager = processingEnv.getMessager();
+		Set<Modifier> modifiers = field.getModifiers();
+
+		if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE)) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Option field: " + field + " can't be static, final or private!", field);
+			return null;
+		}
+
+		PackageElement fieldPackage = processingEnv.getElementUtils().getPackageOf(field);
+		if (!fieldPackage.getQualifiedName().contentEquals(packageName) && !modifiers.contains(Modifier.PUBLIC)) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Option field: " + field + " must be public when declared in other package!", field);
+			return null;
+		}
+
+		String shortName = annotation.shortName().trim();
+		if (shortName.isEmpty()) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Missing option name!", field);
+			return null;
+		}
+
+		OptionField option = new OptionField();
+		option.index = index;
+		option.field = field.getSimpleName().toString();
+		option.shortName = shortName;
+		option.longName = annotation.longName().trim().isEmpty() ? null : annotation.longName().trim();
+		option.required = annotation.required();
+
+		TypeMirror fieldType = field.asType();
+		option.fieldType = processingEnv.getTypeUtils().erasure(fieldType).toString();
+		option.primitive = fieldType.getKind().isPrimitive();
+		if (option.primitive) {
+			option.boxed = processingEnv.getTypeUtils().boxedClass((PrimitiveType) fieldType).getQualifiedName().toString();
+		}
+
+		TypeMirror optionType = optionType(annotation);
+		if (optionType != null) {
+
+			option.kind = OptionField.OPTION;
+			option.optionClass = processingEnv.getTypeUtils().erasure(optionType).toString();
+			option.flag = isFlag(optionType);
+			option.multi = isMultiValue(optionType);
+			return option;
+		}
+
+		switch (option.fieldType) {
+			case "int":
+			case "java.lang.Integer":
+				option.kind = OptionField.INT;
+				break;
+
+			case "boolean":
+			case "java.lang.Boolean":
+				option.kind = OptionField.BOOL;
+				option.flag = true;
+				break;
+
+			case "java.lang.String":
+				option.kind = OptionField.STRING;
+				break;
+
+			case "java.net.URI":
+				option.kind = OptionField.OPTION;
+				option.optionClass = "com.zandero.cmd.option.UrlOption";
+				break;
+
+			case "java.util.List":
+				option.kind = OptionField.OPTION;
+				option.optionClass = "com.zandero.cmd.option.MultiArgOption";
+				option.multi = true;
+				break;
+
+			case "com.zandero.cmd.option.IntList":
+				option.kind = OptionField.OPTION;
+				option.optionClass = "com.zandero.cmd.option.IntListOption";
+				option.multi = true;
+				break;
+
+			case "com.zandero.cmd.option.LongList":
+				option.kind = OptionField.OPTION;
+				option.optionClass = "com.zandero.cmd.option.LongListOption";
+				option.multi = true;
+				break;
+
+			case "com.zandero.cmd.option.ValueSource":
+				option.kind = OptionField.OPTION;
+				option.optionClass = "com.zandero.cmd.option.StreamOption";
+				break;
+
+			default:
+				messager.printMessage(Diagnostic.Kind.ERROR, "Can't deduce option type of field: " + field + ", set it with @Option(type = ...)", field);
+				return null;
+		}
+
+		return option;
+	}
+
+	/**
+	 * @return option type given in annotation or null if not given
+	 */
+	private TypeMirror optionType(Option annotation) {
+
+		TypeMirror type;
+		try {
+			annotation.type();
+			return null; // class is already compiled ... only possible for CommandOption itself
+		}
+		catch (MirroredTypeException e) {
+			type = e.getTypeMirror();
+		}
+
+		return processingEnv.getTypeUtils().erasure(type).toString().equals(COMMAND_OPTION) ? null : type;
+	}
+
+	/**
+	 * @return true if option type accumulates values
+	 */
+	private boolean isMultiValue(TypeMirror optionType) {
+
+		TypeElement multi = processingEnv.getElementUtils().getTypeElement(MULTI_VALUE_OPTION);
+		return multi != null && processingEnv.getTypeUtils().isAssignable(optionType, processingEnv.getTypeUtils().erasure(multi.asType()));
+	}
+
+	/**
+	 * @return true if option type is a Boolean or Void option (expecting no arguments)
+	 */
+	private boolean isFlag(TypeMirror optionType) {
+
+		for (TypeMirror type = optionType; type != null && type.getKind() == TypeKind.DECLARED; ) {
+
+			DeclaredType declared = (DeclaredType) type;
+			TypeElement element = (TypeElement) declared.asElement();
+
+			if (element.getQualifiedName().contentEquals(COMMAND_OPTION)) {
+
+				if (declared.getTypeArguments().isEmpty()) {
+					return false;
+				}
+
+				String argument = declared.getTypeArguments().get(0).toString();
+				return argument.equals("java.lang.Boolean") || argument.equals("java.lang.Void");
+			}
+
+			type = null;
+			for (TypeMirror parent : processingEnv.getTypeUtils().directSupertypes(declared)) {
+				if (parent.getKind() == TypeKind.DECLARED && ((DeclaredType) parent).asElement().getKind() == ElementKind.CLASS) {
+					type = parent;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private boolean hasConstructor(TypeElement type) {
+
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private TypeElement superclass(TypeElement type) {
+
+		TypeMirror parent = type.getSuperclass();
+		if (parent.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+
+		TypeElement element = (TypeElement) ((DeclaredType) parent).asElement();
+		return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+	}
+
+	/**
+	 * @return Config -> ConfigParser, Outer.Config -> Outer_ConfigParser
+	 */
+	private static String parserName(TypeElement type) {
+
+		String name = type.getSimpleName().toString();
+		for (Element parent = type.getEnclosingElement(); parent instanceof TypeElement; parent = parent.getEnclosingElement()) {
+			name = parent.getSimpleName() + "_" + name;
+		}
+
+		return name + "Parser";
+	}
+
+	private static String qualify(String packageName, String name) {
+
+		return packageName.isEmpty() ? name : packageName + "." + name;
+	}
+
+	private static void write(PrintWriter out, String packageName, String name, String type, List<OptionField> fields) {
+
+		if (!packageName.isEmpty()) {
+			out.println("package " + packageName + ";");
+			out.println();
+		}
+
+		out.println("import com.zandero.cmd.CommandLineException;");
+		out.println();
+		out.println("/**");
+		out.println(" * Command line parser for {@link " + type + "}");
+		out.println(" * Generated by " + OptionProcessor.class.getName() + ", do not edit");
+		out.println(" */");
+		out.println("public final class " + name + " {");
+		out.println();
+
+		for (OptionField field : fields) {
+			if (field.optionClass != null) {
+				String option = "new " + field.optionClass + "(" + literal(field.shortName) + ")";
+				if (field.longName != null) {
+					option = option + ".longCommand(" + literal(field.longName) + ")";
+				}
+
+				if (field.multi) {
+					out.println("\tprivate static final " + MULTI_VALUE_OPTION + " " + field.constant() + " = (" + MULTI_VALUE_OPTION + ") " + option + ";");
+				}
+				else {
+					out.println("\tprivate static final " + COMMAND_OPTION + "<?> " + field.constant() + " = " + option + ";");
+				}
+				out.println();
+			}
+		}
+
+		out.println("\t/**");
+		out.println("\t * Option not found");
+		out.println("\t */");
+		out.println("\tprivate static final int UNKNOWN = -2;");
+		out.println();
+		out.println("\tprivate final " + type + " out = new " + type + "();");
+		out.println();
+
+		for (OptionField field : fields) {
+			if (field.required) {
+				out.println("\tprivate boolean " + field.given() + ";");
+				out.println();
+			}
+		}
+
+		for (OptionField field : fields) {
+			if (field.multi) {
+				out.println("\tprivate Object " + field.values() + ";");
+				out.println();
+			}
+		}
+
+		out.println("\tprivate " + name + "() {");
+		out.println("\t}");
+		out.println();
+
+		// same forms as CommandLineParser: --name value, --name=value, -n value, -nvalue, -abc, -- and negative numbers as values
+		out.println("\t/**");
+		out.println("\t * @param arguments to be parsed");
+		out.println("\t * @return new instance holding given options");
+		out.println("\t * @throws CommandLineException in case arguments are invalid or required options are missing");
+		out.println("\t */");
+		out.println("\tpublic static " + type + " parse(String[] arguments) throws CommandLineException {");
+		out.println();
+		out.println("\t\t" + name + " parser = new " + name + "();");
+		out.println();
+		out.println("\t\tint option = -1; // option expecting a value (or flag given last)");
+		out.println("\t\tString unknown = null;");
+		out.println("\t\tStringBuilder rest = null; // arguments after --");
+		out.println();
+		out.println("\t\tfor (String argument : arguments == null ? new String[0] : arguments) {");
+		out.println();
+		out.println("\t\t\tif (argument == null) {");
+		out.println("\t\t\t\tcontinue;");
+		out.println("\t\t\t}");
+		out.println();
+		out.println("\t\t\tif (rest != null) {");
+		out.println("\t\t\t\trest.append(rest.length() > 0 ? \", \" : \"\").append(argument);");
+		out.println("\t\t\t\tcontinue;");
+		out.println("\t\t\t}");
+		out.println();
+		out.println("\t\t\tif (argument.startsWith(\"-\") && !isDashValue(option, argument)) {");
+		out.println();
+		out.println("\t\t\t\tunknown = null;");
+		out.println();
+		out.println("\t\t\t\tif (argument.equals(\"--\")) {");
+		out.println("\t\t\t\t\trest = new StringBuilder();");
+		out.println("\t\t\t\t\toption = -1;");
+		out.println("\t\t\t\t\tcontinue;");
+		out.println("\t\t\t\t}");
+		out.println();
+		out.println("\t\t\t\toption = argument.startsWith(\"--\") ? parser.longOption(argument) : parser.shortOption(argument);");
+		out.println("\t\t\t\tif (option == UNKNOWN) {");
+		out.println("\t\t\t\t\toption = -1;");
+		out.println("\t\t\t\t\tunknown = argument;");
+		out.println("\t\t\t\t}");
+		out.println("\t\t\t\tcontinue;");
+		out.println("\t\t\t}");
+		out.println();
+		out.println("\t\t\tif (option < 0) {");
+		out.println("\t\t\t\tthrow new CommandLineException(\"Unknown command line option: \" + (unknown != null ? unknown : argument));");
+		out.println("\t\t\t}");
+		out.println();
+		out.println("\t\t\tparser.value(option, argument);");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\tif (rest != null && rest.length() > 0) {");
+		out.println("\t\t\tthrow new CommandLineException(\"Unexpected arguments after --: \" + rest);");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\treturn parser.finish();");
+		out.println("\t}");
+		out.println();
+
+		// option lookup
+		out.println("\t/**");
+		out.println("\t * @return index of option or -1 if not found");
+		out.println("\t */");
+		out.println("\tprivate static int find(String name) {");
+		out.println();
+		out.println("\t\tswitch (name) {");
+		for (OptionField field : fields) {
+
+			out.println("\t\t\tcase " + literal("-" + field.shortName) + ":");
+			if (field.longName != null) {
+				out.println("\t\t\tcase " + literal("--" + field.longName) + ":");
+			}
+
+			out.println("\t\t\t\treturn " + field.index + ";");
+			out.println();
+		}
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\treturn -1;");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+
+		out.println("\tprivate static boolean expectsValue(int option) {");
+		out.println();
+		out.println("\t\tswitch (option) {");
+		for (OptionField field : fields) {
+			if (field.flag) {
+				out.println("\t\t\tcase " + field.index + ":");
+			}
+		}
+		out.println("\t\t\tcase -1:");
+		out.println("\t\t\t\treturn false;");
+		out.println();
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\treturn true;");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+
+		out.println("\t/**");
+		out.println("\t * @return true if argument is value of option expecting a value: a negative number (unless an option is named so) or \"-\"");
+		out.println("\t */");
+		out.println("\tprivate static boolean isDashValue(int option, String argument) {");
+		out.println();
+		out.println("\t\tif (!expectsValue(option)) {");
+		out.println("\t\t\treturn false;");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\treturn argument.length() == 1 || (Character.isDigit(argument.charAt(1)) && find(argument) < 0);");
+		out.println("\t}");
+		out.println();
+
+		out.println("\t/**");
+		out.println("\t * --name or --name=value");
+		out.println("\t *");
+		out.println("\t * @return index of option expecting value (or of flag), -1 if value was given, UNKNOWN if not found");
+		out.println("\t */");
+		out.println("\tprivate int longOption(String argument) throws CommandLineException {");
+		out.println();
+		out.println("\t\tint equals = argument.indexOf('=');");
+		out.println("\t\tint option = find(equals > 0 ? argument.substring(0, equals) : argument);");
+		out.println("\t\tif (option < 0) {");
+		out.println("\t\t\treturn UNKNOWN;");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\tif (equals > 0) {");
+		out.println("\t\t\tvalue(option, argument.substring(equals + 1));");
+		out.println("\t\t\treturn -1;");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\tselect(option, argument);");
+		out.println("\t\treturn option;");
+		out.println("\t}");
+		out.println();
+
+		out.println("\t/**");
+		out.println("\t * -n, -nvalue or clustered flags -abc, last option in cluster can take rest of argument as value: -vt10");
+		out.println("\t *");
+		out.println("\t * @return index of option expecting value (or of last flag), -1 if value was given, UNKNOWN if not found");
+		out.println("\t */");
+		out.println("\tprivate int shortOption(String argument) throws CommandLineException {");
+		out.println();
+		out.println("\t\tint option = find(argument);");
+		out.println("\t\tif (option >= 0) {");
+		out.println("\t\t\tselect(option, argument);");
+		out.println("\t\t\treturn option;");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\t// nothing is set when cluster holds an unknown option");
+		out.println("\t\tfor (int index = 1; index < argument.length(); index++) {");
+		out.println();
+		out.println("\t\t\tint found = find(\"-\" + argument.charAt(index));");
+		out.println("\t\t\tif (found < 0) {");
+		out.println("\t\t\t\treturn UNKNOWN;");
+		out.println("\t\t\t}");
+		out.println();
+		out.println("\t\t\tif (expectsValue(found)) {");
+		out.println("\t\t\t\tbreak;");
+		out.println("\t\t\t}");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\toption = UNKNOWN;");
+		out.println("\t\tfor (int index = 1; index < argument.length(); index++) {");
+		out.println();
+		out.println("\t\t\tint found = find(\"-\" + argument.charAt(index));");
+		out.println("\t\t\tif (expectsValue(found)) {");
+		out.println();
+		out.println("\t\t\t\tif (index + 1 == argument.length()) {");
+		out.println("\t\t\t\t\tselect(found, argument);");
+		out.println("\t\t\t\t\treturn found;");
+		out.println("\t\t\t\t}");
+		out.println();
+		out.println("\t\t\t\tvalue(found, argument.substring(index + 1));");
+		out.println("\t\t\t\treturn -1;");
+		out.println("\t\t\t}");
+		out.println();
+		out.println("\t\t\tselect(found, argument);");
+		out.println("\t\t\toption = found;");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\treturn option;");
+		out.println("\t}");
+		out.println();
+
+		// option given: flags are set, multi values are started
+		out.println("\t/**");
+		out.println("\t * Option given without value, flags are set and multi value options started");
+		out.println("\t */");
+		out.println("\t@SuppressWarnings(\"unchecked\")");
+		out.println("\tprivate void select(int option, String argument) throws CommandLineException {");
+		out.println();
+		out.println("\t\tObject value;");
+		out.println("\t\tswitch (option) {");
+
+		for (OptionField field : fields) {
+
+			if (!field.flag && !field.multi) {
+				continue;
+			}
+
+			out.println("\t\t\tcase " + field.index + ":");
+			if (field.flag) {
+				if (field.kind == OptionField.BOOL) {
+					out.println("\t\t\t\tvalue = Boolean.TRUE;");
+				}
+				else {
+					out.println("\t\t\t\tvalue = " + field.constant() + ".parse(argument);");
+				}
+
+				assign(out, field, "\t\t\t\t");
+			}
+			else {
+				out.println("\t\t\t\tif (" + field.values() + " == null) {");
+				out.println("\t\t\t\t\t" + field.values() + " = " + field.constant() + ".empty();");
+				out.println("\t\t\t\t}");
+				out.println("\t\t\t\tvalue = " + field.values() + ";");
+				assign(out, field, "\t\t\t\t");
+			}
+
+			out.println("\t\t\t\tbreak;");
+			out.println();
+		}
+
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\t// value follows");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+
+		// values
+		out.println("\t@SuppressWarnings(\"unchecked\")");
+		out.println("\tprivate void value(int option, String argument) throws CommandLineException {");
+		out.println();
+		out.println("\t\tObject value;");
+		out.println("\t\tswitch (option) {");
+		for (OptionField field : fields) {
+
+			out.println("\t\t\tcase " + field.index + ":");
+			switch (field.kind) {
+				case OptionField.INT:
+					out.println("\t\t\t\tvalue = parseInt(argument, " + literal(field.shortName) + ");");
+					break;
+
+				case OptionField.BOOL:
+					out.println("\t\t\t\tvalue = parseBool(argument, " + literal(field.shortName) + ", " + literal(field.longName) + ");");
+					break;
+
+				case OptionField.STRING:
+					out.println("\t\t\t\tvalue = argument.trim();");
+					break;
+
+				default:
+					if (field.multi) {
+						out.println("\t\t\t\t" + field.values() + " = " + field.constant() + ".append(" + field.values() + ", argument);");
+						out.println("\t\t\t\tvalue = " + field.values() + ";");
+					}
+					else {
+						out.println("\t\t\t\tvalue = " + field.constant() + ".parse(argument);");
+					}
+			}
+
+			assign(out, field, "\t\t\t\t");
+			out.println("\t\t\t\tbreak;");
+			out.println();
+		}
+
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\tthrow new CommandLineException(\"Unknown command line option: \" + argument);");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+
+		out.println("\t@SuppressWarnings(\"unchecked\")");
+		out.println("\tprivate " + type + " finish() throws CommandLineException {");
+		out.println();
+
+		for (OptionField field : fields) {
+			if (field.multi) {
+				out.println("\t\tif (" + field.values() + " != null) {");
+				out.println("\t\t\t" + field.constant() + ".checkArity(" + field.values() + ");");
+				out.println("\t\t}");
+				out.println();
+			}
+		}
+
+		for (OptionField field : fields) {
+			if (field.required) {
+				out.println("\t\tif (!" + field.given() + ") {");
+				out.println("\t\t\tthrow new CommandLineException(" + literal("Missing required: " + field.command()) + ");");
+				out.println("\t\t}");
+				out.println();
+			}
+		}
+
+		out.println("\t\treturn out;");
+		out.println("\t}");
+		out.println();
+
+		// helpers matching IntOption and BoolOption
+		out.println("\tprivate static int parseInt(String argument, String name) throws CommandLineException {");
+		out.println();
+		out.println("\t\ttry {");
+		out.println("\t\t\treturn Integer.parseInt(argument.trim());");
+		out.println("\t\t}");
+		out.println("\t\tcatch (NumberFormatException e) {");
+		out.println("\t\t\tthrow new CommandLineException(\"Integer expected for \" + name + \", but: '\" + argument.trim() + \"', was given!\");");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+		out.println("\tprivate static Boolean parseBool(String argument, String name, String longName) {");
+		out.println();
+		out.println("\t\targument = argument.trim();");
+		out.println("\t\tif (argument.equals(\"-\" + name) || argument.equals(\"--\" + longName)) {");
+		out.println("\t\t\treturn Boolean.TRUE;");
+		out.println("\t\t}");
+		out.println();
+		out.println("\t\tswitch (argument.toLowerCase()) {");
+		out.println("\t\t\tcase \"1\": case \"t\": case \"true\": case \"yes\": case \"y\": case \"on\":");
+		out.println("\t\t\t\treturn Boolean.TRUE;");
+		out.println();
+		out.println("\t\t\tcase \"0\": case \"f\": case \"false\": case \"no\": case \"n\": case \"off\":");
+		out.println("\t\t\t\treturn Boolean.FALSE;");
+		out.println();
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\treturn null;");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println("}");
+	}
+
+	/**
+	 * Writes field assignment from local value, primitive fields keep initial value when null is given
+	 */
+	private static void assign(PrintWriter out, OptionField field, String indent) {
+
+		if (field.primitive) {
+			out.println(indent + "if (value != null) {");
+			out.println(indent + "\tout." + field.field + " = (" + field.boxed + ") value;");
+			out.println(indent + "}");
+		}
+		else {
+			out.println(indent + "out." + field.field + " = (" + field.fieldType + ") value;");
+		}
+
+		if (field.required) {
+			out.println(indent + field.given() + " = value != null;");
+		}
+	}
+
+	private static String literal(String value) {
+
+		if (value == null) {
+			return "null";
+		}
+
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	/**
+	 * Option as found in annotated field
+	 */
+	private static final class OptionField {
+
+		static final int INT = 0;
+
+		static final int BOOL = 1;
+
+		static final int STRING = 2;
+
+		static final int OPTION = 3;
+
+		int index;
+
+		String field;
+
+		String fieldType;
+
+		boolean primitive;
+
+		String boxed;
+
+		String shortName;
+
+		String longName;
+
+		boolean required;
+
+		int kind;
+
+		String optionClass;
+
+		boolean flag;
+
+		/**
+		 * Values are accumulated into local variable
+		 */
+		boolean multi;
+
+		String constant() {
+
+			return "OPTION_" + index;
+		}
+
+		String given() {
+
+			return "given" + index;
+		}
+
+		String values() {
+
+			return "values" + index;
+		}
+
+		String command() {
+
+			return longName == null ? "-" + shortName : "-" + shortName + " [ --" + longName + " ]";
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.StringOption;
+import com.zandero.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class ArgFileTokensTest {
+
+	@Test
+	public void expandFile() throws Exception {
+
+		Path file = write("\uFEFF# options\n" +
+			"-t 10\r\n" +
+			"  --name 'John Doe' \"say \\\"hi\\\"\"\n" +
+			"  ključ '' C:\\dir\\file # comment\n");
+		try {
+			assertEquals(Arrays.asList("-a", "-t", "10", "--name", "John Doe", "say \"hi\"", "ključ", "", "C:\\dir\\file", "-b"),
+			             tokens("-a", "@" + file, "-b"));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void nulSeparatedFile() throws Exception {
+
+		Path file = write("--name\0John Doe\0\0'quoted' # \n\0");
+		try {
+			assertEquals(Arrays.asList("--name", "John Doe", "'quoted' # \n"), tokens("@" + file));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void notExpanded() throws Exception {
+
+		assertEquals(Arrays.asList("@", "@-", "a@b"), tokens("@", "@-", "a@b"));
+
+		Path inner = write("-a");
+		Path file = write("@" + inner);
+		try {
+			assertEquals(Arrays.asList("@" + inner), tokens("@" + file)); // not expanded recursively
+		}
+		finally {
+			Files.delete(file);
+			Files.delete(inner);
+		}
+	}
+
+	@Test
+	public void missingFile() {
+
+		CommandLineException e = assertThrows(CommandLineException.class, () -> tokens("@missing.txt"));
+		assertEquals("Argument file 'missing.txt' does not exist", e.getMessage());
+	}
+
+	@Test
+	public void missingClosingQuote() throws Exception {
+
+		Path file = write("-f 'some file");
+		try {
+			CommandLineException e = assertThrows(CommandLineException.class, () -> tokens("@" + file));
+			assertEquals("Missing closing quote (') in argument file: " + file, e.getMessage());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void parseArgumentFile() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("t").longCommand("threads"));
+		builder.add(new StringOption("n").longCommand("name"));
+		builder.add(new BoolOption("v").longCommand("verbose"));
+
+		CommandLineParser parser = new CommandLineParser(builder);
+
+		Path file = write("--threads 64\n--name=\"John Doe\"\n");
+		try {
+			Settings settings = parser.parse(new String[] {"-v", "@" + file});
+			assertNull(settings.get("t"));
+
+			parser.setExpandArgumentFiles(true);
+			settings = parser.parse(new String[] {"-v", "@" + file});
+
+			assertEquals(64, settings.get("t"));
+			assertEquals("John Doe", settings.get("n"));
+			assertEquals(true, settings.get("v"));
+
+			settings = parser.parseCommandLine("@" + file + " -t 8");
+			assertEquals(8, settings.get("t"));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	private static Path write(String content) throws Exception {
+
+		Path file = Files.createTempFile("args", ".txt");
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static List<String> tokens(String... arguments) throws CommandLineException {
+
+		List<String> out = new ArrayList<>();
+		try (ArgFileTokens tokens = new ArgFileTokens(new ArrayTokens(arguments))) {
+			while (tokens.next()) {
+				out.add(tokens.string());
+			}
+		}
+
+		return out;
+	}
+}
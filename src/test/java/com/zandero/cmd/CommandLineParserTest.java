@@ -2,13 +2,35 @@ package com.zandero.cmd;
 
 import com.zandero.cmd.option.BoolOption;
 import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.ConfigFileOption;
+import com.zandero.cmd.option.FileOption;
+import com.zandero.cmd.option.IntList;
+import com.zandero.cmd.option.IntListOption;
 import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.LongList;
+import com.zandero.cmd.option.LongListOption;
+import com.zandero.cmd.option.MultiArgOption;
 import com.zandero.cmd.option.StringOption;
 import com.zandero.settings.Settings;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -208,4 +230,702 @@ public class CommandLineParserTest {
         CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(null));
         assertEquals("Missing required: -a [ --all ]", e.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void setDefaultsDoesNotModifyOptions() throws CommandLineException {
+
+        CommandOption<?> option = new IntOption("s")
+                                      .longCommand("size")
+                                      .defaultsTo(1);
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(option);
+
+        CommandLineParser parser = new CommandLineParser(builder);
+        CommandLineParser other = new CommandLineParser(builder);
+
+        Settings settings = new Settings();
+        settings.put("s", 10);
+        parser.setDefaults(settings);
+
+        assertEquals(10, parser.parse(null).get("s"));
+        assertEquals(1, other.parse(null).get("s"));
+        assertEquals(1, option.getDefault());
+    }
+
+    @Test
+    public void setInvalidDefaults() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("s").longCommand("size"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        Settings settings = new Settings();
+        settings.put("s", "10");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parser.setDefaults(settings));
+        assertEquals("Expected default setting of type: java.lang.Integer, but was provided: java.lang.String", e.getMessage());
+    }
+
+    @Test
+    public void concurrentParse() throws Exception {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("s").longCommand("size"));
+        builder.add(new StringOption("f").longCommand("file"));
+        builder.add(new ConfigFileOption("c").longCommand("config"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+        String configFile = this.getClass().getResource("/settings.cfg").getFile();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Settings>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+
+                String[] args = i % 2 == 0 ? new String[]{"-c", configFile} : new String[]{"-s", Integer.toString(i)};
+                results.add(executor.submit(() -> parser.parse(args)));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+
+                Settings out = results.get(i).get();
+                if (i % 2 == 0) {
+                    assertEquals(10, out.get("s"));
+                    assertEquals("some.file", out.get("f"));
+                }
+                else {
+                    // config file values must not leak into other invocations
+                    assertEquals(i, out.get("s"));
+                    assertNull(out.get("f"));
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parseAll() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("s").longCommand("size").required());
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        List<String[]> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(i % 10 == 0 ? new String[]{"-s", "x" + i} : new String[]{"-s", Integer.toString(i)});
+        }
+
+        List<ParseResult> results = parser.parseAll(batch);
+        assertEquals(1000, results.size());
+
+        for (int i = 0; i < results.size(); i++) {
+
+            ParseResult result = results.get(i);
+            assertSame(batch.get(i), result.getArguments());
+
+            if (i % 10 == 0) {
+                assertFalse(result.isValid());
+                assertNull(result.getSettings());
+                assertEquals("Integer expected for s, but: 'x" + i + "', was given!", result.getError().getMessage());
+            }
+            else {
+                assertTrue(result.isValid());
+                assertEquals(i, result.getSettings().get("s"));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            results = parser.parseAll(batch, pool);
+            assertEquals(1000, results.size());
+            assertEquals(1, results.get(1).getSettings().get("s"));
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        results = parser.parseAll(Stream.of(new String[]{"-s", "1"}, new String[0], new String[]{"--size", "3"}));
+        assertEquals(3, results.size());
+        assertEquals(1, results.get(0).getSettings().get("s"));
+        assertEquals("Missing required: -s [ --size ]", results.get(1).getError().getMessage());
+        assertEquals(3, results.get(2).getSettings().get("s"));
+    }
+
+    @Test
+    public void parseAllRuntimeFailure() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new StringOption("n") {
+
+            @Override
+            public String parse(String argument) {
+
+                if ("boom".equals(argument)) {
+                    throw new IllegalStateException("Exploded: " + argument);
+                }
+
+                return argument;
+            }
+        }.longCommand("name"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        List<ParseResult> results = parser.parseAll(Arrays.asList(new String[]{"-n", "one"}, new String[]{"-n", "boom"}, new String[]{"-n", "two"}));
+        assertEquals("one", results.get(0).getSettings().get("n"));
+        assertEquals("Exploded: boom", results.get(1).getError().getMessage());
+        assertEquals("two", results.get(2).getSettings().get("n"));
+    }
+
+    @Test
+    public void parseCommandLine() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new BoolOption("a").longCommand("all"));
+        builder.add(new StringOption("f").longCommand("file"));
+        builder.add(new IntOption("s").longCommand("size"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        Settings out = parser.parseCommandLine("-a --file 'my documents/some file.txt' -s \"100\"");
+        assertEquals(true, out.get("a"));
+        assertEquals("my documents/some file.txt", out.get("f"));
+        assertEquals(100, out.get("s"));
+
+        out = parser.parseCommandLine("");
+        assertEquals(false, out.get("a"));
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parseCommandLine("value"));
+        assertEquals("Unknown command line option: value", e.getMessage());
+    }
+
+    @Test
+    public void parseListener() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("s").longCommand("size"));
+        builder.add(new StringOption("f").longCommand("file"));
+        builder.add(new ConfigFileOption("c").longCommand("config"));
+
+        String configFile = this.getClass().getResource("/settings.cfg").getFile();
+
+        List<String> events = new ArrayList<>();
+        CommandLineParser parser = new CommandLineParser(builder);
+        parser.setParseListener(new ParseListener() {
+
+            @Override
+            public void phase(Phase phase, long nanos) {
+
+                assertTrue(nanos >= 0);
+                events.add(phase.name());
+            }
+
+            @Override
+            public void tokens(int count) {
+
+                events.add("tokens:" + count);
+            }
+
+            @Override
+            public void configFile(String file, long bytes) {
+
+                events.add("config:" + (bytes > 0));
+            }
+
+            @Override
+            public void unknownOption(String argument) {
+
+                events.add("unknown:" + argument);
+            }
+
+            @Override
+            public void optionParsed(CommandOption<?> option, long nanos) {
+
+                events.add("parsed:" + option.getCommand());
+            }
+
+            @Override
+            public void failed(CommandLineException exception) {
+
+                events.add("failed:" + exception.getMessage());
+            }
+        });
+
+        parser.parse(new String[]{"-x", "-c", configFile, "-s", "1", "--"});
+        assertEquals(Arrays.asList("unknown:-x", "parsed:c", "parsed:s", "tokens:6", "ARGUMENTS", "config:true", "CONFIG_FILE", "DEFAULTS", "REQUIRED"), events);
+
+        // cached config file, nothing read
+        events.clear();
+        parser.parse(new String[]{"-c", configFile});
+        assertEquals(Arrays.asList("parsed:c", "tokens:2", "ARGUMENTS", "config:false", "CONFIG_FILE", "DEFAULTS", "REQUIRED"), events);
+
+        events.clear();
+        assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"value"}));
+        assertEquals(Arrays.asList("unknown:value", "failed:Unknown command line option: value"), events);
+
+        // listener removed
+        events.clear();
+        parser.setParseListener(null);
+        parser.parse(new String[]{"-s", "1"});
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void unknownOptionSuggestions() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("t").longCommand("threads"));
+        builder.add(new IntOption("r").longCommand("retries"));
+        builder.add(new BoolOption("v").longCommand("verbose"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        // unknown option followed by a value
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"--thrads", "10"}));
+        assertEquals("Unknown command line option: --thrads, did you mean: --threads?", e.getMessage());
+        assertEquals(Collections.singletonList("--threads"), e.getSuggestions());
+
+        e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"10"}));
+        assertEquals("Unknown command line option: 10", e.getMessage());
+        assertTrue(e.getSuggestions().isEmpty());
+
+        // unknown flags are ignored by default
+        assertEquals(false, parser.parse(new String[]{"--verbos"}).get("v"));
+
+        parser.setFailOnUnknownOption(true);
+        e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"--verbos"}));
+        assertEquals("Unknown command line option: --verbos, did you mean: --verbose?", e.getMessage());
+
+        assertTrue(parser.parse(new String[]{"-t", "1", "--"}).containsKey("t"));
+    }
+
+    @Test
+    public void abbreviatedOptions() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new BoolOption("v").longCommand("verbose"));
+        builder.add(new StringOption("V").longCommand("version"));
+        builder.add(new IntOption("t").longCommand("threads"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        // off by default
+        assertNull(parser.parse(new String[]{"--thr", "--verb"}).get("t"));
+
+        parser.setAllowAbbreviations(true);
+        Settings out = parser.parse(new String[]{"--thr", "10", "--verb", "--versi", "1.0"});
+        assertEquals(10, out.get("t"));
+        assertEquals(true, out.get("v"));
+        assertEquals("1.0", out.get("V"));
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"--ver"}));
+        assertEquals("Ambiguous option: --ver, could be: --verbose, --version", e.getMessage());
+
+        // short options are not abbreviated
+        assertEquals(false, parser.parse(new String[]{"-ver"}).get("v"));
+    }
+
+    @Test
+    public void subcommands() throws CommandLineException {
+
+        CommandBuilder global = new CommandBuilder();
+        global.add(new BoolOption("v").longCommand("verbose"));
+        global.add(new StringOption("d").longCommand("dir"));
+
+        AtomicInteger built = new AtomicInteger();
+
+        CommandLineParser parser = new CommandLineParser(global);
+        parser.addCommand("status", () -> {
+
+            built.incrementAndGet();
+            CommandBuilder builder = new CommandBuilder();
+            builder.add(new BoolOption("s").longCommand("short"));
+            return builder;
+        });
+
+        parser.addCommand("commit", () -> {
+            throw new IllegalStateException("Should not be built");
+        });
+
+        assertEquals(Arrays.asList("commit", "status"), parser.getCommands());
+        assertEquals(0, built.get());
+
+        // option value equal to command name is not a command
+        CommandResult result = parser.parseCommand(new String[]{"-v", "--dir", "status", "status", "-s"});
+        assertEquals("status", result.getCommand());
+        assertEquals(true, result.getGlobal().toSettings().get("v"));
+        assertEquals("status", result.getGlobal().toSettings().get("d"));
+        assertEquals(true, result.getValues().toSettings().get("s"));
+
+        result = parser.parseCommand(new String[]{"status"});
+        assertEquals(false, result.getValues().toSettings().get("s"));
+        assertEquals(1, built.get());
+        assertSame(parser.getCommand("status"), parser.getCommand("status"));
+
+        result = parser.parseCommand(new String[]{"-v"});
+        assertNull(result.getCommand());
+        assertNull(result.getValues());
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parseCommand(new String[]{"stauts"}));
+        assertEquals("Unknown command: stauts, did you mean: status?", e.getMessage());
+
+        // value of unknown option is not reported as command
+        e = assertThrows(CommandLineException.class, () -> parser.parseCommand(new String[]{"--dirs", "x", "status"}));
+        assertEquals("Unknown command line option: --dirs, did you mean: --dir?", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> parser.parseCommand(new String[]{"-q", "x", "status"}));
+        assertEquals("Unknown command line option: -q", e.getMessage());
+
+        // subcommand options are not global
+        parser.setFailOnUnknownOption(true);
+        e = assertThrows(CommandLineException.class, () -> parser.parseCommand(new String[]{"-s", "status"}));
+        assertEquals("Unknown command line option: -s", e.getMessage());
+
+        IllegalArgumentException iae = assertThrows(IllegalArgumentException.class, () -> parser.addCommand("status", CommandBuilder::new));
+        assertEquals("Command: status is already registered!", iae.getMessage());
+    }
+
+    @Test
+    public void subcommandAfterAbbreviatedOption() throws CommandLineException {
+
+        CommandBuilder global = new CommandBuilder();
+        global.add(new IntOption("t").longCommand("threads"));
+        global.add(new BoolOption("v").longCommand("verbose"));
+
+        CommandLineParser parser = new CommandLineParser(global);
+        parser.setAllowAbbreviations(true);
+        parser.addCommand("status", CommandBuilder::new);
+
+        CommandResult result = parser.parseCommand(new String[]{"--thr", "4", "status"});
+        assertEquals("status", result.getCommand());
+        assertEquals(4, result.getGlobal().toSettings().get("t"));
+
+        result = parser.parseCommand(new String[]{"--thr=8", "--verb", "status"});
+        assertEquals("status", result.getCommand());
+        assertEquals(8, result.getGlobal().toSettings().get("t"));
+        assertEquals(true, result.getGlobal().toSettings().get("v"));
+    }
+
+    @Test
+    public void subcommandInheritsConfiguration() throws CommandLineException {
+
+        CommandBuilder global = new CommandBuilder();
+        global.add(new BoolOption("v").longCommand("verbose"));
+
+        CommandLineParser parser = new CommandLineParser(global);
+        parser.setAllowAbbreviations(true);
+        parser.setEnvironmentPrefix("APP_");
+        parser.setEnvironment(Collections.singletonMap("APP_LIMIT", "10"));
+
+        List<String> unknown = new ArrayList<>();
+        parser.setParseListener(new ParseListener() {
+
+            @Override
+            public void unknownOption(String argument) {
+
+                unknown.add(argument);
+            }
+        });
+
+        parser.addCommand("status", () -> {
+            CommandBuilder builder = new CommandBuilder();
+            builder.add(new BoolOption("s").longCommand("short"));
+            builder.add(new IntOption("l").longCommand("limit").setting("limit"));
+            return builder;
+        });
+
+        CommandResult result = parser.parseCommand(new String[]{"--verb", "status", "--sho", "-x"});
+        assertEquals(true, result.getGlobal().toSettings().get("v"));
+        assertEquals(true, result.getValues().toSettings().get("s"));
+        assertEquals(10, result.getValues().toSettings().get("limit"));
+        assertEquals(Collections.singletonList("-x"), unknown);
+
+        // later changes are made on subcommand parser
+        parser.getCommand("status").setFailOnUnknownOption(true);
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parseCommand(new String[]{"status", "-x"}));
+        assertEquals("Unknown command line option: -x", e.getMessage());
+    }
+
+    @Test
+    public void clusteredAndAttachedOptions() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new BoolOption("a").longCommand("all"));
+        builder.add(new BoolOption("b").longCommand("brief"));
+        builder.add(new IntOption("t").longCommand("threads"));
+        builder.add(new StringOption("fs").longCommand("file-system"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        Settings out = parser.parse(new String[]{"-ab", "-t10"});
+        assertEquals(true, out.get("a"));
+        assertEquals(true, out.get("b"));
+        assertEquals(10, out.get("t"));
+
+        out = parser.parse(new String[]{"-bt", "20", "--all=false", "--file-system=ext4"});
+        assertEquals(false, out.get("a"));
+        assertEquals(true, out.get("b"));
+        assertEquals(20, out.get("t"));
+        assertEquals("ext4", out.get("fs"));
+
+        // multi char short names are matched as a whole
+        out = parser.parseCommandLine("-fs 'ntfs' --threads=64 -bat5");
+        assertEquals("ntfs", out.get("fs"));
+        assertEquals(5, out.get("t"));
+        assertEquals(true, out.get("a"));
+
+        // cluster with unknown option sets nothing
+        out = parser.parse(new String[]{"-abx"});
+        assertEquals(false, out.get("a"));
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-tx"}));
+        assertEquals("Integer expected for t, but: 'x', was given!", e.getMessage());
+
+        // value is given with option, next argument is not a value
+        e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"--threads=1", "2"}));
+        assertEquals("Unknown command line option: 2", e.getMessage());
+    }
+
+    @Test
+    public void endOfOptions() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new BoolOption("a").longCommand("all"));
+        builder.add(new IntOption("t").longCommand("threads"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+        OptionValues values = parser.parseValues(new String[]{"-t", "1", "--", "-a", "file"});
+
+        assertEquals(1, values.toSettings().get("t"));
+        assertEquals(false, values.toSettings().get("a"));
+        assertEquals(Arrays.asList("-a", "file"), values.getArguments());
+
+        assertTrue(parser.parseValues(new String[]{"-a"}).getArguments().isEmpty());
+
+        // settings can't hold arguments
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-t", "1", "--", "-a", "file"}));
+        assertEquals("Unexpected arguments after --: -a, file", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> parser.parseCommandLine("-- file"));
+        assertEquals("Unexpected arguments after --: file", e.getMessage());
+
+        assertEquals(1, parser.parse(new String[]{"-t", "1", "--"}).get("t"));
+    }
+
+    @Test
+    public void multiValueOptions() throws CommandLineException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new MultiArgOption("a").longCommand("args"));
+        builder.add(new IntListOption("s").arity(0, 4).longCommand("shards"));
+        builder.add(new LongListOption("r").longCommand("records"));
+        builder.add(new BoolOption("v").longCommand("verbose"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        // accumulated over consecutive arguments and repeated options
+        Settings out = parser.parse(new String[]{"-a", "one", "two", "-v", "--args=three", "-s", "1,2", "3", "-r", "-9223372036854775808", "-a", "four"});
+        assertEquals(Arrays.asList("one", "two", "three", "four"), out.get("a"));
+        assertEquals(IntList.of(1, 2, 3), out.get("s"));
+        assertEquals(LongList.of(Long.MIN_VALUE), out.get("r"));
+
+        // min arity of 0 allows option without values
+        out = parser.parse(new String[]{"-s", "-v"});
+        assertEquals(new IntList(), out.get("s"));
+        assertNull(out.get("a"));
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-s", "1", "2", "3", "-s", "4,5"}));
+        assertEquals("Expected at most 4 value(s) for s, but: 5, were given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-a", "-v"}));
+        assertEquals("Expected at least 1 value(s) for a, but: 0, were given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-s", "1", "2147483648"}));
+        assertEquals("Integer expected for s, but: '2147483648', was given!", e.getMessage());
+
+        // lazy conversion does not defer accumulated values
+        parser.setLazyConversion(true);
+        OptionValues values = parser.parseValues(new String[]{"-r", "1", "-r", "2"});
+        assertEquals(LongList.of(1, 2), values.toSettings().get("r"));
+    }
+
+    @Test
+    public void layeredSources() throws Exception {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("t").longCommand("threads"));
+        builder.add(new StringOption("n").longCommand("name").env("NAME"));
+        builder.add(new StringOption("fs").longCommand("file-system").setting("file-system"));
+        builder.add(new BoolOption("v").longCommand("verbose").property("verbose"));
+        builder.add(new ConfigFileOption("c").longCommand("config"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        Map<String, String> environment = new HashMap<>();
+        environment.put("NAME", "env");
+        environment.put("APP_T", "8");
+        environment.put("APP_FILE_SYSTEM", "ext4");
+        parser.setEnvironment(environment);
+
+        // only explicitly named options without prefix
+        Settings out = parser.parse(new String[]{});
+        assertEquals("env", out.get("n"));
+        assertNull(out.get("t"));
+
+        parser.setEnvironmentPrefix("APP_");
+        parser.setDefaults(new Settings() {{ put("t", 1); put("n", "default"); }});
+
+        out = parser.parse(new String[]{"-n", "cli"});
+        assertEquals(8, out.get("t"));
+        assertEquals("cli", out.get("n"));
+        assertEquals("ext4", out.get("file-system"));
+
+        // system properties win over environment
+        parser.setPropertyPrefix("test.layers.");
+        System.setProperty("test.layers.t", "16");
+        System.setProperty("verbose", "true");
+        try {
+            out = parser.parse(new String[]{});
+            assertEquals(16, out.get("t"));
+            assertEquals(true, out.get("v"));
+
+            System.setProperty("test.layers.t", "many");
+            CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{}));
+            assertEquals("Invalid system property test.layers.t: Integer expected for t, but: 'many', was given!", e.getMessage());
+        }
+        finally {
+            System.clearProperty("test.layers.t");
+            System.clearProperty("verbose");
+        }
+
+        // config file given in environment, environment wins over config file
+        File config = File.createTempFile("layers", ".cfg");
+        try {
+            Files.write(config.toPath(), "threads = 32\nfile-system = ntfs\n".getBytes(StandardCharsets.UTF_8));
+
+            environment.remove("APP_T");
+            environment.put("APP_C", config.getPath());
+            parser.setEnvironment(environment);
+
+            out = parser.parse(new String[]{});
+            assertEquals(32, out.get("t"));
+            assertEquals("ext4", out.get("file-system"));
+        }
+        finally {
+            assertTrue(config.delete());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sharedValuesAreCopied() throws Exception {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new ConfigFileOption("c").longCommand("config"));
+        builder.add(new IntListOption("s").longCommand("shards").setting("shards"));
+        builder.add(new MultiArgOption("h").longCommand("hosts").setting("hosts"));
+        builder.add(new LongListOption("l").longCommand("limits").setting("limits"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        Settings defaults = new Settings();
+        defaults.put("limits", LongList.of(10));
+        parser.setDefaults(defaults);
+
+        File config = File.createTempFile("shared", ".cfg");
+        try {
+            Files.write(config.toPath(), "shards = 1, 2\nhosts = a b\n".getBytes(StandardCharsets.UTF_8));
+
+            Settings first = parser.parse(new String[]{"-c", config.getPath()});
+            ((IntList) first.get("shards")).add(99);
+            ((List<String>) first.get("hosts")).add("c");
+            ((LongList) first.get("limits")).add(20);
+
+            // unchanged config file is taken from cache
+            Settings second = parser.parse(new String[]{"-c", config.getPath()});
+            assertEquals(IntList.of(1, 2), second.get("shards"));
+            assertEquals(Arrays.asList("a", "b"), second.get("hosts"));
+            assertEquals(LongList.of(10), second.get("limits"));
+        }
+        finally {
+            assertTrue(config.delete());
+        }
+    }
+
+    @Test
+    public void sourceValueOfValidatedFile() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new FileOption("f").longCommand("file").setting("file"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+        parser.setEnvironmentPrefix("APP_");
+        parser.setEnvironment(Collections.singletonMap("APP_FILE", "/nonexistent/xx"));
+        parser.setFileValidation(1, TimeUnit.SECONDS);
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[0]));
+        assertEquals("Invalid environment variable APP_FILE: File '/nonexistent/xx' does not exist", e.getMessage());
+
+        parser.setLazyConversion(true);
+        e = assertThrows(CommandLineException.class, () -> parser.parseValues(new String[0]));
+        assertEquals("Invalid environment variable APP_FILE: File '/nonexistent/xx' does not exist", e.getMessage());
+    }
+
+    @Test
+    public void fileValidation() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new FileOption("i").longCommand("input"));
+        builder.add(new FileOption("o").longCommand("output"));
+        builder.add(new FileOption("h") {
+
+            @Override
+            public String parse(String argument) throws CommandLineException {
+
+                try {
+                    release.await(); // simulates hanging mount
+                }
+                catch (InterruptedException e) {
+                    throw new CommandLineException("interrupted");
+                }
+
+                return super.parse(argument);
+            }
+        }.longCommand("hanging"));
+
+        String file = new File(this.getClass().getResource("/settings.cfg").getFile()).getAbsolutePath();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CommandLineParser parser = new CommandLineParser(builder);
+            parser.setFileValidation(executor, 200, TimeUnit.MILLISECONDS);
+
+            Settings out = parser.parse(new String[]{"-i", file, "-o", file});
+            assertEquals(file, out.get("i"));
+            assertEquals(file, out.get("o"));
+
+            CommandLineException e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-i", file, "-o", "/fail.file"}));
+            assertEquals("File '/fail.file' does not exist", e.getMessage());
+
+            e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-i", file, "-h", file}));
+            assertEquals("File check did not finish in 200 ms: " + file, e.getMessage());
+
+            // shared executor
+            parser.setFileValidation(1, TimeUnit.SECONDS);
+            assertEquals(file, parser.parse(new String[]{"-i", file}).get("i"));
+
+            e = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-i", new File(file).getParent()}));
+            assertTrue(e.getMessage().endsWith("' is a directory"));
+        }
+        finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
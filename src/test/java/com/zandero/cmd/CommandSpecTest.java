@@ -0,0 +1,104 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.ConfigFileOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.StringOption;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class CommandSpecTest {
+
+    @Test
+    public void findOptions() {
+
+        CommandOption<?> all = new BoolOption("a").longCommand("all");
+        CommandOption<?> file = new StringOption("f").longCommand("file").setting("fileName");
+        CommandOption<?> size = new IntOption("s");
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(all);
+        builder.add(file);
+        builder.add(size);
+
+        CommandSpec spec = builder.build();
+        assertEquals(3, spec.size());
+
+        assertSame(all, spec.findShort("-a"));
+        assertSame(all, spec.findShort("a"));
+        assertNull(spec.findShort("--a"));
+
+        assertSame(all, spec.findLong("--all"));
+        assertSame(all, spec.findLong("all"));
+        assertNull(spec.findLong("-all"));
+
+        assertSame(file, spec.findBySetting("fileName"));
+        assertNull(spec.findBySetting("f"));
+
+        assertSame(file, spec.findOption("fileName"));
+        assertSame(file, spec.findOption("file"));
+        assertSame(size, spec.findOption("s"));
+        assertNull(spec.findOption("unknown"));
+
+        assertEquals(0, spec.ordinal(all));
+        assertEquals(2, spec.ordinal(size));
+        assertEquals(-1, spec.ordinal(new IntOption("x")));
+
+        assertNull(spec.getConfigFileOption());
+    }
+
+    @Test
+    public void findByRange() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new IntOption("t").longCommand("threads"));
+
+        CommandSpec spec = builder.build();
+
+        String token = "--threads=64";
+        assertEquals(0, spec.findLong(token, 0, 9));
+        assertEquals(0, spec.findLong(token, 2, 9));
+        assertEquals(-1, spec.findLong(token, 0, token.length()));
+
+        assertEquals(0, spec.findShort("-t10", 0, 2));
+        assertEquals(-1, spec.findShort("-t10", 0, 4));
+    }
+
+    @Test
+    public void specIsCachedUntilOptionAdded() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new BoolOption("a").longCommand("all"));
+
+        CommandSpec spec = builder.build();
+        assertSame(spec, builder.build());
+
+        CommandOption<?> config = new ConfigFileOption("c").longCommand("config");
+        builder.add(config);
+
+        CommandSpec other = builder.build();
+        assertNotSame(spec, other);
+        assertSame(config, other.getConfigFileOption());
+        assertNull(spec.findShort("c"));
+    }
+
+    @Test
+    public void largeSpec() {
+
+        CommandBuilder builder = new CommandBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add(new IntOption("o" + i).longCommand("option" + i));
+        }
+
+        CommandSpec spec = builder.build();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, spec.ordinal(spec.findShort("-o" + i)));
+            assertEquals(i, spec.ordinal(spec.findLong("--option" + i)));
+        }
+    }
+}
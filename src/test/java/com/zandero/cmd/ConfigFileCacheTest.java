@@ -0,0 +1,190 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.IntOption;
+import com.zandero.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class ConfigFileCacheTest {
+
+	@Test
+	public void reuseUnchangedFile() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+		CommandSpec spec = builder.build();
+
+		ConfigFileCache cache = new ConfigFileCache();
+		ConfigFileReader reader = new ConfigFileReader();
+
+		Path file = Files.createTempFile("config", ".cfg");
+		try {
+			Files.write(file, "size = 10".getBytes(StandardCharsets.UTF_8));
+
+			Settings first = cache.load(file.toString(), spec, reader);
+			assertEquals(10, first.get("s"));
+			assertSame(first, cache.load(file.toString(), spec, reader));
+			assertEquals(1, cache.size());
+
+			// size changed
+			Files.write(file, "size = 100".getBytes(StandardCharsets.UTF_8));
+			Settings second = cache.load(file.toString(), spec, reader);
+			assertEquals(100, second.get("s"));
+
+			// other spec
+			CommandBuilder other = new CommandBuilder();
+			other.add(new IntOption("s").longCommand("size"));
+			assertNotSame(second, cache.load(file.toString(), other.build(), reader));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void verifyContent() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+		CommandSpec spec = builder.build();
+
+		ConfigFileCache cache = new ConfigFileCache(2, true);
+		ConfigFileReader reader = new ConfigFileReader();
+
+		Path file = Files.createTempFile("config", ".cfg");
+		try {
+			Files.write(file, "size = 10".getBytes(StandardCharsets.UTF_8));
+			FileTime modified = Files.getLastModifiedTime(file);
+
+			assertEquals(10, cache.load(file.toString(), spec, reader).get("s"));
+
+			// same size and modification time, but different content
+			Files.write(file, "size = 20".getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(file, modified);
+
+			assertEquals(20, cache.load(file.toString(), spec, reader).get("s"));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+		CommandSpec spec = builder.build();
+
+		ConfigFileCache cache = new ConfigFileCache(1, false);
+		ConfigFileReader reader = new ConfigFileReader();
+
+		Path first = Files.createTempFile("config", ".cfg");
+		Path second = Files.createTempFile("config", ".cfg");
+		try {
+			Files.write(first, "size = 1".getBytes(StandardCharsets.UTF_8));
+			Files.write(second, "size = 2".getBytes(StandardCharsets.UTF_8));
+
+			Settings settings = cache.load(first.toString(), spec, reader);
+			cache.load(second.toString(), spec, reader);
+			assertEquals(1, cache.size());
+
+			assertNotSame(settings, cache.load(first.toString(), spec, reader));
+		}
+		finally {
+			Files.delete(first);
+			Files.delete(second);
+		}
+	}
+
+	@Test
+	public void includedFileChanged() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+		CommandSpec spec = builder.build();
+
+		ConfigFileCache cache = new ConfigFileCache();
+		ConfigFileReader reader = new ConfigFileReader();
+
+		Path file = Files.createTempFile("config", ".cfg");
+		Path included = Files.createTempFile("included", ".cfg");
+		try {
+			Files.write(file, ("size = 1\ninclude = " + included.getFileName()).getBytes(StandardCharsets.UTF_8));
+			Files.write(included, "size = 2".getBytes(StandardCharsets.UTF_8));
+
+			Settings settings = cache.load(file.toString(), spec, reader);
+			assertEquals(2, settings.get("s"));
+			assertSame(settings, cache.load(file.toString(), spec, reader));
+
+			Files.write(included, "size = 30".getBytes(StandardCharsets.UTF_8));
+			assertEquals(30, cache.load(file.toString(), spec, reader).get("s"));
+		}
+		finally {
+			Files.delete(file);
+			Files.delete(included);
+		}
+	}
+
+	@Test
+	public void fileAddedToIncludedDirectory() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+		builder.add(new IntOption("p").longCommand("port"));
+		CommandSpec spec = builder.build();
+
+		ConfigFileCache cache = new ConfigFileCache(2, true);
+		ConfigFileReader reader = new ConfigFileReader();
+
+		Path dir = Files.createTempDirectory("config");
+		Path file = dir.resolve("app.cfg");
+		Path conf = Files.createDirectory(dir.resolve("conf.d"));
+		Path first = conf.resolve("10-size.cfg");
+		Path second = conf.resolve("20-port.cfg");
+		try {
+			Files.write(file, "include = conf.d".getBytes(StandardCharsets.UTF_8));
+			Files.write(first, "size = 1".getBytes(StandardCharsets.UTF_8));
+
+			Settings settings = cache.load(file.toString(), spec, reader);
+			assertEquals(1, settings.get("s"));
+			assertNull(settings.get("p"));
+			assertSame(settings, cache.load(file.toString(), spec, reader));
+
+			Files.write(second, "port = 80".getBytes(StandardCharsets.UTF_8));
+			settings = cache.load(file.toString(), spec, reader);
+			assertEquals(1, settings.get("s"));
+			assertEquals(80, settings.get("p"));
+
+			Files.delete(second);
+			assertNull(cache.load(file.toString(), spec, reader).get("p"));
+		}
+		finally {
+			Files.deleteIfExists(second);
+			Files.delete(first);
+			Files.delete(conf);
+			Files.delete(file);
+			Files.delete(dir);
+		}
+	}
+
+	@Test
+	public void missingFile() {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+
+		ConfigFileCache cache = new ConfigFileCache();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> cache.load("/fail.cfg", builder.build(), new ConfigFileReader()));
+		assertEquals("File '/fail.cfg' does not exist", e.getMessage());
+	}
+}
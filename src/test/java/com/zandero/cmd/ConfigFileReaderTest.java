@@ -4,7 +4,17 @@ import com.zandero.cmd.option.*;
 import com.zandero.settings.Settings;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  *
@@ -48,4 +58,269 @@ public class ConfigFileReaderTest {
 		assertEquals(10, out.get("s"));
 		assertEquals("some.file", out.get("f"));
 	}
+
+	@Test
+	public void valueContainingEquals() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new StringOption("q").longCommand("query"));
+		builder.add(new IntOption("s").longCommand("size"));
+
+		Path file = Files.createTempFile("config", ".cfg");
+		try {
+			String content = "\uFEFFquery = a=b&c=d \r\n" +
+				"  size=5\r\n" +
+				"ključ = value\n" +
+				"= missing name\n" +
+				"size =\n" +
+				"// size = 6";
+
+			Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+			Settings out = new ConfigFileReader().load(file.toString(), builder);
+
+			assertEquals(2, out.size());
+			assertEquals("a=b&c=d", out.get("q"));
+			assertEquals(5, out.get("s"));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void invalidValue() throws Exception {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+
+		Path file = Files.createTempFile("config", ".cfg");
+		try {
+			Files.write(file, "size = ten".getBytes(StandardCharsets.UTF_8));
+
+			CommandLineException e = assertThrows(CommandLineException.class, () -> new ConfigFileReader().load(file.toString(), builder));
+			assertEquals("Integer expected for s, but: 'ten', was given!", e.getMessage());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void jsonFile() throws Exception {
+
+		String content = "{\n" +
+			"  \"size\": 5, \"verbose\": true, \"name\": \"a \\\"b\\\" \\u010d\\ud83d\\ude00\",\n" +
+			"  \"server\": {\"port\": 8080, \"hosts\": [\"a\", \"b\"]},\n" +
+			"  \"unknown\": {\"nested\": [1, {\"x\": null}]}, \"ids\": [1, 2, 3]\n" +
+			"}";
+
+		Settings out = load(content, ".json");
+
+		assertEquals(5, out.get("s"));
+		assertEquals(true, out.get("v"));
+		assertEquals("a \"b\" \u010d\ud83d\ude00", out.get("n"));
+		assertEquals(8080, out.get("server.port"));
+		assertEquals(Arrays.asList("a", "b"), out.get("server.hosts"));
+		assertEquals(IntList.of(1, 2, 3), out.get("i"));
+
+		// sniffed
+		assertEquals(5, load("  {\"size\": 5}", ".txt").get("s"));
+
+		CommandLineException e = assertThrows(CommandLineException.class, () -> load("{\n\"size\" 5}", ".json"));
+		assertTrue(e.getMessage().endsWith(", line 2: expected ':'"), e.getMessage());
+	}
+
+	@Test
+	public void yamlFile() throws Exception {
+
+		String content = "# config\n" +
+			"---\n" +
+			"size: 5 # comment\n" +
+			"verbose: yes\n" +
+			"name: 'it''s # not a comment'\n" +
+			"server:\n" +
+			"  port: 8080\n" +
+			"  hosts:\n" +
+			"    - a\n" +
+			"    - \"b\"\n" +
+			"unknown:\n" +
+			"  nested: ~\n" +
+			"ids: [1, 2, '3']\n";
+
+		Settings out = load(content, ".yml");
+
+		assertEquals(5, out.get("s"));
+		assertEquals(true, out.get("v"));
+		assertEquals("it's # not a comment", out.get("n"));
+		assertEquals(8080, out.get("server.port"));
+		assertEquals(Arrays.asList("a", "b"), out.get("server.hosts"));
+		assertEquals(IntList.of(1, 2, 3), out.get("i"));
+
+		// sniffed
+		assertEquals(5, load("# yaml\nsize: 5\n", ".txt").get("s"));
+		assertEquals(5, load("size = 5\n", ".txt").get("s"));
+
+		CommandLineException e = assertThrows(CommandLineException.class, () -> load("size: 5\nserver: |\n  text", ".yaml"));
+		assertTrue(e.getMessage().endsWith(", line 2: block scalars, flow mappings, anchors and aliases are not supported"), e.getMessage());
+	}
+
+	@Test
+	public void customFormat() throws Exception {
+
+		ConfigFileReader reader = new ConfigFileReader();
+		reader.addFormat(new ConfigFormat() {
+
+			@Override
+			public boolean accepts(String fileName) {
+
+				return fileName.endsWith(".csv");
+			}
+
+			@Override
+			public boolean sniff(byte[] head, int length) {
+
+				return false;
+			}
+
+			@Override
+			public void parse(Input input, Handler handler) throws IOException, CommandLineException {
+
+				StringBuilder line = new StringBuilder();
+				for (int value = input.read(); value >= 0; value = input.read()) {
+					line.append((char) value);
+				}
+
+				String[] items = line.toString().trim().split(",");
+				handler.value(items[0], 0, items[0].length(), items[1]);
+			}
+		});
+
+		Path file = Files.createTempFile("config", ".CSV");
+		try {
+			Files.write(file, "size,7\n".getBytes(StandardCharsets.UTF_8));
+			assertEquals(7, reader.load(file.toString(), builder()).get("s"));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void includeFilesAndDirectory() throws Exception {
+
+		Path dir = Files.createTempDirectory("config");
+		try {
+			write(dir.resolve("app.cfg"), "size = 1\nname = app\ninclude = conf.d\ninclude = local.json\n");
+			write(dir.resolve("local.json"), "{\"size\": 3}");
+			Files.createDirectory(dir.resolve("conf.d"));
+			write(dir.resolve("conf.d/20-server.yaml"), "server:\n  port: 8080\n");
+			write(dir.resolve("conf.d/10-size.cfg"), "size = 2\nverbose = true\ninclude = ../common.cfg\n");
+			write(dir.resolve("conf.d/.hidden.cfg"), "name = hidden\n");
+			write(dir.resolve("common.cfg"), "server.port = 80\nname = common\n");
+
+			Settings settings = new ConfigFileReader().load(dir.resolve("app.cfg").toString(), builder());
+
+			// app.cfg < 10-size.cfg < common.cfg < 20-server.yaml < local.json
+			assertEquals(3, settings.get("s"));
+			assertEquals(true, settings.get("v"));
+			assertEquals("common", settings.get("n"));
+			assertEquals(8080, settings.get("server.port"));
+
+			// directory given directly
+			settings = new ConfigFileReader().load(dir.resolve("conf.d").toString(), builder());
+			assertEquals(2, settings.get("s"));
+			assertEquals("common", settings.get("n"));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void includedMultiValues() throws Exception {
+
+		Path dir = Files.createTempDirectory("config");
+		try {
+			write(dir.resolve("app.cfg"), "hosts = a\nids = 1\ninclude = conf.d\nhosts = b\n");
+			Files.createDirectory(dir.resolve("conf.d"));
+			write(dir.resolve("conf.d/10-hosts.cfg"), "hosts = c d\n");
+			write(dir.resolve("conf.d/20-ids.json"), "{\"ids\": [2, 3], \"size\": 1}");
+
+			Settings settings = new ConfigFileReader().load(dir.resolve("app.cfg").toString(), builder());
+
+			// values of including file first, then values of included files in order given
+			assertEquals(Arrays.asList("a", "b", "c", "d"), settings.get("server.hosts"));
+			assertEquals(IntList.of(1, 2, 3), settings.get("i"));
+			assertEquals(1, settings.get("s"));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void includeCycle() throws Exception {
+
+		Path dir = Files.createTempDirectory("config").toRealPath();
+		try {
+			write(dir.resolve("a.cfg"), "include = b.cfg\n");
+			write(dir.resolve("b.cfg"), "include = a.cfg\n");
+
+			CommandLineException e = assertThrows(CommandLineException.class, () -> new ConfigFileReader().load(dir.resolve("a.cfg").toString(), builder()));
+			assertEquals("Config file include cycle: " + dir.resolve("a.cfg") + " -> " + dir.resolve("b.cfg") + " -> " + dir.resolve("a.cfg"), e.getMessage());
+
+			// same file included twice is not a cycle
+			write(dir.resolve("a.cfg"), "include = b.cfg\ninclude = c.cfg\n");
+			write(dir.resolve("b.cfg"), "size = 1\ninclude = c.cfg\n");
+			write(dir.resolve("c.cfg"), "name = c\n");
+
+			Settings settings = new ConfigFileReader().load(dir.resolve("a.cfg").toString(), builder());
+			assertEquals(1, settings.get("s"));
+			assertEquals("c", settings.get("n"));
+
+			write(dir.resolve("c.cfg"), "include = missing.cfg\n");
+			e = assertThrows(CommandLineException.class, () -> new ConfigFileReader().load(dir.resolve("a.cfg").toString(), builder()));
+			assertEquals("Included config file 'missing.cfg' does not exist, included from: " + dir.resolve("c.cfg"), e.getMessage());
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	private static void write(Path file, String content) throws Exception {
+
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void delete(Path dir) throws Exception {
+
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static CommandBuilder builder() {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size"));
+		builder.add(new BoolOption("v").longCommand("verbose"));
+		builder.add(new StringOption("n").longCommand("name"));
+		builder.add(new IntOption("p").longCommand("port").setting("server.port"));
+		builder.add(new MultiArgOption("h").longCommand("hosts").setting("server.hosts"));
+		builder.add(new IntListOption("i").longCommand("ids"));
+		return builder;
+	}
+
+	private static Settings load(String content, String extension) throws Exception {
+
+		Path file = Files.createTempFile("config", extension);
+		try {
+			Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+			return new ConfigFileReader().load(file.toString(), builder());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
 }
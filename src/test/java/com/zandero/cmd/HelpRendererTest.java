@@ -0,0 +1,86 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.StringOption;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class HelpRendererTest {
+
+    private static CommandSpec spec() {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new BoolOption("a").longCommand("all").description("show all files, including hidden files and folders"));
+        builder.add(new StringOption("f").longCommand("files").description("show single file"));
+        builder.add(new IntOption("s").longCommand("size").description("display file sizes in bytes"));
+        builder.setHelp("App Version 1.0", "usage.jar -option");
+
+        return builder.build();
+    }
+
+    @Test
+    public void wrapToWidth() throws IOException {
+
+        CommandSpec spec = spec();
+
+        StringBuilder out = new StringBuilder();
+        new HelpRenderer(spec, 40).render(out);
+
+        String newLine = System.lineSeparator();
+        assertEquals("App Version 1.0" + newLine +
+                     "usage.jar -option" + newLine +
+                     newLine +
+                     "-a [ --all ]   show all files, including" + newLine +
+                     "               hidden files and folders" + newLine +
+                     "-f [ --files ] show single file" + newLine +
+                     "-s [ --size ]  display file sizes in" + newLine +
+                     "               bytes" + newLine, out.toString());
+
+        // layout is computed once per spec
+        assertSame(spec.helpLayout(), spec.helpLayout());
+    }
+
+    @Test
+    public void longWordsAreBroken() throws IOException {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new StringOption("f").longCommand("file").description("aaaaaaaaaaaaaaaaaaaaaaaaa"));
+
+        StringBuilder out = new StringBuilder();
+        new HelpRenderer(builder.build(), 10).render(out);
+
+        String newLine = System.lineSeparator();
+        assertEquals("-f [ --file ] aaaaaaaaaaaaaaaaaaaa" + newLine +
+                     "              aaaaa" + newLine, out.toString());
+    }
+
+    @Test
+    public void linesOnDemand() {
+
+        Iterator<String> lines = new HelpRenderer(spec(), 40).lines();
+
+        List<String> out = new ArrayList<>();
+        lines.forEachRemaining(out::add);
+
+        assertEquals(8, out.size());
+        assertEquals("", out.get(2));
+        assertEquals("               hidden files and folders", out.get(4));
+        assertFalse(lines.hasNext());
+
+        // no wrapping
+        out.clear();
+        new HelpRenderer(spec(), 0).lines().forEachRemaining(out::add);
+        assertEquals(6, out.size());
+        assertEquals("-a [ --all ]   show all files, including hidden files and folders", out.get(3));
+    }
+}
@@ -0,0 +1,54 @@
+package com.zandero.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class MappedInputTest {
+
+	@Test
+	public void readAcrossWindows() throws Exception {
+
+		byte[] content = new byte[1000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		Path file = Files.createTempFile("mapped", ".bin");
+		try {
+			Files.write(file, content);
+
+			try (MappedInput input = new MappedInput(file, 64)) {
+
+				assertEquals(1000, input.size());
+				for (byte expected : content) {
+					assertEquals(expected & 0xff, input.read());
+				}
+
+				assertEquals(-1, input.read());
+				assertEquals(-1, input.read());
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void readEmptyFile() throws Exception {
+
+		Path file = Files.createTempFile("mapped", ".bin");
+		try (MappedInput input = new MappedInput(file)) {
+			assertEquals(-1, input.read());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+}
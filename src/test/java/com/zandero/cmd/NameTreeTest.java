@@ -0,0 +1,57 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.StringOption;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class NameTreeTest {
+
+    @Test
+    public void distance() {
+
+        assertEquals(0, NameTree.distance("threads", "threads"));
+        assertEquals(1, NameTree.distance("thrads", "threads"));
+        assertEquals(3, NameTree.distance("verb", "verbose"));
+        assertEquals(3, NameTree.distance("kitten", "sitting"));
+        assertEquals(4, NameTree.distance("", "test"));
+    }
+
+    @Test
+    public void find() {
+
+        NameTree tree = new NameTree();
+        for (int i = 0; i < 1000; i++) {
+            tree.add("--option" + i);
+        }
+
+        tree.add("--threads");
+        tree.add("--thread");
+        tree.add("--retries");
+
+        assertEquals(Arrays.asList("--thread", "--threads"), tree.find("--thrad", 2));
+        assertEquals(Collections.singletonList("--retries"), tree.find("--retires", 2));
+        assertEquals(Arrays.asList("--option1", "--option0", "--option10"), tree.find("--option1", 1));
+        assertTrue(tree.find("--unknown", 2).isEmpty());
+    }
+
+    @Test
+    public void suggestFromSpec() {
+
+        CommandBuilder builder = new CommandBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add(new StringOption("o" + i).longCommand("option-" + i));
+        }
+
+        CommandSpec spec = builder.build();
+        assertEquals("--option-4999", spec.suggest("--opton-4999").get(0));
+        assertTrue(spec.suggest("-x").isEmpty());
+        assertTrue(spec.suggest(null).isEmpty());
+    }
+}
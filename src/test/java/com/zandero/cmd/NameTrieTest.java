@@ -0,0 +1,32 @@
+package com.zandero.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class NameTrieTest {
+
+    @Test
+    public void findPrefix() {
+
+        NameTrie trie = new NameTrie(new String[]{"verbose", "version", null, "verb", "all", "threads"});
+
+        assertEquals(0, trie.find("verbo", 0, 5));
+        assertEquals(1, trie.find("versi", 0, 5));
+        assertEquals(3, trie.find("verb", 0, 4)); // exact match wins
+        assertEquals(4, trie.find("a", 0, 1));
+        assertEquals(5, trie.find("--thr", 2, 5));
+
+        assertEquals(NameTrie.AMBIGUOUS, trie.find("ver", 0, 3));
+        assertEquals(NameTrie.NONE, trie.find("verbs", 0, 5));
+        assertEquals(NameTrie.NONE, trie.find("x", 0, 1));
+
+        assertEquals(Arrays.asList(3, 0, 1), trie.matches("ver", 0, 3));
+        assertTrue(trie.matches("x", 0, 1).isEmpty());
+    }
+}
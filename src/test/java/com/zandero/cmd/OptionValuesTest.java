@@ -0,0 +1,165 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.CommandOption;
+import com.zandero.cmd.option.FileOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.StringOption;
+import com.zandero.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class OptionValuesTest {
+
+    @Test
+    public void typedValues() throws CommandLineException {
+
+        CommandOption<Boolean> all = new BoolOption("a").longCommand("all");
+        CommandOption<String> file = new StringOption("f").longCommand("file");
+        CommandOption<Integer> size = new IntOption("s").longCommand("size").setting("fileSize");
+        CommandOption<Integer> count = new IntOption("c").longCommand("count");
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(all);
+        builder.add(file);
+        builder.add(size);
+        builder.add(count);
+
+        CommandSpec spec = builder.build();
+        OptionKey<Boolean> ALL = spec.key(all);
+        OptionKey<String> FILE = spec.key(file);
+        OptionKey<Integer> SIZE = spec.key(size);
+        OptionKey<Integer> COUNT = spec.key(count);
+
+        assertSame(SIZE, spec.key(size));
+        assertEquals(2, SIZE.getOrdinal());
+
+        CommandLineParser parser = new CommandLineParser(spec);
+        OptionValues values = parser.parseValues(new String[]{"-a", "--size", "100", "-f", "some.file"});
+
+        assertTrue(values.getBool(ALL));
+        assertEquals(100, values.getInt(SIZE));
+        assertEquals("some.file", values.get(FILE));
+
+        assertFalse(values.isSet(COUNT));
+        assertNull(values.get(COUNT));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> values.getInt(COUNT));
+        assertEquals("Missing value for: -c [ --count ]", e.getMessage());
+
+        Settings settings = values.toSettings();
+        assertSame(settings, values.toSettings());
+        assertEquals(4, settings.size());
+        assertEquals(true, settings.get("a"));
+        assertEquals(100, settings.get("fileSize"));
+        assertEquals("some.file", settings.get("f"));
+        assertNull(settings.get("c"));
+    }
+
+    @Test
+    public void intOptionWithOwnParse() throws CommandLineException {
+
+        CommandOption<Integer> port = new IntOption("p") {
+
+            @Override
+            public Integer parse(String argument) throws CommandLineException {
+
+                return "http".equals(argument) ? 80 : super.parse(argument);
+            }
+        }.longCommand("port");
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(port);
+
+        CommandSpec spec = builder.build();
+        OptionKey<Integer> PORT = spec.key(port);
+
+        CommandLineParser parser = new CommandLineParser(spec);
+        assertEquals(80, parser.parseValues(new String[]{"--port", "http"}).getInt(PORT));
+        assertEquals(8080, parser.parseValues(new String[]{"--port", "8080"}).getInt(PORT));
+        assertEquals(80, parser.parse(new String[]{"-p", "http"}).get("p"));
+    }
+
+    @Test
+    public void keyOfOtherSpec() throws CommandLineException {
+
+        CommandOption<Integer> size = new IntOption("s").longCommand("size");
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(size);
+
+        CommandSpec spec = builder.build();
+        OptionKey<Integer> SIZE = spec.key(size);
+
+        builder.add(new BoolOption("a").longCommand("all"));
+        OptionValues values = new CommandLineParser(builder).parseValues(new String[]{"-s", "1"});
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> values.getInt(SIZE));
+        assertEquals("Option: -s [ --size ] is not part of given spec!", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> spec.key(new IntOption("x")));
+        assertEquals("Option: -x is not part of spec!", e.getMessage());
+    }
+
+    @Test
+    public void lazyConversion() throws CommandLineException {
+
+        AtomicInteger parsed = new AtomicInteger();
+        CommandOption<String> name = new StringOption("n").longCommand("name");
+        CommandOption<String> counted = new StringOption("c") {
+
+            @Override
+            public String parse(String argument) {
+
+                parsed.incrementAndGet();
+                return super.parse(argument);
+            }
+        }.longCommand("counted");
+
+        CommandOption<String> file = new FileOption("f").longCommand("file");
+        CommandOption<String> eager = new FileOption("e").longCommand("eager").eager();
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(name);
+        builder.add(counted);
+        builder.add(file);
+        builder.add(eager);
+
+        CommandSpec spec = builder.build();
+        CommandLineParser parser = new CommandLineParser(spec);
+        parser.setLazyConversion(true);
+
+        OptionValues values = parser.parseValues(new String[]{"-c", " value ", "-f", "/fail.file", "-n", "name"});
+        assertEquals(0, parsed.get());
+        assertTrue(values.isSet(spec.key(counted)));
+
+        // converted once on first access
+        assertEquals("value", values.get(spec.key(counted)));
+        assertEquals("value", values.get(spec.key(counted)));
+        assertEquals(1, parsed.get());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> values.get(spec.key(file)));
+        assertEquals("File '/fail.file' does not exist", e.getMessage());
+
+        CommandLineException cle = assertThrows(CommandLineException.class, values::validateAll);
+        assertEquals("File '/fail.file' does not exist", cle.getMessage());
+
+        // settings hold converted values
+        cle = assertThrows(CommandLineException.class, () -> parser.parse(new String[]{"-f", "/fail.file"}));
+        assertEquals("File '/fail.file' does not exist", cle.getMessage());
+
+        // eager options fail fast
+        cle = assertThrows(CommandLineException.class, () -> parser.parseValues(new String[]{"-e", "/fail.file"}));
+        assertEquals("File '/fail.file' does not exist", cle.getMessage());
+
+        OptionValues valid = parser.parseValues(new String[]{"-n", " name "});
+        valid.validateAll();
+        assertEquals("name", valid.get(spec.key(name)));
+    }
+}
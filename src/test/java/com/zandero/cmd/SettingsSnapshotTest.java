@@ -0,0 +1,319 @@
+package com.zandero.cmd;
+
+import com.zandero.cmd.option.BoolOption;
+import com.zandero.cmd.option.ConfigFileOption;
+import com.zandero.cmd.option.IntList;
+import com.zandero.cmd.option.IntListOption;
+import com.zandero.cmd.option.IntOption;
+import com.zandero.cmd.option.LongList;
+import com.zandero.cmd.option.LongListOption;
+import com.zandero.cmd.option.MultiArgOption;
+import com.zandero.cmd.option.StringOption;
+import com.zandero.cmd.option.UrlOption;
+import com.zandero.cmd.option.VoidOption;
+import com.zandero.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class SettingsSnapshotTest {
+
+	@Test
+	public void writeAndRead() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			write(config, "size = 10\n" +
+				"verbose = true\n" +
+				"name = Jože\n" +
+				"url = http://www.example.com/path\n" +
+				"hosts = a b\n" +
+				"ids = 1, 2, 3\n" +
+				"longs = -9223372036854775808\n" +
+				"unknown = 1\n");
+
+			CommandSpec spec = builder().build();
+			ConfigFileReader reader = new ConfigFileReader();
+
+			SettingsSnapshot snapshot = SettingsSnapshot.open(dir.resolve("app.snapshot"), config.toString(), spec, reader);
+
+			assertEquals(7, snapshot.size());
+			assertEquals(10, snapshot.getInt("size", 0));
+			assertEquals(1, snapshot.getInt("missing", 1));
+			assertTrue(snapshot.getBool("verbose", false));
+			assertEquals("Jože", snapshot.get("name"));
+			assertEquals(URI.create("http://www.example.com/path"), snapshot.get("url"));
+			assertEquals(Arrays.asList("a", "b"), snapshot.get("hosts"));
+			assertEquals(IntList.of(1, 2, 3), snapshot.get("ids"));
+			assertEquals(LongList.of(Long.MIN_VALUE), snapshot.get("longs"));
+			assertFalse(snapshot.contains("unknown"));
+			assertNull(snapshot.get("unknown"));
+
+			assertEquals(reader.load(config.toString(), spec), snapshot.toSettings());
+			assertTrue(snapshot.isCurrent());
+
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> snapshot.getInt("name", 0));
+			assertEquals("Setting: name, is not an int!", e.getMessage());
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void rebuildWhenSourceChanges() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			Path included = dir.resolve("included.cfg");
+			write(config, "size = 1\ninclude = included.cfg\n");
+			write(included, "name = one\n");
+
+			CommandSpec spec = builder().build();
+			ConfigFileReader reader = new ConfigFileReader();
+			Path file = dir.resolve("app.snapshot");
+
+			SettingsSnapshot first = SettingsSnapshot.open(file, config.toString(), spec, reader);
+			assertEquals("one", first.get("name"));
+
+			// unchanged snapshot is used as is
+			long modified = Files.getLastModifiedTime(file).toMillis();
+			SettingsSnapshot second = SettingsSnapshot.open(file, config.toString(), spec, reader);
+			assertEquals("one", second.get("name"));
+			assertEquals(modified, Files.getLastModifiedTime(file).toMillis());
+
+			write(included, "name = three\n");
+			assertFalse(first.isCurrent());
+
+			SettingsSnapshot third = SettingsSnapshot.open(file, config.toString(), spec, reader);
+			assertEquals("three", third.get("name"));
+			assertEquals("one", first.get("name")); // old mapping is still readable
+
+			// other options
+			CommandBuilder other = new CommandBuilder();
+			other.add(new IntOption("s").longCommand("size"));
+			assertNull(SettingsSnapshot.open(file, config.toString(), other.build(), reader).get("name"));
+
+			// corrupted snapshot is rebuilt
+			write(file, "garbage");
+			assertEquals(1, SettingsSnapshot.open(file, config.toString(), spec, reader).getInt("size", 0));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void rebuildWhenOptionsOrDirectoryChange() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			Path conf = Files.createDirectory(dir.resolve("conf.d"));
+			write(config, "include = conf.d\n");
+			write(conf.resolve("10-size.cfg"), "size = 20\n");
+
+			ConfigFileReader reader = new ConfigFileReader();
+			Path file = dir.resolve("app.snapshot");
+
+			SettingsSnapshot first = SettingsSnapshot.open(file, config.toString(), builder().build(), reader);
+			assertEquals(20, first.getInt("size", 0));
+			assertNull(first.get("name"));
+
+			// file added to included directory
+			write(conf.resolve("20-name.cfg"), "name = two\n");
+			assertFalse(first.isCurrent());
+			assertEquals("two", SettingsSnapshot.open(file, config.toString(), builder().build(), reader).get("name"));
+
+			// same options, other version
+			assertEquals(0, SettingsSnapshot.open(file, config.toString(), builder().build(), reader).getBytesRead());
+			assertTrue(SettingsSnapshot.open(file, config.toString(), builder().build(), reader, 1).getBytesRead() > 0);
+
+			// same option names, other limits
+			CommandBuilder limited = new CommandBuilder();
+			limited.add(new IntOption("s").max(10).longCommand("size").setting("size"));
+			assertThrows(CommandLineException.class, () -> SettingsSnapshot.open(file, config.toString(), limited.build(), reader, 1));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void parseWithSnapshot() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			write(config, "size = 5\n");
+
+			CommandBuilder builder = builder();
+			builder.add(new ConfigFileOption("c").longCommand("config"));
+
+			CommandLineParser parser = new CommandLineParser(builder);
+			parser.setConfigSnapshotDirectory(dir);
+
+			Settings settings = parser.parse(new String[] {"-c", config.toString(), "-n", "given"});
+			assertEquals(5, settings.get("size"));
+			assertEquals("given", settings.get("name"));
+
+			try (Stream<Path> files = Files.list(dir)) {
+				assertEquals(1, files.filter(path -> path.toString().endsWith(".snapshot")).count());
+			}
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void parseReusesOpenedSnapshot() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			write(config, "size = 5\n");
+
+			CommandBuilder builder = builder();
+			builder.add(new ConfigFileOption("c").longCommand("config"));
+
+			CommandLineParser parser = new CommandLineParser(builder);
+			parser.setConfigFileCache(null);
+			parser.setConfigSnapshotDirectory(dir);
+
+			List<Long> bytes = new ArrayList<>();
+			parser.setParseListener(new ParseListener() {
+				@Override
+				public void configFile(String file, long read) {
+					bytes.add(read);
+				}
+			});
+
+			assertEquals(5, parser.parse(new String[] {"-c", config.toString()}).get("size"));
+
+			// snapshot is not opened again while current
+			delete(dir, ".snapshot");
+			assertEquals(5, parser.parse(new String[] {"-c", config.toString()}).get("size"));
+			assertEquals(0, count(dir, ".snapshot"));
+
+			write(config, "size = 50\n");
+			assertEquals(50, parser.parse(new String[] {"-c", config.toString()}).get("size"));
+			assertEquals(1, count(dir, ".snapshot"));
+
+			assertEquals(Arrays.asList(9L, 0L, 10L), bytes);
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void parseWhenSnapshotCantBeWritten() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			Path snapshots = Files.createDirectory(dir.resolve("snapshots"));
+			write(config, "size = 4\n");
+
+			CommandBuilder builder = builder();
+			builder.add(new ConfigFileOption("c").longCommand("config"));
+
+			CommandLineParser parser = new CommandLineParser(builder);
+			parser.setConfigSnapshotDirectory(snapshots);
+			Files.delete(snapshots);
+
+			assertEquals(4, parser.parse(new String[] {"-c", config.toString()}).get("size"));
+			assertEquals(4, parser.parse(new String[] {"-c", config.toString()}).get("size"));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void parseWithoutSnapshotForUnsupportedValues() throws Exception {
+
+		Path dir = Files.createTempDirectory("snapshot");
+		try {
+			Path config = dir.resolve("app.cfg");
+			write(config, "size = 5\nquiet = true\n");
+
+			CommandBuilder builder = builder();
+			builder.add(new ConfigFileOption("c").longCommand("config"));
+			builder.add(new VoidOption("q").longCommand("quiet").setting("quiet"));
+
+			CommandLineParser parser = new CommandLineParser(builder);
+			parser.setConfigSnapshotDirectory(dir);
+
+			Settings settings = parser.parse(new String[] {"-c", config.toString()});
+			assertEquals(5, settings.get("size"));
+			assertTrue(settings.containsKey("quiet"));
+
+			try (Stream<Path> files = Files.list(dir)) {
+				assertEquals(0, files.filter(path -> path.toString().endsWith(".snapshot")).count());
+			}
+
+			Settings loaded = new ConfigFileReader().load(config.toString(), builder.build());
+			assertFalse(SettingsSnapshot.canStore(loaded));
+			assertThrows(IllegalArgumentException.class, () -> SettingsSnapshot.open(dir.resolve("app.snapshot"), config.toString(), builder.build(), new ConfigFileReader()));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	private static CommandBuilder builder() {
+
+		CommandBuilder builder = new CommandBuilder();
+		builder.add(new IntOption("s").longCommand("size").setting("size"));
+		builder.add(new BoolOption("v").longCommand("verbose").setting("verbose"));
+		builder.add(new StringOption("n").longCommand("name").setting("name"));
+		builder.add(new UrlOption("u").longCommand("url").setting("url"));
+		builder.add(new MultiArgOption("h").longCommand("hosts").setting("hosts"));
+		builder.add(new IntListOption("i").longCommand("ids").setting("ids"));
+		builder.add(new LongListOption("l").longCommand("longs").setting("longs"));
+		return builder;
+	}
+
+	private static void write(Path file, String content) throws Exception {
+
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static long count(Path dir, String extension) throws Exception {
+
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(path -> path.toString().endsWith(extension)).count();
+		}
+	}
+
+	private static void delete(Path dir, String extension) throws Exception {
+
+		try (Stream<Path> files = Files.list(dir)) {
+			files.filter(path -> path.toString().endsWith(extension)).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static void delete(Path dir) throws Exception {
+
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+}
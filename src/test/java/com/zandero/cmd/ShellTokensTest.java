@@ -0,0 +1,73 @@
+package com.zandero.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class ShellTokensTest {
+
+	@Test
+	public void plainTokens() throws CommandLineException {
+
+		String line = "  -a --file some.file\t-s 10 ";
+		ShellTokens tokens = new ShellTokens(line);
+
+		assertTrue(tokens.next());
+		assertSame(line, tokens.chars());
+		assertEquals(2, tokens.start());
+		assertEquals(4, tokens.end());
+
+		assertEquals(Arrays.asList("--file", "some.file", "-s", "10"), rest(tokens));
+	}
+
+	@Test
+	public void quotedTokens() throws CommandLineException {
+
+		assertEquals(Arrays.asList("-f", "some file", "x"), tokens("-f 'some file' x"));
+		assertEquals(Arrays.asList("-f", "some file"), tokens("-f some\\ file"));
+		assertEquals(Arrays.asList("a\"b", "c$d", "e\\f"), tokens("\"a\\\"b\" \"c\\$d\" \"e\\f\""));
+		assertEquals(Arrays.asList("it's", ""), tokens("'it'\\''s' ''"));
+		assertEquals(Arrays.asList("--name=John Doe"), tokens("--name=\"John Doe\""));
+		assertEquals(Arrays.asList("ab"), tokens("a\\\nb"));
+		assertEquals(Arrays.asList("\\n"), tokens("'\\n'"));
+	}
+
+	@Test
+	public void emptyLine() throws CommandLineException {
+
+		assertEquals(0, tokens(" \t ").size());
+		assertEquals(0, tokens(null).size());
+	}
+
+	@Test
+	public void missingClosingQuote() {
+
+		CommandLineException e = assertThrows(CommandLineException.class, () -> tokens("-f 'some file"));
+		assertEquals("Missing closing quote (') in: -f 'some file", e.getMessage());
+
+		e = assertThrows(CommandLineException.class, () -> tokens("-f \"some file"));
+		assertEquals("Missing closing quote (\") in: -f \"some file", e.getMessage());
+	}
+
+	private static List<String> tokens(String line) throws CommandLineException {
+
+		return rest(new ShellTokens(line));
+	}
+
+	private static List<String> rest(Tokens tokens) throws CommandLineException {
+
+		List<String> out = new ArrayList<>();
+		while (tokens.next()) {
+			out.add(tokens.string());
+		}
+
+		return out;
+	}
+}
@@ -0,0 +1,110 @@
+package com.zandero.cmd.bind;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.cmd.CommandLineParser;
+import com.zandero.cmd.option.FileOption;
+import com.zandero.cmd.option.LongList;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class OptionBinderTest {
+
+    static class Config {
+
+        @Option(shortName = "t", longName = "threads", description = "number of threads")
+        private int threads = 4;
+
+        @Option(shortName = "v", longName = "verbose")
+        boolean verbose;
+
+        @Option(shortName = "n", longName = "name", required = true)
+        String name;
+
+        @Option(shortName = "u", longName = "url")
+        URI url;
+
+        @Option(shortName = "s", setting = "timeout")
+        Integer seconds;
+
+        @Option(shortName = "a", longName = "args")
+        List<String> arguments;
+
+        @Option(shortName = "r", longName = "records")
+        LongList records;
+
+        String notBound = "keep";
+    }
+
+    static class FileConfig {
+
+        @Option(shortName = "f", type = FileOption.class)
+        String file;
+    }
+
+    static class Unknown {
+
+        @Option(shortName = "x")
+        Thread thread;
+    }
+
+    @Test
+    public void bindFields() throws CommandLineException {
+
+        OptionBinder<Config> binder = OptionBinder.of(Config.class);
+        assertSame(binder, OptionBinder.of(Config.class));
+
+        Config config = binder.parse(new String[]{"-t", "16", "--verbose", "-n", "test", "--url", "http://zandero.com", "-s", "30", "-a", "one two", "-r", "1", "2"});
+
+        assertEquals(16, config.threads);
+        assertTrue(config.verbose);
+        assertEquals("test", config.name);
+        assertEquals(URI.create("http://zandero.com"), config.url);
+        assertEquals(30, config.seconds);
+        assertEquals(Arrays.asList("one", "two"), config.arguments);
+        assertEquals(LongList.of(1, 2), config.records);
+        assertEquals("keep", config.notBound);
+    }
+
+    @Test
+    public void defaultsFromFields() throws CommandLineException {
+
+        OptionBinder<Config> binder = OptionBinder.of(Config.class);
+        Config config = binder.parse(new String[]{"-n", "test"});
+
+        assertEquals(4, config.threads);
+        assertFalse(config.verbose);
+        assertNull(config.url);
+        assertNull(config.seconds);
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> binder.parse(new String[0]));
+        assertEquals("Missing required: -n [ --name ]", e.getMessage());
+
+        // spec can be used with any parser
+        assertEquals(4, new CommandLineParser(binder.getSpec()).parse(new String[]{"-n", "test"}).get("threads"));
+    }
+
+    @Test
+    public void explicitOptionType() {
+
+        OptionBinder<FileConfig> binder = OptionBinder.of(FileConfig.class);
+        assertTrue(binder.getSpec().findShort("f") instanceof FileOption);
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> binder.parse(new String[]{"-f", "/fail.file"}));
+        assertEquals("File '/fail.file' does not exist", e.getMessage());
+    }
+
+    @Test
+    public void unknownFieldType() {
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> OptionBinder.of(Unknown.class));
+        assertTrue(e.getMessage().startsWith("Can't deduce option type of field:"));
+    }
+}
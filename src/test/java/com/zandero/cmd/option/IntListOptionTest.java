@@ -0,0 +1,77 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class IntListOptionTest {
+
+    @Test
+    public void parseList() throws CommandLineException {
+
+        IntListOption option = new IntListOption("s");
+        assertEquals("com.zandero.cmd.option.IntList", option.getType().getTypeName());
+        assertTrue(option.hasArguments());
+
+        assertEquals(IntList.of(1, -2, 3, 2147483647), option.parse(" 1, -2\t3,,+2147483647 "));
+        assertNull(option.parse(" "));
+
+        IntList values = option.append(null, "1");
+        assertSame(values, option.append(values, "2,3"));
+        assertEquals(IntList.of(1, 2, 3), values);
+        assertArrayEquals(new int[]{1, 2, 3}, values.toArray());
+        assertEquals(6, values.stream().sum());
+    }
+
+    @Test
+    public void invalidValues() {
+
+        IntListOption option = new IntListOption("s");
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> option.parse("1,a2,3"));
+        assertEquals("Integer expected for s, but: 'a2', was given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> option.parse("-2147483649"));
+        assertEquals("Integer expected for s, but: '-2147483649', was given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> option.parse("-"));
+        assertEquals("Integer expected for s, but: '-', was given!", e.getMessage());
+    }
+
+    @Test
+    public void arity() throws CommandLineException {
+
+        IntListOption option = new IntListOption("s");
+        option.arity(2, 3);
+
+        option.checkArity(IntList.of(1, 2));
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> option.checkArity(IntList.of(1)));
+        assertEquals("Expected at least 2 value(s) for s, but: 1, were given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> option.parse("1 2 3 4"));
+        assertEquals("Expected at most 3 value(s) for s, but: 4, were given!", e.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> option.arity(2, 1));
+        assertThrows(IllegalArgumentException.class, () -> option.arity(-1, 1));
+    }
+
+    @Test
+    public void growList() {
+
+        IntList list = new IntList(1);
+        for (int index = 0; index < 1000; index++) {
+            list.add(index);
+        }
+
+        assertEquals(1000, list.size());
+        assertEquals(999, list.get(999));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1000));
+        assertEquals("[1, 2]", IntList.of(1, 2).toString());
+        assertEquals(IntList.of(1, 2).hashCode(), IntList.of(1, 2).hashCode());
+    }
+}
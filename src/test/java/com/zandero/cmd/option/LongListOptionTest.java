@@ -0,0 +1,37 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandLineException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class LongListOptionTest {
+
+    @Test
+    public void parseList() throws CommandLineException {
+
+        LongListOption option = new LongListOption("r");
+        assertEquals("com.zandero.cmd.option.LongList", option.getType().getTypeName());
+
+        assertEquals(LongList.of(Long.MIN_VALUE, Long.MAX_VALUE, 0), option.parse("-9223372036854775808 9223372036854775807,0"));
+        assertEquals(3L, option.parse("1,2").stream().sum());
+    }
+
+    @Test
+    public void invalidValues() {
+
+        LongListOption option = new LongListOption("r");
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> option.parse("9223372036854775808"));
+        assertEquals("Long expected for r, but: '9223372036854775808', was given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> option.parse("-9223372036854775809"));
+        assertEquals("Long expected for r, but: '-9223372036854775809', was given!", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> option.parse("1.5"));
+        assertEquals("Long expected for r, but: '1.5', was given!", e.getMessage());
+    }
+}
@@ -0,0 +1,164 @@
+package com.zandero.cmd.option;
+
+import com.zandero.cmd.CommandBuilder;
+import com.zandero.cmd.CommandLineException;
+import com.zandero.cmd.CommandLineParser;
+import com.zandero.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class StreamOptionTest {
+
+    @Test
+    public void readFile() throws Exception {
+
+        Path file = Files.createTempFile("values", ".txt");
+        try {
+            Files.write(file, "1\n\n 2 \r\n3".getBytes(StandardCharsets.UTF_8));
+
+            StreamOption<Integer> option = new StreamOption<>("i", new IntOption("i"));
+            ValueSource<Integer> source = option.parse(file.toString());
+
+            assertFalse(source.isStdin());
+            assertEquals(file.toString(), source.getName());
+
+            try (Stream<Integer> values = source.stream()) {
+                assertEquals(6, values.mapToInt(Integer::intValue).sum());
+            }
+
+            IllegalStateException e = assertThrows(IllegalStateException.class, source::iterator);
+            assertEquals("Values of: " + file + " were already read!", e.getMessage());
+
+            Files.write(file, "1\nx".getBytes(StandardCharsets.UTF_8));
+            Iterator<Integer> iterator = option.parse(file.toString()).iterator();
+            assertEquals(1, iterator.next());
+
+            IllegalArgumentException iae = assertThrows(IllegalArgumentException.class, iterator::next);
+            assertEquals("Integer expected for i, but: 'x', was given!", iae.getMessage());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void invalidSource() {
+
+        StreamOption<String> option = new StreamOption<>("i");
+
+        CommandLineException e = assertThrows(CommandLineException.class, () -> option.parse("missing.txt"));
+        assertEquals("File 'missing.txt' does not exist", e.getMessage());
+
+        e = assertThrows(CommandLineException.class, () -> option.parse(System.getProperty("java.io.tmpdir")));
+        assertEquals("File '" + System.getProperty("java.io.tmpdir") + "' is a directory", e.getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void freshSourceForEachParse() throws Exception {
+
+        Path values = Files.createTempFile("ids", ".txt");
+        Path config = Files.createTempFile("config", ".cfg");
+        try {
+            Files.write(values, "1\n2".getBytes(StandardCharsets.UTF_8));
+            Files.write(config, ("ids = " + values).getBytes(StandardCharsets.UTF_8));
+
+            CommandBuilder builder = new CommandBuilder();
+            builder.add(new ConfigFileOption("c").longCommand("config"));
+            builder.add(new StreamOption<>("i", new IntOption("id")).longCommand("ids").setting("ids"));
+            builder.add(new StreamOption<>("s").longCommand("source").setting("source"));
+
+            CommandLineParser parser = new CommandLineParser(builder);
+
+            Settings defaults = new Settings();
+            defaults.put("source", new StreamOption<String>("s").parse(values.toString()));
+            parser.setDefaults(defaults);
+
+            // config file is cached, defaults are held by parser
+            for (int count = 0; count < 2; count++) {
+
+                Settings settings = parser.parse(new String[]{"-c", config.toString()});
+
+                List<Integer> ids = new ArrayList<>();
+                ((ValueSource<Integer>) settings.get("ids")).forEach(ids::add);
+                assertEquals(Arrays.asList(1, 2), ids);
+
+                List<String> lines = new ArrayList<>();
+                ((ValueSource<String>) settings.get("source")).forEach(lines::add);
+                assertEquals(Arrays.asList("1", "2"), lines);
+            }
+        }
+        finally {
+            Files.delete(values);
+            Files.delete(config);
+        }
+    }
+
+    @Test
+    public void readStdinWhileProduced() throws Exception {
+
+        CommandBuilder builder = new CommandBuilder();
+        builder.add(new StreamOption<String>("i").longCommand("ids"));
+        builder.add(new BoolOption("v").longCommand("verbose"));
+
+        CommandLineParser parser = new CommandLineParser(builder);
+
+        InputStream stdin = System.in;
+        try (PipedOutputStream producer = new PipedOutputStream()) {
+
+            System.setIn(new PipedInputStream(producer));
+
+            Settings settings = parser.parse(new String[]{"-i", "-", "-v"});
+            ValueSource<String> source = (ValueSource<String>) settings.get("i");
+            assertTrue(source.isStdin());
+            assertEquals(source.getName(), parser.parse(new String[]{"--ids", "@-"}).get("i").toString());
+
+            // first value is consumed before the rest is produced
+            CountDownLatch consumed = new CountDownLatch(1);
+            Thread thread = new Thread(() -> {
+                try {
+                    producer.write("one\n".getBytes(StandardCharsets.UTF_8));
+                    producer.flush();
+                    assertTrue(consumed.await(10, TimeUnit.SECONDS));
+                    producer.write("two\nthree\n".getBytes(StandardCharsets.UTF_8));
+                    producer.close();
+                }
+                catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            thread.start();
+
+            Iterator<String> values = source.iterator();
+            assertEquals("one", values.next());
+            consumed.countDown();
+
+            List<String> rest = new ArrayList<>();
+            values.forEachRemaining(rest::add);
+            assertEquals(Arrays.asList("two", "three"), rest);
+
+            thread.join();
+        }
+        finally {
+            System.setIn(stdin);
+        }
+    }
+}
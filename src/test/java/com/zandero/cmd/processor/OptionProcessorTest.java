@@ -0,0 +1,197 @@
+package com.zandero.cmd.processor;
+
+import com.zandero.cmd.CommandLineException;
+import com.zandero.cmd.bind.Option;
+import com.zandero.cmd.option.IntList;
+import com.zandero.utils.Assert;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class OptionProcessorTest {
+
+    private static final String CONFIG = "package test;\n" +
+                                         "import com.zandero.cmd.bind.Option;\n" +
+                                         "import java.net.URI;\n" +
+                                         "import java.util.List;\n" +
+                                         "public class Config {\n" +
+                                         "  @Option(shortName = \"t\", longName = \"threads\") int threads = 4;\n" +
+                                         "  @Option(shortName = \"v\", longName = \"verbose\") boolean verbose;\n" +
+                                         "  @Option(shortName = \"n\", longName = \"name\", required = true) String name;\n" +
+                                         "  @Option(shortName = \"u\", longName = \"url\") URI url;\n" +
+                                         "  @Option(shortName = \"a\") List<String> arguments;\n" +
+                                         "  @Option(shortName = \"s\", longName = \"shards\") com.zandero.cmd.option.IntList shards;\n" +
+                                         "}\n";
+
+    @Test
+    public void generatedParser() throws Exception {
+
+        Path out = Files.createTempDirectory("processor");
+        assertTrue(compile(out, CONFIG).isEmpty());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{out.toUri().toURL()}, getClass().getClassLoader())) {
+
+            Method parse = loader.loadClass("test.ConfigParser").getMethod("parse", String[].class);
+
+            Object config = parse.invoke(null, (Object) new String[]{"-t", "16", "--verbose", "-n", " test ", "--url", "http://zandero.com", "-a", "one two", "-s", "1,2", "3", "-a", "three"});
+            assertEquals(16, get(config, "threads"));
+            assertEquals(true, get(config, "verbose"));
+            assertEquals("test", get(config, "name"));
+            assertEquals(URI.create("http://zandero.com"), get(config, "url"));
+            assertEquals(Arrays.asList("one", "two", "three"), get(config, "arguments"));
+            assertEquals(IntList.of(1, 2, 3), get(config, "shards"));
+
+            // initial values are kept
+            config = parse.invoke(null, (Object) new String[]{"-n", "test", "-x"});
+            assertEquals(4, get(config, "threads"));
+            assertEquals(false, get(config, "verbose"));
+            assertNull(get(config, "url"));
+
+            assertEquals("Missing required: -n [ --name ]", error(parse, "-t", "1"));
+            assertEquals("Integer expected for t, but: 'a', was given!", error(parse, "-n", "test", "-t", "a"));
+            assertEquals("Unknown command line option: test", error(parse, "test"));
+            assertEquals("Expected at least 1 value(s) for s, but: 0, were given!", error(parse, "-n", "test", "-s"));
+        }
+    }
+
+    @Test
+    public void commandLineForms() throws Exception {
+
+        Path out = Files.createTempDirectory("processor");
+        assertTrue(compile(out, CONFIG).isEmpty());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{out.toUri().toURL()}, getClass().getClassLoader())) {
+
+            Method parse = loader.loadClass("test.ConfigParser").getMethod("parse", String[].class);
+
+            // --name=value
+            Object config = parse.invoke(null, (Object) new String[]{"--name=test", "--threads=8", "--url=http://zandero.com", "--verbose=false"});
+            assertEquals("test", get(config, "name"));
+            assertEquals(8, get(config, "threads"));
+            assertEquals(URI.create("http://zandero.com"), get(config, "url"));
+            assertEquals(false, get(config, "verbose"));
+
+            // attached value and clustered flags
+            config = parse.invoke(null, (Object) new String[]{"-ntest", "-vt10", "-s1,2"});
+            assertEquals("test", get(config, "name"));
+            assertEquals(true, get(config, "verbose"));
+            assertEquals(10, get(config, "threads"));
+            assertEquals(IntList.of(1, 2), get(config, "shards"));
+
+            config = parse.invoke(null, (Object) new String[]{"-n", "test", "-vt", "12"});
+            assertEquals(12, get(config, "threads"));
+
+            // negative numbers are values
+            config = parse.invoke(null, (Object) new String[]{"-n", "test", "-t", "-5", "-s", "-1", "-2"});
+            assertEquals(-5, get(config, "threads"));
+            assertEquals(IntList.of(-1, -2), get(config, "shards"));
+
+            // end of options
+            config = parse.invoke(null, (Object) new String[]{"-n", "test", "--"});
+            assertEquals("test", get(config, "name"));
+            assertEquals("Unexpected arguments after --: -t, 1", error(parse, "-n", "test", "--", "-t", "1"));
+
+            // unknown options are ignored unless followed by a value, cluster holding unknown option is ignored as a whole
+            config = parse.invoke(null, (Object) new String[]{"-n", "test", "-vx", "--other"});
+            assertEquals(false, get(config, "verbose"));
+            assertEquals("Unknown command line option: -x", error(parse, "-n", "test", "-x", "1"));
+            assertEquals("Unknown command line option: 2", error(parse, "-n", "test", "--threads=1", "2"));
+        }
+    }
+
+    @Test
+    public void invalidField() throws Exception {
+
+        String source = "package test;\n" +
+                        "public class Config {\n" +
+                        "  @com.zandero.cmd.bind.Option(shortName = \"t\") private int threads;\n" +
+                        "  @com.zandero.cmd.bind.Option(shortName = \"x\") Thread thread;\n" +
+                        "}\n";
+
+        List<String> errors = compile(Files.createTempDirectory("processor"), source);
+        assertEquals(2, errors.size());
+        assertEquals("Option field: threads can't be static, final or private!", errors.get(0));
+        assertTrue(errors.get(1).startsWith("Can't deduce option type of field: thread"));
+    }
+
+    private static List<String> compile(Path out, String source) {
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///test/Config.java"), JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+
+                return source;
+            }
+        };
+
+        String classPath = location(Option.class) + File.pathSeparator + location(Assert.class);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                                                             Arrays.asList("-classpath", classPath, "-d", out.toString()),
+                                                             null, Collections.singletonList(file));
+
+        task.setProcessors(Collections.singletonList(new OptionProcessor()));
+        task.call();
+
+        return diagnostics.getDiagnostics().stream()
+                          .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                          .map(diagnostic -> diagnostic.getMessage(null))
+                          .collect(Collectors.toList());
+    }
+
+    private static String location(Class<?> clazz) {
+
+        try {
+            return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object get(Object instance, String name) throws ReflectiveOperationException {
+
+        Field field = instance.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(instance);
+    }
+
+    private static String error(Method parse, String... arguments) throws IllegalAccessException {
+
+        try {
+            parse.invoke(null, (Object) arguments);
+            fail("Expected exception");
+            return null;
+        }
+        catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof CommandLineException);
+            return e.getCause().getMessage();
+        }
+    }
+}